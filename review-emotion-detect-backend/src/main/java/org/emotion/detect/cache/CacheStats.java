@@ -0,0 +1,74 @@
+package org.emotion.detect.cache;
+
+import lombok.Data;
+
+/**
+ * Snapshot of result cache counters
+ * Counters are cumulative since startup
+ */
+@Data
+public class CacheStats {
+    /** Lookups answered from the cache */
+    private Long hits;
+
+    /** Lookups that had to compute the result */
+    private Long misses;
+
+    /** Entries dropped to stay within the size bound */
+    private Long evictions;
+
+    /** Entries dropped because their TTL ran out */
+    private Long expirations;
+
+    /** Entries removed by writes */
+    private Long invalidations;
+
+    /** Entries currently cached */
+    private Integer size;
+
+    /** Size bound */
+    private Integer maxSize;
+
+    // Manual getters and setters for compatibility
+    public Long getHits() { return hits; }
+    public void setHits(Long hits) { this.hits = hits; }
+
+    public Long getMisses() { return misses; }
+    public void setMisses(Long misses) { this.misses = misses; }
+
+    public Long getEvictions() { return evictions; }
+    public void setEvictions(Long evictions) { this.evictions = evictions; }
+
+    public Long getExpirations() { return expirations; }
+    public void setExpirations(Long expirations) { this.expirations = expirations; }
+
+    public Long getInvalidations() { return invalidations; }
+    public void setInvalidations(Long invalidations) { this.invalidations = invalidations; }
+
+    public Integer getSize() { return size; }
+    public void setSize(Integer size) { this.size = size; }
+
+    public Integer getMaxSize() { return maxSize; }
+    public void setMaxSize(Integer maxSize) { this.maxSize = maxSize; }
+
+    /**
+     * @return share of lookups answered from the cache, 0 before the first lookup
+     */
+    public Double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    public CacheStats() {}
+
+    public CacheStats(Long hits, Long misses, Long evictions, Long expirations, Long invalidations,
+                      Integer size, Integer maxSize) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+        this.size = size;
+        this.maxSize = maxSize;
+    }
+}
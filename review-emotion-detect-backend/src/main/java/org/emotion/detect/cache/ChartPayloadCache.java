@@ -0,0 +1,116 @@
+package org.emotion.detect.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Conditional GET support for versioned chart endpoints
+ * Answers a matching If-None-Match with 304 from the version alone. Otherwise serves the
+ * body serialized once per version, gzip-compressed for clients that accept it.
+ */
+@Component
+public class ChartPayloadCache {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, Payload> payloads = new ConcurrentHashMap<>();
+
+    /**
+     * Build the response of a chart endpoint
+     * @param chart name of the chart, one cached payload is kept per chart
+     * @param version current content version of the chart
+     * @param ifNoneMatch the If-None-Match request header, may be null
+     * @param acceptEncoding the Accept-Encoding request header, may be null
+     * @param body computes the response body when the cached one is outdated
+     * @return 304 for a matching ETag, otherwise 200 with the JSON body
+     */
+    public ResponseEntity<byte[]> respond(String chart, String version, String ifNoneMatch, String acceptEncoding,
+                                          Supplier<Object> body) {
+        String etag = "\"" + version + "\"";
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+
+        Payload payload = payloads.get(chart);
+        if (payload == null || !payload.version.equals(version)) {
+            payload = new Payload(version, serialize(body.get()));
+            payloads.put(chart, payload);
+        }
+
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(gzip ? payload.gzip : payload.json);
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Error serializing chart response", e);
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag) || candidate.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error compressing chart response", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static final class Payload {
+        private final String version;
+        private final byte[] json;
+        private final byte[] gzip;
+
+        private Payload(String version, byte[] json) {
+            this.version = version;
+            this.json = json;
+            this.gzip = gzip(json);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.emotion.detect.cache;
+
+import org.emotion.detect.ingest.EmotionBatchWrittenEvent;
+import org.emotion.detect.repository.DashboardRepository;
+import org.emotion.detect.stats.TwitterSentimentAggregator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cheap content versions of the chart endpoints, used as ETags
+ * The sentiment chart version is the latest sentiment_summary day plus a counter of committed
+ * sentiment writes; both are kept in memory, so checking a version never touches the database
+ * (apart from reading the latest day once). The process start time is part of every version,
+ * so a restart never reuses an old version for different data.
+ * The twitter chart version is the source state its aggregate was built from; until the
+ * aggregate is current it advances on a fixed interval.
+ */
+@Component
+public class ChartVersionTracker {
+
+    @Autowired
+    private DashboardRepository dashboardRepository;
+
+    @Autowired
+    private TwitterSentimentAggregator twitterSentimentAggregator;
+
+    /** How long a twitter chart version stays valid while the aggregate is not current */
+    @Value("${dashboard.chart.twitter-version-interval-ms:300000}")
+    private long twitterVersionIntervalMs;
+
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong sentimentChanges = new AtomicLong();
+
+    private LocalDate maxSentimentDay;
+
+    private boolean seeded;
+
+    /**
+     * @return the current version of the sentiment line chart
+     */
+    public String getSentimentChartVersion() {
+        LocalDate day;
+        synchronized (this) {
+            if (!seeded) {
+                LocalDate stored = dashboardRepository.getMaxSentimentDay();
+                maxSentimentDay = later(maxSentimentDay, stored);
+                seeded = true;
+            }
+            day = maxSentimentDay;
+        }
+        return "line-" + day + "-" + instance + "-" + sentimentChanges.get();
+    }
+
+    /**
+     * @return the current version of the twitter line chart
+     */
+    public String getTwitterChartVersion() {
+        String aggregateVersion = twitterSentimentAggregator.getVersion();
+        if (aggregateVersion != null) {
+            return "twitter-" + instance + "-" + Integer.toHexString(aggregateVersion.hashCode());
+        }
+        return "twitter-" + instance + "-t" + System.currentTimeMillis() / twitterVersionIntervalMs;
+    }
+
+    /**
+     * Advance the sentiment chart version after a committed write
+     * Runs after CachingDashboardService dropped the cached chart; the other way round a
+     * concurrent request could store the stale cached chart under the new version.
+     * @param event the batch written event
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onBatchWritten(EmotionBatchWrittenEvent event) {
+        if (event.getBatch().getSentimentCounts().isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (LocalDate day : event.getBatch().getSentimentCounts().keySet()) {
+                maxSentimentDay = later(maxSentimentDay, day);
+            }
+        }
+        sentimentChanges.incrementAndGet();
+    }
+
+    private static LocalDate later(LocalDate a, LocalDate b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isAfter(b) ? a : b;
+    }
+}
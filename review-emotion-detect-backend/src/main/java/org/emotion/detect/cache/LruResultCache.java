@@ -0,0 +1,140 @@
+package org.emotion.detect.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded LRU result cache with a fixed time-to-live per entry
+ * Results are computed outside the lock. A result whose computation overlapped an
+ * invalidation is returned but not cached, so a write can never be hidden by a load
+ * that started before it.
+ */
+public class LruResultCache<K, V> implements ResultCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    /** Bumped by every invalidation, loads started under an older generation are not cached */
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public LruResultCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    public V get(K key, Supplier<V> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            V cached = lookup(key);
+            if (cached != null) {
+                return cached;
+            }
+            loadGeneration = generation;
+        }
+        V value = loader.get();
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                store(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized V getIfPresent(K key) {
+        return lookup(key);
+    }
+
+    @Override
+    public synchronized void put(K key, V value) {
+        store(key, value);
+    }
+
+    /** Counts a hit or a miss, dropping the entry if it expired; caller holds the lock */
+    private V lookup(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAt > System.currentTimeMillis()) {
+                hits++;
+                return entry.value;
+            }
+            entries.remove(key);
+            expirations++;
+        }
+        misses++;
+        return null;
+    }
+
+    /** Adds an entry and evicts the eldest beyond the bound; caller holds the lock */
+    private void store(K key, V value) {
+        if (value == null) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+        if (entries.size() > maxSize) {
+            Iterator<K> eldest = entries.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(K key) {
+        generation++;
+        if (entries.remove(key) != null) {
+            invalidations++;
+        }
+    }
+
+    @Override
+    public synchronized int invalidateIf(BiPredicate<? super K, ? super V> condition) {
+        generation++;
+        int removed = 0;
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> entry = iterator.next();
+            if (condition.test(entry.getKey(), entry.getValue().value)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        invalidations += removed;
+        return removed;
+    }
+
+    @Override
+    public synchronized void clear() {
+        generation++;
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    @Override
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, evictions, expirations, invalidations, entries.size(), maxSize);
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.emotion.detect.cache;
+
+import org.emotion.detect.entity.Post;
+import org.emotion.detect.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The newest anonymous posts, held in memory for the first page of the wall
+ * The posts live in an immutable array, newest first, behind an AtomicReference. A save
+ * replaces the array by compare-and-set, so readers never lock and always see one
+ * consistent snapshot. The feed is warmed from the database at startup and written through
+ * by PostServiceImpl after each save.
+ */
+@Component
+public class RecentPostFeed {
+
+    /** Wall order: created_at descending, then post_id descending */
+    private static final Comparator<Post> NEWEST_FIRST = Comparator
+            .comparing(Post::getCreatedAt)
+            .thenComparing(Post::getPostId)
+            .reversed();
+
+    @Autowired
+    private PostRepository postRepository;
+
+    /** Number of newest posts kept in memory, 0 disables the feed */
+    @Value("${posts.feed.capacity:200}")
+    private int capacity;
+
+    /** Null until warmed */
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    @PostConstruct
+    public void warm() {
+        if (capacity <= 0) {
+            return;
+        }
+        try {
+            List<Post> newest = postRepository.findPage(null, null, capacity);
+            snapshot.set(new Snapshot(newest.toArray(new Post[0]), newest.size() < capacity));
+            System.out.println("Recent post feed warmed with " + newest.size() + " posts");
+        } catch (Exception e) {
+            // Reads fall through to the database until the next startup
+            System.err.println("Error warming recent post feed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add a saved post, dropping the oldest one once the feed is full
+     * @param post the post as stored, with its ID and creation time
+     */
+    public void add(Post post) {
+        Snapshot current;
+        Snapshot next;
+        do {
+            current = snapshot.get();
+            if (current == null) {
+                return;
+            }
+            next = current.with(post, capacity);
+        } while (!snapshot.compareAndSet(current, next));
+    }
+
+    /**
+     * Newest posts for a first page
+     * @param limit page size
+     * @return up to limit + 1 posts, newest first, where a post past limit means another page
+     *         follows; null if the feed cannot answer and the database has to
+     */
+    public List<Post> firstPage(int limit) {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            return null;
+        }
+        Post[] posts = current.posts;
+        if (posts.length > limit) {
+            return Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(posts, limit + 1)));
+        }
+        // Fewer posts than asked for is only the full answer if the table holds no more
+        return current.complete ? Collections.unmodifiableList(Arrays.asList(posts)) : null;
+    }
+
+    /**
+     * @return number of posts currently held, 0 before warming
+     */
+    public int size() {
+        Snapshot current = snapshot.get();
+        return current == null ? 0 : current.posts.length;
+    }
+
+    /**
+     * One immutable state of the feed
+     */
+    private static final class Snapshot {
+        /** Newest first, never modified after construction */
+        private final Post[] posts;
+        /** True while the feed holds every post in the table */
+        private final boolean complete;
+
+        private Snapshot(Post[] posts, boolean complete) {
+            this.posts = posts;
+            this.complete = complete;
+        }
+
+        Snapshot with(Post post, int capacity) {
+            // Concurrent saves can arrive out of order, so insert at the post's place in wall order
+            List<Post> merged = new ArrayList<>(posts.length + 1);
+            merged.addAll(Arrays.asList(posts));
+            int index = Collections.binarySearch(merged, post, NEWEST_FIRST);
+            if (index >= 0) {
+                return this;
+            }
+            merged.add(-index - 1, post);
+            boolean stillComplete = complete && merged.size() <= capacity;
+            if (merged.size() > capacity) {
+                merged = merged.subList(0, capacity);
+            }
+            return new Snapshot(merged.toArray(new Post[0]), stillComplete);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.emotion.detect.cache;
+
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache for computed query results
+ * Implementations bound their size and expire entries; writers invalidate what they change.
+ */
+public interface ResultCache<K, V> {
+
+    /**
+     * Get a cached result, computing and caching it on a miss
+     * @param key the cache key
+     * @param loader computes the result on a miss; exceptions propagate and nothing is cached
+     * @return the cached or computed result
+     */
+    V get(K key, Supplier<V> loader);
+
+    /**
+     * Get a cached result without computing it
+     * Lets callers that load many keys at once look them all up first
+     * @param key the cache key
+     * @return the cached result, null on a miss
+     */
+    V getIfPresent(K key);
+
+    /**
+     * Cache a result computed outside of get
+     * @param key the cache key
+     * @param value the result, null values are not cached
+     */
+    void put(K key, V value);
+
+    /**
+     * Remove one entry
+     * @param key the cache key
+     */
+    void invalidate(K key);
+
+    /**
+     * Remove every entry matching a condition
+     * @param condition tested with each key and its cached value
+     * @return number of entries removed
+     */
+    int invalidateIf(BiPredicate<? super K, ? super V> condition);
+
+    /**
+     * Remove all entries
+     */
+    void clear();
+
+    /**
+     * @return hit, miss and eviction counters
+     */
+    CacheStats getStats();
+}
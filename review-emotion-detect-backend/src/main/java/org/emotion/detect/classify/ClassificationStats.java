@@ -0,0 +1,91 @@
+package org.emotion.detect.classify;
+
+import lombok.Data;
+
+/**
+ * Snapshot of the post classification pipeline
+ * Counters are cumulative since startup; rejected counts posts turned away by a full queue,
+ * which the periodic sweep picks up again later
+ */
+@Data
+public class ClassificationStats {
+    /** Posts waiting in the queue */
+    private Integer queueDepth;
+
+    /** Queue bound */
+    private Integer queueCapacity;
+
+    /** Posts accepted into the queue */
+    private Long accepted;
+
+    /** Posts turned away because the queue was full */
+    private Long rejected;
+
+    /** Posts classified and stored */
+    private Long classified;
+
+    /** Posts whose classification or storage failed */
+    private Long failed;
+
+    /** Batches written to post_emotions */
+    private Long batches;
+
+    /** Longest time a stored post spent between queueing and storage, in milliseconds */
+    private Long maxQueueToStoreMs;
+
+    /** Texts LatencyBudgetRouter sent to the model service for /posts/classify (not this pipeline) */
+    private Long routedToModel;
+
+    /** Texts the router answered from the lexicon because the model service was over budget */
+    private Long routedToLexicon;
+
+    /** Texts sent to the model service but answered from the lexicon after a failure */
+    private Long lexiconFallbacks;
+
+    /** Recent model service latency as seen by the router, in milliseconds */
+    private Double modelLatencyMs;
+
+    // Manual getters and setters for compatibility
+    public Integer getQueueDepth() { return queueDepth; }
+    public void setQueueDepth(Integer queueDepth) { this.queueDepth = queueDepth; }
+
+    public Integer getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(Integer queueCapacity) { this.queueCapacity = queueCapacity; }
+
+    public Long getAccepted() { return accepted; }
+    public void setAccepted(Long accepted) { this.accepted = accepted; }
+
+    public Long getRejected() { return rejected; }
+    public void setRejected(Long rejected) { this.rejected = rejected; }
+
+    public Long getClassified() { return classified; }
+    public void setClassified(Long classified) { this.classified = classified; }
+
+    public Long getFailed() { return failed; }
+    public void setFailed(Long failed) { this.failed = failed; }
+
+    public Long getBatches() { return batches; }
+    public void setBatches(Long batches) { this.batches = batches; }
+
+    public Long getMaxQueueToStoreMs() { return maxQueueToStoreMs; }
+    public void setMaxQueueToStoreMs(Long maxQueueToStoreMs) { this.maxQueueToStoreMs = maxQueueToStoreMs; }
+
+    public Long getRoutedToModel() { return routedToModel; }
+    public void setRoutedToModel(Long routedToModel) { this.routedToModel = routedToModel; }
+
+    public Long getRoutedToLexicon() { return routedToLexicon; }
+    public void setRoutedToLexicon(Long routedToLexicon) { this.routedToLexicon = routedToLexicon; }
+
+    public Long getLexiconFallbacks() { return lexiconFallbacks; }
+    public void setLexiconFallbacks(Long lexiconFallbacks) { this.lexiconFallbacks = lexiconFallbacks; }
+
+    public Double getModelLatencyMs() { return modelLatencyMs; }
+    public void setModelLatencyMs(Double modelLatencyMs) { this.modelLatencyMs = modelLatencyMs; }
+
+    /**
+     * @return average posts per stored batch, 0 before the first batch
+     */
+    public Double getAverageBatchSize() {
+        return batches == 0 ? 0.0 : (double) classified / batches;
+    }
+}
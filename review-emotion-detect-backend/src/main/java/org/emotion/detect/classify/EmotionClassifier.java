@@ -0,0 +1,37 @@
+package org.emotion.detect.classify;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classifies a text into fine emotion labels
+ * ModelServiceClient asks the model service, LexiconEmotionClassifier scores in the JVM, and
+ * LatencyBudgetRouter picks between the two per request for callers with a latency budget,
+ * such as /posts/classify
+ */
+public interface EmotionClassifier {
+
+    /**
+     * Score a text against all emotion labels
+     * @param text the text to classify
+     * @return label scores sorted by score descending, empty for blank text
+     */
+    List<EmotionScore> classify(String text);
+
+    /**
+     * Score several texts; implementations may share calls and cache results across them
+     * @param texts the texts to classify
+     * @return scores per text in input order, null where that text could not be classified
+     */
+    default List<List<EmotionScore>> classifyAll(List<String> texts) {
+        List<List<EmotionScore>> scores = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            try {
+                scores.add(classify(text));
+            } catch (RuntimeException e) {
+                scores.add(null);
+            }
+        }
+        return scores;
+    }
+}
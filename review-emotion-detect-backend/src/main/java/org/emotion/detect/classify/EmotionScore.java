@@ -0,0 +1,28 @@
+package org.emotion.detect.classify;
+
+import lombok.Data;
+
+/**
+ * One label score returned by an emotion classifier
+ */
+@Data
+public class EmotionScore {
+    /** Fine emotion label, e.g. joy or annoyance */
+    private String label;
+    /** Probability of the label, 0 to 1 */
+    private Double score;
+
+    // Manual getters and setters for compatibility
+    public String getLabel() { return label; }
+    public void setLabel(String label) { this.label = label; }
+
+    public Double getScore() { return score; }
+    public void setScore(Double score) { this.score = score; }
+
+    public EmotionScore() {}
+
+    public EmotionScore(String label, Double score) {
+        this.label = label;
+        this.score = score;
+    }
+}
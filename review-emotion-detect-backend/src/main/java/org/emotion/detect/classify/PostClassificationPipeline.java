@@ -0,0 +1,268 @@
+package org.emotion.detect.classify;
+
+import org.emotion.detect.client.ModelServiceClient;
+import org.emotion.detect.entity.Post;
+import org.emotion.detect.entity.PostEmotion;
+import org.emotion.detect.repository.PostRepository;
+import org.emotion.detect.taxonomy.EmotionTaxonomy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Classifies new anonymous posts in the background
+ * Saved post IDs go onto a bounded queue; worker threads take them in micro-batches, load
+ * the posts, classify them together through the model service and store the top labels with one
+ * batched upsert into post_emotions. add-post only pays for a queue offer. When the queue
+ * is full the post is left unclassified, and a periodic sweep queues posts without a
+ * post_emotions row again. The sweep pages downwards from a post_id cursor and starts over
+ * from the newest post once it reaches the oldest, so posts that keep failing cannot hold
+ * back older ones. Disabled unless posts.classify.enabled=true
+ */
+@Component
+public class PostClassificationPipeline {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    /**
+     * The model service itself, never the lexicon fallback: post_emotions does not record
+     * where a label came from, so a degraded label would never be replaced. A failed post is
+     * left unclassified and picked up by the sweep.
+     */
+    @Autowired
+    private ModelServiceClient modelServiceClient;
+
+    @Autowired
+    private EmotionTaxonomy emotionTaxonomy;
+
+    @Value("${posts.classify.enabled:false}")
+    private boolean enabled;
+
+    @Value("${posts.classify.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${posts.classify.workers:2}")
+    private int workers;
+
+    /** Most posts one worker takes from the queue at a time */
+    @Value("${posts.classify.batch-size:16}")
+    private int batchSize;
+
+    /** Pause between sweeps for unclassified posts, 0 sweeps only at startup */
+    @Value("${posts.classify.sweep-interval-ms:60000}")
+    private long sweepIntervalMs;
+
+    private BlockingQueue<Integer> queue;
+
+    /** Queued or in-progress post IDs with the time they were queued, so a post is never queued twice */
+    private final Map<Integer, Long> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong classified = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong maxQueueToStoreMs = new AtomicLong();
+
+    private final List<Thread> workerThreads = new ArrayList<>();
+
+    private ScheduledExecutorService sweeper;
+
+    /** Lowest post ID the last sweep queued from, null to start at the newest post; sweeper thread only */
+    private Integer sweepCursor;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::work, "post-classifier-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workerThreads.add(worker);
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "post-classifier-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (sweepIntervalMs > 0) {
+            sweeper.scheduleWithFixedDelay(this::sweepQuietly, 0, sweepIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            sweeper.execute(this::sweepQuietly);
+        }
+        System.out.println("Post classification enabled, " + workers + " workers, queue " + queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        sweeper.shutdownNow();
+        for (Thread worker : workerThreads) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Queue a saved post for classification, never blocks
+     * @param postId ID of the saved post
+     * @return true if the post was queued or is already pending
+     */
+    public boolean submit(int postId) {
+        if (!running) {
+            return false;
+        }
+        if (pending.putIfAbsent(postId, System.currentTimeMillis()) != null) {
+            return true;
+        }
+        if (!queue.offer(postId)) {
+            pending.remove(postId);
+            rejected.incrementAndGet();
+            return false;
+        }
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return queue and throughput counters
+     */
+    public ClassificationStats getStats() {
+        ClassificationStats stats = new ClassificationStats();
+        stats.setQueueDepth(queue == null ? 0 : queue.size());
+        stats.setQueueCapacity(queue == null ? 0 : queueCapacity);
+        stats.setAccepted(accepted.get());
+        stats.setRejected(rejected.get());
+        stats.setClassified(classified.get());
+        stats.setFailed(failed.get());
+        stats.setBatches(batches.get());
+        stats.setMaxQueueToStoreMs(maxQueueToStoreMs.get());
+        return stats;
+    }
+
+    private void work() {
+        List<Integer> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                classifyBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                for (Integer postId : batch) {
+                    pending.remove(postId);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void classifyBatch(List<Integer> postIds) {
+        int[] ids = new int[postIds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = postIds.get(i);
+        }
+        List<Post> posts;
+        try {
+            posts = postRepository.findByIds(ids);
+        } catch (Exception e) {
+            failed.addAndGet(ids.length);
+            System.err.println("Error loading " + ids.length + " posts for classification: " + e.getMessage());
+            return;
+        }
+        
+        List<String> texts = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            texts.add(post.getContent());
+        }
+        List<List<EmotionScore>> results;
+        try {
+            results = modelServiceClient.classifyAll(texts);
+        } catch (Exception e) {
+            failed.addAndGet(posts.size());
+            System.err.println("Error classifying " + posts.size() + " posts: " + e.getMessage());
+            return;
+        }
+
+        List<PostEmotion> emotions = new ArrayList<>(posts.size());
+        for (int i = 0; i < posts.size(); i++) {
+            Post post = posts.get(i);
+            List<EmotionScore> scores = results.get(i);
+            if (scores == null) {
+                // One bad call only costs its own post, the sweep retries it later
+                failed.incrementAndGet();
+                continue;
+            }
+            // Blank posts get no scores; store them as neutral so the sweep does not keep retrying them
+            EmotionScore top = scores.isEmpty() ? new EmotionScore("neutral", 0.0) : scores.get(0);
+            emotions.add(new PostEmotion(post.getPostId(), top.getLabel(), top.getScore(),
+                    emotionTaxonomy.getSentimentTypeString(top.getLabel()), LocalDateTime.now()));
+        }
+
+        try {
+            postRepository.batchSavePostEmotions(emotions);
+        } catch (Exception e) {
+            failed.addAndGet(emotions.size());
+            System.err.println("Error storing classifications of " + emotions.size() + " posts: " + e.getMessage());
+            return;
+        }
+        classified.addAndGet(emotions.size());
+        batches.incrementAndGet();
+        long now = System.currentTimeMillis();
+        for (PostEmotion emotion : emotions) {
+            Long queuedAt = pending.get(emotion.getPostId());
+            if (queuedAt != null) {
+                maxQueueToStoreMs.accumulateAndGet(now - queuedAt, Math::max);
+            }
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            // Only top up to the free capacity, new posts keep their room in the queue
+            int room = queue.remainingCapacity() / 2;
+            if (room == 0) {
+                return;
+            }
+            int queued = 0;
+            List<Integer> postIds = postRepository.findUnclassifiedPostIds(sweepCursor, room);
+            for (Integer postId : postIds) {
+                if (!pending.containsKey(postId) && submit(postId)) {
+                    queued++;
+                }
+            }
+            // A short page reached the oldest post, the next sweep starts from the newest again
+            sweepCursor = postIds.size() < room ? null : postIds.get(postIds.size() - 1);
+            if (queued > 0) {
+                System.out.println("Queued " + queued + " unclassified posts for classification");
+            }
+        } catch (Exception e) {
+            System.err.println("Error sweeping unclassified posts: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.emotion.detect.classify.impl;
+
+import org.emotion.detect.classify.EmotionClassifier;
+import org.emotion.detect.classify.EmotionScore;
+import org.emotion.detect.client.CircuitBreaker;
+import org.emotion.detect.client.ModelServiceClient;
+import org.emotion.detect.client.ModelServiceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * EmotionClassifier for interactive callers such as /posts/classify: the model service when it
+ * can answer within the latency budget, the in-JVM lexicon otherwise
+ * Background work with no budget to protect, such as PostClassificationPipeline, uses
+ * ModelServiceClient directly so it never stores lexicon labels.
+ * Each request goes to the lexicon straight away when the model's recent latency (an
+ * exponentially weighted average) is over budget, its circuit is open, or too many model
+ * calls are already in flight; requests are degraded instead of queued. Model calls get the
+ * budget as their deadline, and texts the model fails on are answered by the lexicon. While
+ * the model is over budget, one request in probe-every still goes to it, so the router
+ * notices when it recovers.
+ */
+@Component
+public class LatencyBudgetRouter implements EmotionClassifier {
+
+    /** Weight of the newest sample in the latency average */
+    private static final double EWMA_ALPHA = 0.2;
+
+    /** A failed or timed-out call counts as this many budgets, a capped sample would never exceed one */
+    private static final int FAILURE_PENALTY = 2;
+
+    @Autowired
+    private ModelServiceClient modelServiceClient;
+
+    @Autowired
+    private LexiconEmotionClassifier lexiconEmotionClassifier;
+
+    /** False always asks the model service first; the lexicon then only answers texts it fails on */
+    @Value("${classify.router.enabled:true}")
+    private boolean enabled;
+
+    /** Time a request may spend on the model service */
+    @Value("${classify.router.budget-ms:1000}")
+    private long budgetMs;
+
+    /** Model calls in flight beyond which requests go to the lexicon */
+    @Value("${classify.router.max-in-flight:16}")
+    private int maxInFlight;
+
+    /** While over budget, every n-th request still probes the model service */
+    @Value("${classify.router.probe-every:20}")
+    private int probeEvery;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong overBudgetRequests = new AtomicLong();
+    private final AtomicLong routedToModel = new AtomicLong();
+    private final AtomicLong routedToLexicon = new AtomicLong();
+    private final AtomicLong lexiconFallbacks = new AtomicLong();
+
+    /** Latency average in milliseconds, stored as double bits */
+    private final AtomicLong latencyEwmaBits = new AtomicLong(Double.doubleToLongBits(0.0));
+
+    @Override
+    public List<EmotionScore> classify(String text) {
+        if (!useModel()) {
+            routedToLexicon.incrementAndGet();
+            return lexiconEmotionClassifier.classify(text);
+        }
+        routedToModel.incrementAndGet();
+        long startedAt = System.currentTimeMillis();
+        List<EmotionScore> scores = null;
+        try {
+            scores = modelServiceClient.classify(text, budgetMs);
+        } catch (ModelServiceException e) {
+            lexiconFallbacks.incrementAndGet();
+        } finally {
+            inFlight.decrementAndGet();
+            recordLatency(startedAt, scores == null);
+        }
+        return scores != null ? scores : lexiconEmotionClassifier.classify(text);
+    }
+
+    @Override
+    public List<List<EmotionScore>> classifyAll(List<String> texts) {
+        if (!useModel()) {
+            routedToLexicon.addAndGet(texts.size());
+            List<List<EmotionScore>> scores = new ArrayList<>(texts.size());
+            for (String text : texts) {
+                scores.add(lexiconEmotionClassifier.classify(text));
+            }
+            return scores;
+        }
+        routedToModel.addAndGet(texts.size());
+        long startedAt = System.currentTimeMillis();
+        List<List<EmotionScore>> scores = null;
+        try {
+            scores = modelServiceClient.classifyAll(texts, budgetMs);
+        } finally {
+            inFlight.decrementAndGet();
+            recordLatency(startedAt, scores == null || scores.contains(null));
+        }
+        for (int i = 0; i < scores.size(); i++) {
+            if (scores.get(i) == null) {
+                lexiconFallbacks.incrementAndGet();
+                scores.set(i, lexiconEmotionClassifier.classify(texts.get(i)));
+            }
+        }
+        return scores;
+    }
+
+    public long getRoutedToModel() {
+        return routedToModel.get();
+    }
+
+    public long getRoutedToLexicon() {
+        return routedToLexicon.get();
+    }
+
+    /**
+     * @return texts sent to the model service but answered by the lexicon after a failure or timeout
+     */
+    public long getLexiconFallbacks() {
+        return lexiconFallbacks.get();
+    }
+
+    /**
+     * @return recent model service latency in milliseconds, averaged
+     */
+    public double getModelLatencyMs() {
+        return Double.longBitsToDouble(latencyEwmaBits.get());
+    }
+
+    /**
+     * Decide for one request; a true answer holds an in-flight slot the caller must release
+     */
+    private boolean useModel() {
+        if (!enabled) {
+            inFlight.incrementAndGet();
+            return true;
+        }
+        if (modelServiceClient.getCircuitState() == CircuitBreaker.State.OPEN) {
+            return false;
+        }
+        if (getModelLatencyMs() > budgetMs && overBudgetRequests.incrementAndGet() % probeEvery != 0) {
+            return false;
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void recordLatency(long startedAt, boolean failed) {
+        long elapsedMs = failed ? FAILURE_PENALTY * budgetMs : System.currentTimeMillis() - startedAt;
+        long current;
+        long next;
+        do {
+            current = latencyEwmaBits.get();
+            double average = Double.longBitsToDouble(current);
+            next = Double.doubleToLongBits(average + EWMA_ALPHA * (elapsedMs - average));
+        } while (!latencyEwmaBits.compareAndSet(current, next));
+    }
+}
@@ -0,0 +1,283 @@
+package org.emotion.detect.classify.impl;
+
+import org.emotion.detect.classify.EmotionClassifier;
+import org.emotion.detect.classify.EmotionScore;
+import org.emotion.detect.taxonomy.EmotionTaxonomy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-JVM emotion classifier over a bundled lexicon of words, phrases, emoji and emoticons
+ * Far less accurate than the model, but answers in microseconds, so LatencyBudgetRouter
+ * falls back to it when the model service is slow, overloaded or down. All terms are
+ * compiled into one Aho-Corasick automaton held in flat arrays, so a text is scanned once,
+ * char by char, whatever the size of the lexicon. Labels are the GoEmotions fine labels of
+ * EmotionTaxonomy; matched term weights are summed per label and normalized.
+ */
+@Component
+public class LexiconEmotionClassifier implements EmotionClassifier {
+
+    private static final String RESOURCE = "lexicon/emotion-lexicon.csv";
+
+    private static final String NEUTRAL = "neutral";
+
+    @Autowired
+    private EmotionTaxonomy emotionTaxonomy;
+
+    private volatile Automaton automaton;
+
+    @PostConstruct
+    public void load() throws IOException {
+        List<String> labels = new ArrayList<>();
+        List<Term> terms = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(RESOURCE).getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                // Split from the right, emoticons may contain commas
+                int weightAt = line.lastIndexOf(',');
+                int labelAt = line.lastIndexOf(',', weightAt - 1);
+                String label = line.substring(labelAt + 1, weightAt).trim().toLowerCase();
+                if (emotionTaxonomy.lookup(label) == null) {
+                    System.err.println("Skipping lexicon term with unknown label: " + line);
+                    continue;
+                }
+                int labelIndex = labels.indexOf(label);
+                if (labelIndex < 0) {
+                    labelIndex = labels.size();
+                    labels.add(label);
+                }
+                terms.add(new Term(line.substring(0, labelAt).trim(), labelIndex,
+                        Double.parseDouble(line.substring(weightAt + 1).trim())));
+            }
+        }
+        automaton = Automaton.build(terms, labels.toArray(new String[0]));
+        System.out.println("Emotion lexicon loaded: " + terms.size() + " terms, " + labels.size()
+                + " labels, " + automaton.fail.length + " automaton states");
+    }
+
+    @Override
+    public List<EmotionScore> classify(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        Automaton current = automaton;
+        double[] weights = new double[current.labels.length];
+        double total = current.scan(text, weights);
+        if (total == 0) {
+            return Collections.singletonList(new EmotionScore(NEUTRAL, 1.0));
+        }
+        List<EmotionScore> scores = new ArrayList<>();
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] > 0) {
+                scores.add(new EmotionScore(current.labels[i], weights[i] / total));
+            }
+        }
+        scores.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        return scores;
+    }
+
+    /**
+     * One lexicon entry as read from the resource
+     */
+    private static final class Term {
+        private final String text;
+        private final int label;
+        private final double weight;
+
+        Term(String text, int label, double weight) {
+            this.text = text;
+            this.label = label;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Aho-Corasick automaton over lowercased terms
+     * State s has its outgoing edges in edgeChars/edgeTargets[edgeStart[s], edgeStart[s + 1]),
+     * sorted by char for binary search. out[s] is the term ending at s or -1, and outLink[s]
+     * the next state on the failure chain that ends a term, so matches are enumerated without
+     * walking states that end nothing.
+     */
+    private static final class Automaton {
+        private final String[] labels;
+        private final int[] edgeStart;
+        private final char[] edgeChars;
+        private final int[] edgeTargets;
+        private final int[] fail;
+        private final int[] out;
+        private final int[] outLink;
+        private final int[] termLabel;
+        private final double[] termWeight;
+        private final int[] termLength;
+        /** Term must start, resp. end, at a word boundary */
+        private final boolean[] termWordStart;
+        private final boolean[] termWordEnd;
+
+        private Automaton(String[] labels, int[] edgeStart, char[] edgeChars, int[] edgeTargets,
+                          int[] fail, int[] out, int[] outLink, List<Term> terms, String[] patterns) {
+            this.labels = labels;
+            this.edgeStart = edgeStart;
+            this.edgeChars = edgeChars;
+            this.edgeTargets = edgeTargets;
+            this.fail = fail;
+            this.out = out;
+            this.outLink = outLink;
+            int count = terms.size();
+            termLabel = new int[count];
+            termWeight = new double[count];
+            termLength = new int[count];
+            termWordStart = new boolean[count];
+            termWordEnd = new boolean[count];
+            for (int t = 0; t < count; t++) {
+                Term term = terms.get(t);
+                String pattern = patterns[t];
+                termLabel[t] = term.label;
+                termWeight[t] = term.weight;
+                termLength[t] = pattern.length();
+                termWordStart[t] = Character.isLetterOrDigit(pattern.charAt(0));
+                termWordEnd[t] = !term.text.endsWith("*") && Character.isLetterOrDigit(pattern.charAt(pattern.length() - 1));
+            }
+        }
+
+        static Automaton build(List<Term> terms, String[] labels) {
+            // Build a pointer trie first; it is flattened into arrays once the failure links are known
+            List<TreeMap<Character, Integer>> children = new ArrayList<>();
+            List<Integer> terminal = new ArrayList<>();
+            children.add(new TreeMap<>());
+            terminal.add(-1);
+            String[] patterns = new String[terms.size()];
+            for (int t = 0; t < terms.size(); t++) {
+                String text = terms.get(t).text;
+                String pattern = (text.endsWith("*") ? text.substring(0, text.length() - 1) : text).toLowerCase();
+                patterns[t] = pattern;
+                int state = 0;
+                for (int i = 0; i < pattern.length(); i++) {
+                    Integer next = children.get(state).get(pattern.charAt(i));
+                    if (next == null) {
+                        next = children.size();
+                        children.add(new TreeMap<>());
+                        terminal.add(-1);
+                        children.get(state).put(pattern.charAt(i), next);
+                    }
+                    state = next;
+                }
+                // A duplicate term keeps the first entry
+                if (terminal.get(state) < 0) {
+                    terminal.set(state, t);
+                }
+            }
+
+            int states = children.size();
+            int[] edgeStart = new int[states + 1];
+            for (int s = 0; s < states; s++) {
+                edgeStart[s + 1] = edgeStart[s] + children.get(s).size();
+            }
+            char[] edgeChars = new char[edgeStart[states]];
+            int[] edgeTargets = new int[edgeStart[states]];
+            for (int s = 0; s < states; s++) {
+                int e = edgeStart[s];
+                for (Map.Entry<Character, Integer> edge : children.get(s).entrySet()) {
+                    edgeChars[e] = edge.getKey();
+                    edgeTargets[e++] = edge.getValue();
+                }
+            }
+            int[] out = new int[states];
+            for (int s = 0; s < states; s++) {
+                out[s] = terminal.get(s);
+            }
+
+            // Breadth-first, so a state's failure target is always done before the state itself
+            int[] fail = new int[states];
+            int[] outLink = new int[states];
+            outLink[0] = -1;
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+                fail[edgeTargets[e]] = 0;
+                outLink[edgeTargets[e]] = -1;
+                queue.add(edgeTargets[e]);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (int e = edgeStart[state]; e < edgeStart[state + 1]; e++) {
+                    int child = edgeTargets[e];
+                    int f = fail[state];
+                    int target;
+                    while ((target = next(edgeStart, edgeChars, edgeTargets, f, edgeChars[e])) < 0 && f != 0) {
+                        f = fail[f];
+                    }
+                    fail[child] = target < 0 ? 0 : target;
+                    outLink[child] = out[fail[child]] >= 0 ? fail[child] : outLink[fail[child]];
+                    queue.add(child);
+                }
+            }
+            return new Automaton(labels, edgeStart, edgeChars, edgeTargets, fail, out, outLink, terms, patterns);
+        }
+
+        /**
+         * Add the weights of all terms found in the text to their labels
+         * @return the sum of all added weights
+         */
+        double scan(String text, double[] weights) {
+            double total = 0;
+            int state = 0;
+            int length = text.length();
+            for (int i = 0; i < length; i++) {
+                char c = Character.toLowerCase(text.charAt(i));
+                int target;
+                while ((target = next(edgeStart, edgeChars, edgeTargets, state, c)) < 0 && state != 0) {
+                    state = fail[state];
+                }
+                state = target < 0 ? 0 : target;
+                for (int s = out[state] >= 0 ? state : outLink[state]; s >= 0; s = outLink[s]) {
+                    int term = out[s];
+                    int start = i - termLength[term] + 1;
+                    if (termWordStart[term] && start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))) {
+                        continue;
+                    }
+                    if (termWordEnd[term] && i + 1 < length && Character.isLetterOrDigit(text.charAt(i + 1))) {
+                        continue;
+                    }
+                    weights[termLabel[term]] += termWeight[term];
+                    total += termWeight[term];
+                }
+            }
+            return total;
+        }
+
+        private static int next(int[] edgeStart, char[] edgeChars, int[] edgeTargets, int state, char c) {
+            int low = edgeStart[state];
+            int high = edgeStart[state + 1] - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char edge = edgeChars[mid];
+                if (edge < c) {
+                    low = mid + 1;
+                } else if (edge > c) {
+                    high = mid - 1;
+                } else {
+                    return edgeTargets[mid];
+                }
+            }
+            return -1;
+        }
+    }
+}
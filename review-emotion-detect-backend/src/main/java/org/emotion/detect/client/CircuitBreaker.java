@@ -0,0 +1,64 @@
+package org.emotion.detect.client;
+
+/**
+ * Consecutive-failure circuit breaker
+ * Opens after a run of failed calls and rejects calls until the open period is over; then
+ * lets a single trial call through, closing again on its success and reopening on failure.
+ */
+public class CircuitBreaker {
+
+    /** Breaker states, as reported to callers */
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Ask to make a call; every permitted call must report back through onSuccess or onFailure
+     * @return true if the call may go ahead
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() < openUntil) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + openMillis;
+        }
+    }
+
+    public synchronized State getState() {
+        return state == State.OPEN && System.currentTimeMillis() >= openUntil ? State.HALF_OPEN : state;
+    }
+}
@@ -0,0 +1,467 @@
+package org.emotion.detect.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.emotion.detect.cache.LruResultCache;
+import org.emotion.detect.cache.ResultCache;
+import org.emotion.detect.classify.EmotionClassifier;
+import org.emotion.detect.classify.EmotionScore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client for the /classify and /rewrite endpoints of the Python model services
+ * (review-emotion-model/server.py, tonelens_models/server_new_gemini.py)
+ * Calls go over a pooled keep-alive connection manager and share a per-call deadline.
+ * Classify results are cached by the MD5 of the text, like _check_cache in
+ * epic6_emotion_analysis.py, and concurrent requests for the same text share one call.
+ * The service takes one text per call, so a batch is deduplicated and checked against the
+ * cache first, and the remaining texts go out in parallel under one deadline. A classify
+ * attempt that is slow past the hedge delay gets a second attempt on another connection,
+ * and failed attempts are retried while the deadline allows. A circuit breaker fails calls
+ * fast after repeated failures.
+ */
+@Component
+public class ModelServiceClient implements EmotionClassifier {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** Base URL of the model service, without a trailing slash */
+    @Value("${model-service.base-url:http://localhost:8000}")
+    private String baseUrl;
+
+    @Value("${model-service.max-connections:16}")
+    private int maxConnections;
+
+    @Value("${model-service.connect-timeout-ms:1000}")
+    private int connectTimeoutMs;
+
+    /** Deadline of one classify call or batch, including retries */
+    @Value("${model-service.deadline-ms:5000}")
+    private long deadlineMs;
+
+    /** Deadline of one rewrite call, generation is much slower than classification */
+    @Value("${model-service.rewrite-deadline-ms:30000}")
+    private long rewriteDeadlineMs;
+
+    /** Delay after which a classify attempt without response is hedged, 0 disables hedging */
+    @Value("${model-service.hedge-delay-ms:300}")
+    private long hedgeDelayMs;
+
+    /** Most attempts per call, hedges included */
+    @Value("${model-service.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${model-service.retry-backoff-ms:50}")
+    private long retryBackoffMs;
+
+    @Value("${model-service.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    @Value("${model-service.cache.ttl-ms:3600000}")
+    private long cacheTtlMs;
+
+    @Value("${model-service.breaker.failure-threshold:5}")
+    private int breakerFailureThreshold;
+
+    @Value("${model-service.breaker.open-ms:10000}")
+    private long breakerOpenMs;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private CloseableHttpClient httpClient;
+
+    /** Runs the blocking HTTP attempts */
+    private ExecutorService callExecutor;
+
+    /** Fires hedges, retries and deadlines */
+    private ScheduledExecutorService timer;
+
+    private ResultCache<String, List<EmotionScore>> classifyCache;
+
+    private CircuitBreaker circuitBreaker;
+
+    /** Classify calls in progress by content hash */
+    private final Map<String, CompletableFuture<List<EmotionScore>>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(2000);
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .evictIdleConnections(30, TimeUnit.SECONDS)
+                // Retries are ours, bounded by the deadline
+                .disableAutomaticRetries()
+                .build();
+        AtomicInteger threads = new AtomicInteger();
+        callExecutor = Executors.newFixedThreadPool(maxConnections * 2, runnable -> {
+            Thread thread = new Thread(runnable, "model-client-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "model-client-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        classifyCache = new LruResultCache<>(cacheMaxEntries, cacheTtlMs);
+        circuitBreaker = new CircuitBreaker(breakerFailureThreshold, breakerOpenMs);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        timer.shutdownNow();
+        callExecutor.shutdownNow();
+        httpClient.close();
+    }
+
+    @Override
+    public List<EmotionScore> classify(String text) {
+        return classify(text, deadlineMs);
+    }
+
+    /**
+     * Classify one text within a caller's time budget
+     * @param text the text to classify
+     * @param timeoutMs deadline of the call, retries and hedges included
+     * @return label scores sorted by score descending, empty for blank text
+     */
+    public List<EmotionScore> classify(String text, long timeoutMs) {
+        if (text == null || text.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        String key = DigestUtils.md5DigestAsHex(text.getBytes(StandardCharsets.UTF_8));
+        List<EmotionScore> cached = classifyCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        return await(classifyShared(key, text, System.currentTimeMillis() + timeoutMs));
+    }
+
+    @Override
+    public List<List<EmotionScore>> classifyAll(List<String> texts) {
+        return classifyAll(texts, deadlineMs);
+    }
+
+    /**
+     * Classify several texts within a caller's time budget
+     * @param texts the texts to classify
+     * @param timeoutMs deadline shared by the whole batch
+     * @return scores per text in input order, null where that text could not be classified
+     */
+    public List<List<EmotionScore>> classifyAll(List<String> texts, long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        List<CompletableFuture<List<EmotionScore>>> results = new ArrayList<>(texts.size());
+        Map<String, CompletableFuture<List<EmotionScore>>> calls = new HashMap<>();
+        for (String text : texts) {
+            if (text == null || text.trim().isEmpty()) {
+                results.add(CompletableFuture.completedFuture(Collections.emptyList()));
+                continue;
+            }
+            String key = DigestUtils.md5DigestAsHex(text.getBytes(StandardCharsets.UTF_8));
+            CompletableFuture<List<EmotionScore>> call = calls.get(key);
+            if (call == null) {
+                List<EmotionScore> cached = classifyCache.getIfPresent(key);
+                call = cached != null ? CompletableFuture.completedFuture(cached) : classifyShared(key, text, deadline);
+                calls.put(key, call);
+            }
+            results.add(call);
+        }
+
+        // Every call is already running, so waiting on them in order costs no extra time
+        List<List<EmotionScore>> scores = new ArrayList<>(results.size());
+        for (CompletableFuture<List<EmotionScore>> result : results) {
+            try {
+                scores.add(await(result));
+            } catch (ModelServiceException e) {
+                scores.add(null);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Rewrite a text in a given tone through /rewrite
+     * Generation is not idempotent in cost, so rewrites are retried but never hedged
+     * @param text the text to rewrite
+     * @param tone neutral, positive or polite
+     * @return the rewritten text
+     */
+    public String rewrite(String text, String tone) {
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("text", text);
+        body.put("tone", tone);
+        byte[] response = await(call("/rewrite", body, System.currentTimeMillis() + rewriteDeadlineMs, false));
+        try {
+            return objectMapper.readValue(response, RewriteResponse.class).getText();
+        } catch (IOException e) {
+            throw new ModelServiceException("Unreadable /rewrite response", e);
+        }
+    }
+
+    /**
+     * @return current state of the circuit breaker
+     */
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    private CompletableFuture<List<EmotionScore>> classifyShared(String key, String text, long deadline) {
+        CompletableFuture<List<EmotionScore>> existing = inFlight.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<List<EmotionScore>> shared = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            return existing;
+        }
+        shared.whenComplete((scores, error) -> {
+            inFlight.remove(key, shared);
+            if (scores != null) {
+                classifyCache.put(key, scores);
+            }
+        });
+        call("/classify", Collections.singletonMap("text", text), deadline, hedgeDelayMs > 0)
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        shared.completeExceptionally(error);
+                        return;
+                    }
+                    try {
+                        ClassifyResponse parsed = objectMapper.readValue(response, ClassifyResponse.class);
+                        shared.complete(parsed.getResults() == null ? Collections.emptyList() : parsed.getResults());
+                    } catch (IOException e) {
+                        shared.completeExceptionally(new ModelServiceException("Unreadable /classify response", e));
+                    }
+                });
+        return shared;
+    }
+
+    private CompletableFuture<byte[]> call(String path, Object body, long deadline, boolean hedged) {
+        CompletableFuture<byte[]> failed = new CompletableFuture<>();
+        if (!circuitBreaker.tryAcquire()) {
+            failed.completeExceptionally(new ModelServiceException("Model service circuit is open"));
+            return failed;
+        }
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            circuitBreaker.onSuccess();
+            failed.completeExceptionally(new ModelServiceException("Unserializable request", e));
+            return failed;
+        }
+        Attempts attempts = new Attempts(baseUrl + path, json, deadline, hedged);
+        // Callers get the dependent future, so the breaker is updated before they see the outcome
+        CompletableFuture<byte[]> outcome = attempts.result.whenComplete((response, error) -> {
+            // A rejected request says nothing about the service's health
+            if (error == null || error instanceof RejectedRequestException) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+        });
+        attempts.start();
+        return outcome;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        // Every call carries its own deadline timer, so this wait is bounded
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ModelServiceException("Interrupted while waiting for the model service", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof ModelServiceException
+                    ? (ModelServiceException) cause
+                    : new ModelServiceException("Model service call failed", cause);
+        }
+    }
+
+    /**
+     * The attempts of one call: the first, at most one hedge and retries after failures,
+     * all bounded by the call's deadline. The first successful response wins and aborts the rest.
+     */
+    private final class Attempts {
+        private final String url;
+        private final byte[] body;
+        private final long deadline;
+        private final boolean hedged;
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private final List<HttpPost> active = new ArrayList<>();
+        private int launched;
+        private int failures;
+        private Exception lastError;
+        private ScheduledFuture<?> deadlineTimer;
+
+        Attempts(String url, byte[] body, long deadline, boolean hedged) {
+            this.url = url;
+            this.body = body;
+            this.deadline = deadline;
+            this.hedged = hedged;
+        }
+
+        void start() {
+            long remaining = deadline - System.currentTimeMillis();
+            deadlineTimer = timer.schedule(() -> result.completeExceptionally(
+                    new ModelServiceException("Model service deadline exceeded for " + url)), remaining, TimeUnit.MILLISECONDS);
+            result.whenComplete((response, error) -> finish());
+            if (!launch()) {
+                result.completeExceptionally(new ModelServiceException("Model service deadline exceeded for " + url));
+                return;
+            }
+            if (hedged && hedgeDelayMs < remaining) {
+                timer.schedule(this::launch, hedgeDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * Start one more attempt if the call is open, attempts are left and time remains
+         */
+        synchronized boolean launch() {
+            long remaining = deadline - System.currentTimeMillis();
+            if (result.isDone() || launched >= maxAttempts || remaining <= 0) {
+                return false;
+            }
+            launched++;
+            HttpPost post = new HttpPost(url);
+            post.setConfig(RequestConfig.custom()
+                    .setConnectTimeout((int) Math.min(connectTimeoutMs, remaining))
+                    .setConnectionRequestTimeout((int) remaining)
+                    .setSocketTimeout((int) remaining)
+                    .build());
+            post.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+            active.add(post);
+            callExecutor.execute(() -> run(post));
+            return true;
+        }
+
+        private void run(HttpPost post) {
+            try (CloseableHttpResponse response = httpClient.execute(post)) {
+                int status = response.getStatusLine().getStatusCode();
+                byte[] content = response.getEntity() == null ? new byte[0] : EntityUtils.toByteArray(response.getEntity());
+                if (status >= 500) {
+                    failed(new IOException("HTTP " + status + " from " + url));
+                } else if (status >= 400) {
+                    result.completeExceptionally(new RejectedRequestException("HTTP " + status + " from " + url));
+                } else {
+                    result.complete(content);
+                }
+            } catch (Exception e) {
+                failed(e);
+            } finally {
+                synchronized (this) {
+                    active.remove(post);
+                }
+            }
+        }
+
+        private synchronized void failed(Exception error) {
+            failures++;
+            lastError = error;
+            if (result.isDone() || failures < launched) {
+                // Done already, or a hedge is still running
+                return;
+            }
+            if (launched < maxAttempts && deadline - System.currentTimeMillis() > retryBackoffMs) {
+                timer.schedule(this::retry, retryBackoffMs, TimeUnit.MILLISECONDS);
+            } else {
+                result.completeExceptionally(new ModelServiceException(
+                        "Model service call to " + url + " failed after " + launched + " attempts", lastError));
+            }
+        }
+
+        private void retry() {
+            if (!launch()) {
+                synchronized (this) {
+                    result.completeExceptionally(new ModelServiceException(
+                            "Model service call to " + url + " failed after " + launched + " attempts", lastError));
+                }
+            }
+        }
+
+        private void finish() {
+            deadlineTimer.cancel(false);
+            List<HttpPost> losers;
+            synchronized (this) {
+                losers = new ArrayList<>(active);
+            }
+            for (HttpPost post : losers) {
+                post.abort();
+            }
+        }
+    }
+
+    /**
+     * The service refused the request itself (4xx); retrying would not help
+     */
+    private static final class RejectedRequestException extends ModelServiceException {
+        private static final long serialVersionUID = 1L;
+
+        RejectedRequestException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Body of a /classify response
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ClassifyResponse {
+        private List<EmotionScore> results;
+
+        public List<EmotionScore> getResults() { return results; }
+        public void setResults(List<EmotionScore> results) { this.results = results; }
+    }
+
+    /**
+     * Body of a /rewrite response
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class RewriteResponse {
+        private String text;
+
+        public String getText() { return text; }
+        public void setText(String text) { this.text = text; }
+    }
+}
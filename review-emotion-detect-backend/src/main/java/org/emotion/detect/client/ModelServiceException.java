@@ -0,0 +1,17 @@
+package org.emotion.detect.client;
+
+/**
+ * A call to the model service failed, timed out or was refused by the circuit breaker
+ */
+public class ModelServiceException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ModelServiceException(String message) {
+        super(message);
+    }
+
+    public ModelServiceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,26 @@
+package org.emotion.detect.config;
+
+import org.emotion.detect.cache.LruResultCache;
+import org.emotion.detect.cache.ResultCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the dashboard result cache
+ * Replace the bean to plug in a different ResultCache implementation
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Creates the cache used in front of the dashboard read endpoints
+     * Bounded to a number of entries, each living at most the configured TTL
+     */
+    @Bean
+    public ResultCache<String, Object> dashboardResultCache(
+            @Value("${dashboard.cache.max-entries:256}") int maxEntries,
+            @Value("${dashboard.cache.ttl-ms:60000}") long ttlMillis) {
+        return new LruResultCache<>(maxEntries, ttlMillis);
+    }
+}
@@ -1,15 +1,25 @@
 package org.emotion.detect.controller;
 
+import org.emotion.detect.cache.CacheStats;
+import org.emotion.detect.cache.ChartPayloadCache;
+import org.emotion.detect.cache.ChartVersionTracker;
+import org.emotion.detect.cache.ResultCache;
+import org.emotion.detect.dto.BatchEmotionResponse;
 import org.emotion.detect.dto.EmotionRequest;
+import org.emotion.detect.dto.KeywordRangeStatsResponse;
 import org.emotion.detect.dto.KeywordStatsResponse;
 import org.emotion.detect.dto.SentimentChartResponse;
 import org.emotion.detect.service.DashboardService;
 import org.emotion.detect.vo.ResponseVo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Pattern;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * REST controller for handling dashboard analytics requests
@@ -22,18 +32,62 @@ public class DashboardController {
     @Autowired
     private DashboardService dashboardService;
 
+    @Autowired
+    private ResultCache<String, Object> dashboardResultCache;
+
+    @Autowired
+    private ChartVersionTracker chartVersionTracker;
+
+    @Autowired
+    private ChartPayloadCache chartPayloadCache;
+
     /**
      * Get keyword statistics for a specific time period
      * @param timePeriod the time period for analysis (weekly, monthly, yearly)
+     * @param accuracy exact (default) or approx for sketch-based estimates with error bounds
+     * @param topN number of keywords returned in approx mode
      * @return response containing keyword statistics sorted by count
      */
     @GetMapping("/sort-emotion")
     public ResponseVo<KeywordStatsResponse> getKeywordStats(
             @RequestParam("timePeriod") 
             @Pattern(regexp = "^(weekly|monthly|yearly)$", message = "Time period must be one of: weekly, monthly, yearly")
-            String timePeriod) {
+            String timePeriod,
+            @RequestParam(value = "accuracy", defaultValue = "exact")
+            @Pattern(regexp = "^(exact|approx)$", message = "Accuracy must be one of: exact, approx")
+            String accuracy,
+            @RequestParam(value = "topN", defaultValue = "20") int topN) {
+        try {
+            KeywordStatsResponse response = "approx".equals(accuracy)
+                    ? dashboardService.getApproxKeywordStats(timePeriod, topN)
+                    : dashboardService.getKeywordStats(timePeriod);
+            return ResponseVo.success(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseVo.error(org.emotion.detect.enums.ResponseEnum.ERROR, e.getMessage());
+        } catch (Exception e) {
+            return ResponseVo.error(org.emotion.detect.enums.ResponseEnum.ERROR, "Error getting keyword statistics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the top keywords of an explicit range, overall and per calendar-aligned bucket
+     * The range is widened to whole buckets, so identical requests return identical results
+     * @param from start of the range (yyyy-MM-dd or yyyy-MM-ddTHH:mm, inclusive)
+     * @param to end of the range (yyyy-MM-dd or yyyy-MM-ddTHH:mm, exclusive)
+     * @param granularity bucket size (hour, day, week, month)
+     * @param topN number of keywords per bucket and for the whole range
+     * @return response containing the range totals and per-bucket keyword statistics
+     */
+    @GetMapping("/keyword-stats")
+    public ResponseVo<KeywordRangeStatsResponse> getKeywordRangeStats(
+            @RequestParam("from") String from,
+            @RequestParam("to") String to,
+            @RequestParam(value = "granularity", defaultValue = "day")
+            @Pattern(regexp = "^(hour|day|week|month)$", message = "Granularity must be one of: hour, day, week, month")
+            String granularity,
+            @RequestParam(value = "topN", defaultValue = "10") int topN) {
         try {
-            KeywordStatsResponse response = dashboardService.getKeywordStats(timePeriod);
+            KeywordRangeStatsResponse response = dashboardService.getKeywordRangeStats(from, to, granularity, topN);
             return ResponseVo.success(response);
         } catch (IllegalArgumentException e) {
             return ResponseVo.error(org.emotion.detect.enums.ResponseEnum.ERROR, e.getMessage());
@@ -44,16 +98,29 @@ public class DashboardController {
 
     /**
      * Get sentiment chart data for ECharts visualization
-     * Returns all sentiment data for trend analysis
+     * Returns all sentiment data for trend analysis. Supports conditional GET: the ETag is the
+     * chart version, a matching If-None-Match is answered with 304 without querying the database
+     * With since, only the days added or changed after that cursor are returned
+     * @param since cursor of an earlier response, optional
+     * @param ifNoneMatch ETag of the copy the client already has
+     * @param acceptEncoding encodings the client accepts, gzip is served when listed
      * @return response containing sentiment chart data formatted for ECharts
      */
     @GetMapping("/line-chart")
-    public ResponseVo<SentimentChartResponse> getSentimentChartData() {
+    public ResponseEntity<?> getSentimentChartData(
+            @RequestParam(value = "since", required = false) String since,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            SentimentChartResponse response = dashboardService.getSentimentChartData();
-            return ResponseVo.success(response);
+            if (since != null) {
+                return ResponseEntity.ok(ResponseVo.success(dashboardService.getSentimentChartDelta(since)));
+            }
+            return chartPayloadCache.respond("line-chart", chartVersionTracker.getSentimentChartVersion(),
+                    ifNoneMatch, acceptEncoding, () -> ResponseVo.success(dashboardService.getSentimentChartData()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.ok(ResponseVo.error(org.emotion.detect.enums.ResponseEnum.ERROR, e.getMessage()));
         } catch (Exception e) {
-            return ResponseVo.error(org.emotion.detect.enums.ResponseEnum.ERROR, "Error getting sentiment chart data: " + e.getMessage());
+            return ResponseEntity.ok(ResponseVo.error(org.emotion.detect.enums.ResponseEnum.ERROR, "Error getting sentiment chart data: " + e.getMessage()));
         }
     }
 
@@ -76,18 +143,81 @@ public class DashboardController {
         }
     }
 
+    /**
+     * Process a batch of emotions, e.g. a page of user selections collected by the client
+     * Each item may carry a client timestamp; invalid items are reported and skipped
+     * @param emotionRequests the emotions to process
+     * @return response containing per-item validation results
+     */
+    @PostMapping("/process-emotions")
+    public ResponseVo<BatchEmotionResponse> processEmotions(@RequestBody List<EmotionRequest> emotionRequests) {
+        try {
+            BatchEmotionResponse response = dashboardService.processEmotions(emotionRequests);
+            return ResponseVo.success(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseVo.error(org.emotion.detect.enums.ResponseEnum.ERROR, e.getMessage());
+        } catch (Exception e) {
+            return ResponseVo.error(org.emotion.detect.enums.ResponseEnum.ERROR, "Error processing emotions: " + e.getMessage());
+        }
+    }
+
     /**
      * Get twitter sentiment chart data for ECharts visualization
-     * Returns daily sentiment data from twitter_comments_time table
+     * Returns daily sentiment data from twitter_comments_time table, with the same
+     * conditional GET support as the sentiment line chart
+     * @param ifNoneMatch ETag of the copy the client already has
+     * @param acceptEncoding encodings the client accepts, gzip is served when listed
      * @return response containing twitter sentiment chart data formatted for ECharts
      */
     @GetMapping("/twitter-line-chart")
-    public ResponseVo<SentimentChartResponse> getTwitterSentimentChartData() {
+    public ResponseEntity<?> getTwitterSentimentChartData(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        try {
+            return chartPayloadCache.respond("twitter-line-chart", chartVersionTracker.getTwitterChartVersion(),
+                    ifNoneMatch, acceptEncoding, () -> ResponseVo.success(dashboardService.getTwitterSentimentChartData()));
+        } catch (Exception e) {
+            return ResponseEntity.ok(ResponseVo.error(org.emotion.detect.enums.ResponseEnum.ERROR, "Error getting twitter sentiment chart data: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get twitter sentiment counts for a set of countries at a chosen granularity
+     * @param countries comma-separated country codes (e.g. AU,NZ); AU when absent, empty or "all" for all countries
+     * @param granularity bucket size (day, week, month, year)
+     * @return response containing twitter sentiment chart data formatted for ECharts
+     */
+    @GetMapping("/twitter-chart")
+    public ResponseVo<SentimentChartResponse> getTwitterSentimentSlice(
+            @RequestParam(value = "countries", required = false) List<String> countries,
+            @RequestParam(value = "granularity", defaultValue = "year")
+            @Pattern(regexp = "^(day|week|month|year)$", message = "Granularity must be one of: day, week, month, year")
+            String granularity) {
         try {
-            SentimentChartResponse response = dashboardService.getTwitterSentimentChartData();
+            if (countries == null) {
+                countries = Collections.singletonList("AU");
+            } else if (countries.size() == 1 && "all".equalsIgnoreCase(countries.get(0).trim())) {
+                countries = Collections.emptyList();
+            }
+            SentimentChartResponse response = dashboardService.getTwitterSentimentSlice(countries, granularity);
             return ResponseVo.success(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseVo.error(org.emotion.detect.enums.ResponseEnum.ERROR, e.getMessage());
         } catch (Exception e) {
             return ResponseVo.error(org.emotion.detect.enums.ResponseEnum.ERROR, "Error getting twitter sentiment chart data: " + e.getMessage());
         }
     }
+
+    /**
+     * Get hit, miss and eviction counters of the dashboard result cache
+     * @return response containing the cache statistics
+     */
+    @GetMapping("/cache-stats")
+    public ResponseVo<CacheStats> getCacheStats() {
+        try {
+            return ResponseVo.success(dashboardResultCache.getStats());
+        } catch (Exception e) {
+            return ResponseVo.error(org.emotion.detect.enums.ResponseEnum.ERROR, "Error getting cache statistics: " + e.getMessage());
+        }
+    }
 }
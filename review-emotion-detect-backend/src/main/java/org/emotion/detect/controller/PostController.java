@@ -1,14 +1,28 @@
 package org.emotion.detect.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.emotion.detect.classify.ClassificationStats;
+import org.emotion.detect.dto.ClassifyRequest;
+import org.emotion.detect.dto.ClassifyResponse;
+import org.emotion.detect.dto.PostPageResponse;
 import org.emotion.detect.dto.PostRequest;
 import org.emotion.detect.entity.Post;
+import org.emotion.detect.search.PostSearchStats;
 import org.emotion.detect.service.PostService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
@@ -22,6 +36,13 @@ public class PostController {
     @Autowired
     private PostService postService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** Page size when only a cursor is given */
+    @Value("${posts.page.default-limit:50}")
+    private int defaultPageLimit;
+
     /**
      * Create a new anonymous post
      * @param postRequest the post data to create
@@ -32,22 +53,128 @@ public class PostController {
         try {
             Post post = postService.createPost(postRequest);
             return ResponseEntity.status(HttpStatus.CREATED).body(post);
+        } catch (IllegalStateException e) {
+            // Group commit timed out or stopped; the post may still be saved, so no blind retry
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
     /**
-     * Get all anonymous posts
-     * @return response containing list of all posts
+     * Get anonymous posts, newest first
+     * Without parameters all posts are returned as one array. With limit the response is one
+     * keyset page with the cursor of the next one; with stream=true the full array is written
+     * row by row from the database instead of being built in memory first.
+     * @param limit page size, omit for all posts
+     * @param cursor nextCursor of the previous page
+     * @param stream write all posts as they are read
+     * @return response containing the posts
      */
     @GetMapping("/get-all")
-    public ResponseEntity<List<Post>> getAllPosts() {
+    public ResponseEntity<?> getAllPosts(
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "stream", defaultValue = "false") boolean stream) {
         try {
+            if (limit != null || cursor != null) {
+                PostPageResponse page = postService.getPostPage(cursor, limit == null ? defaultPageLimit : limit);
+                return ResponseEntity.ok(page);
+            }
+            if (stream) {
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(streamAllPosts());
+            }
             List<Post> posts = postService.getAllPosts();
             return ResponseEntity.ok(posts);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Search anonymous posts by content
+     * @param query search terms, matched as lowercased words
+     * @param mode and (default) to require every term, or for any term
+     * @param cursor nextCursor of the previous page
+     * @param limit page size
+     * @return response containing one page of matching posts, newest first
+     */
+    @GetMapping("/search")
+    public ResponseEntity<PostPageResponse> searchPosts(
+            @RequestParam("q") String query,
+            @RequestParam(value = "mode", defaultValue = "and") String mode,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            PostPageResponse page = postService.searchPosts(query, mode.toLowerCase(), cursor,
+                    limit == null ? defaultPageLimit : limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    /**
+     * Get size and estimated memory use of the post search index
+     * @return response containing the index statistics
+     */
+    @GetMapping("/search-stats")
+    public ResponseEntity<PostSearchStats> getSearchStats() {
+        return ResponseEntity.ok(postService.getSearchStats());
+    }
+
+    /**
+     * Classify a draft text, e.g. to preview its emotion before posting
+     * Answered by the model service when it is within its latency budget, by the in-JVM
+     * lexicon otherwise
+     * @param classifyRequest the text to classify
+     * @return response containing the emotion labels and sentiment
+     */
+    @PostMapping("/classify")
+    public ResponseEntity<ClassifyResponse> classifyText(@Valid @RequestBody ClassifyRequest classifyRequest) {
+        try {
+            return ResponseEntity.ok(postService.classifyText(classifyRequest.getText()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Get queue depth and throughput of the background post classification
+     * @return response containing the classification statistics
+     */
+    @GetMapping("/classification-stats")
+    public ResponseEntity<ClassificationStats> getClassificationStats() {
+        return ResponseEntity.ok(postService.getClassificationStats());
+    }
+
+    /**
+     * JSON array of all posts, serialized with the application's mapper one post at a time
+     * The database connection is held until the client has read the last row.
+     */
+    private StreamingResponseBody streamAllPosts() {
+        // Flushing is left to the generator's buffer instead of once per post
+        ObjectWriter writer = objectMapper.writerFor(Post.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                postService.forEachPost(post -> {
+                    try {
+                        writer.writeValue(generator, post);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
 }
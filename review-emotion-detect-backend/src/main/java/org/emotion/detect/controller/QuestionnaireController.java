@@ -35,6 +35,19 @@ public class QuestionnaireController {
         }
     }
 
+    /**
+     * Reload the questionnaire pool, e.g. after scenarios_comments was edited
+     * @return response containing the number of comments now in the pool
+     */
+    @PostMapping("/questionnaire/refresh")
+    public ResponseVo<Integer> refreshQuestionnairePool() {
+        try {
+            return ResponseVo.success(questionnaireService.refreshQuestionnairePool());
+        } catch (Exception e) {
+            return ResponseVo.error(org.emotion.detect.enums.ResponseEnum.ERROR, "Error refreshing questionnaire pool: " + e.getMessage());
+        }
+    }
+
     /**
      * Get level feedback based on the user's level
      * @param level the user's level (1-4)
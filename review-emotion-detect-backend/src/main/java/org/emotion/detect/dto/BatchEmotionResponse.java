@@ -0,0 +1,74 @@
+package org.emotion.detect.dto;
+
+import lombok.Data;
+import java.util.List;
+
+/**
+ * DTO class for bulk emotion ingestion response
+ * Contains the overall counts and a validation result for every submitted item
+ */
+@Data
+public class BatchEmotionResponse {
+    /** Number of items that were accepted and recorded */
+    private Integer accepted;
+
+    /** Number of items that were rejected by validation */
+    private Integer rejected;
+
+    /** Per-item results, in the same order as the request array */
+    private List<ItemResult> results;
+
+    // Manual getters and setters for compatibility
+    public Integer getAccepted() { return accepted; }
+    public void setAccepted(Integer accepted) { this.accepted = accepted; }
+
+    public Integer getRejected() { return rejected; }
+    public void setRejected(Integer rejected) { this.rejected = rejected; }
+
+    public List<ItemResult> getResults() { return results; }
+    public void setResults(List<ItemResult> results) { this.results = results; }
+
+    public BatchEmotionResponse() {}
+
+    public BatchEmotionResponse(Integer accepted, Integer rejected, List<ItemResult> results) {
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.results = results;
+    }
+
+    /**
+     * Validation result of a single submitted emotion
+     */
+    @Data
+    public static class ItemResult {
+        /** Position of the item in the request array */
+        private Integer index;
+        /** The submitted emotion keyword */
+        private String emotion;
+        /** Whether the item was accepted */
+        private Boolean accepted;
+        /** Reason for rejection, null when accepted */
+        private String message;
+
+        public Integer getIndex() { return index; }
+        public void setIndex(Integer index) { this.index = index; }
+
+        public String getEmotion() { return emotion; }
+        public void setEmotion(String emotion) { this.emotion = emotion; }
+
+        public Boolean getAccepted() { return accepted; }
+        public void setAccepted(Boolean accepted) { this.accepted = accepted; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+
+        public ItemResult() {}
+
+        public ItemResult(Integer index, String emotion, Boolean accepted, String message) {
+            this.index = index;
+            this.emotion = emotion;
+            this.accepted = accepted;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.emotion.detect.dto;
+
+import lombok.Data;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+
+/**
+ * DTO class for classifying a draft text before it is posted
+ */
+@Data
+public class ClassifyRequest {
+    /** Text to classify */
+    @NotBlank(message = "Text cannot be empty")
+    @Size(max = 5000, message = "Text cannot exceed 5000 characters")
+    private String text;
+
+    // Manual getters and setters for compatibility
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+}
@@ -0,0 +1,31 @@
+package org.emotion.detect.dto;
+
+import lombok.Data;
+import org.emotion.detect.classify.EmotionScore;
+
+import java.util.List;
+
+/**
+ * DTO class for the emotion labels of a draft text
+ */
+@Data
+public class ClassifyResponse {
+    /** Fine emotion labels, highest score first */
+    private List<EmotionScore> labels;
+    /** Sentiment of the top label: positive, negative or neutral */
+    private String sentiment;
+
+    // Manual getters and setters for compatibility
+    public List<EmotionScore> getLabels() { return labels; }
+    public void setLabels(List<EmotionScore> labels) { this.labels = labels; }
+
+    public String getSentiment() { return sentiment; }
+    public void setSentiment(String sentiment) { this.sentiment = sentiment; }
+
+    public ClassifyResponse() {}
+
+    public ClassifyResponse(List<EmotionScore> labels, String sentiment) {
+        this.labels = labels;
+        this.sentiment = sentiment;
+    }
+}
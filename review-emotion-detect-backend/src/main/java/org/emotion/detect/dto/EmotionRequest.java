@@ -2,6 +2,7 @@ package org.emotion.detect.dto;
 
 import lombok.Data;
 import javax.validation.constraints.NotBlank;
+import java.time.LocalDateTime;
 
 /**
  * DTO class for emotion analysis request
@@ -13,10 +14,16 @@ public class EmotionRequest {
     @NotBlank(message = "Emotion cannot be empty")
     private String emotion;
 
+    /** Optional client-side time of the selection, used by the bulk endpoint (e.g. 2024-09-10T14:30:00) */
+    private LocalDateTime timestamp;
+
     // Manual getters and setters for compatibility
     public String getEmotion() { return emotion; }
     public void setEmotion(String emotion) { this.emotion = emotion; }
 
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+
     public EmotionRequest() {}
 
     public EmotionRequest(String emotion) {
@@ -0,0 +1,78 @@
+package org.emotion.detect.dto;
+
+import lombok.Data;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO class for keyword statistics over an explicit date range
+ * Contains the top keywords of the whole range and of every calendar-aligned bucket
+ */
+@Data
+public class KeywordRangeStatsResponse {
+    /** Start of the range after alignment to the granularity (inclusive, ISO date-time) */
+    private String from;
+
+    /** End of the range after alignment to the granularity (exclusive, ISO date-time) */
+    private String to;
+
+    /** Bucket granularity (hour, day, week, month) */
+    private String granularity;
+
+    /** Top keywords of the whole range, sorted by count descending */
+    private Map<String, Integer> keywordStats;
+
+    /** Top keywords per bucket, oldest bucket first */
+    private List<Bucket> buckets;
+
+    // Manual getters and setters for compatibility
+    public String getFrom() { return from; }
+    public void setFrom(String from) { this.from = from; }
+
+    public String getTo() { return to; }
+    public void setTo(String to) { this.to = to; }
+
+    public String getGranularity() { return granularity; }
+    public void setGranularity(String granularity) { this.granularity = granularity; }
+
+    public Map<String, Integer> getKeywordStats() { return keywordStats; }
+    public void setKeywordStats(Map<String, Integer> keywordStats) { this.keywordStats = keywordStats; }
+
+    public List<Bucket> getBuckets() { return buckets; }
+    public void setBuckets(List<Bucket> buckets) { this.buckets = buckets; }
+
+    public KeywordRangeStatsResponse() {}
+
+    public KeywordRangeStatsResponse(String from, String to, String granularity,
+                                     Map<String, Integer> keywordStats, List<Bucket> buckets) {
+        this.from = from;
+        this.to = to;
+        this.granularity = granularity;
+        this.keywordStats = keywordStats;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Top keywords of one bucket
+     */
+    @Data
+    public static class Bucket {
+        /** Start of the bucket (inclusive, ISO date-time) */
+        private String start;
+        /** Top keywords of the bucket, sorted by count descending */
+        private Map<String, Integer> keywordStats;
+
+        public String getStart() { return start; }
+        public void setStart(String start) { this.start = start; }
+
+        public Map<String, Integer> getKeywordStats() { return keywordStats; }
+        public void setKeywordStats(Map<String, Integer> keywordStats) { this.keywordStats = keywordStats; }
+
+        public Bucket() {}
+
+        public Bucket(String start, Map<String, Integer> keywordStats) {
+            this.start = start;
+            this.keywordStats = keywordStats;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.emotion.detect.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import java.util.Map;
 
@@ -18,6 +19,22 @@ public class KeywordStatsResponse {
     /** Total number of keywords analyzed */
     private Integer totalKeywords;
 
+    /** "approx" when the counts come from keyword sketches, omitted for exact counts */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String accuracy;
+
+    /** Approximate mode: the true count of each keyword lies in [lowerBound, count] */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, Integer> lowerBounds;
+
+    /** Approximate mode: upper bound for the count of any keyword not listed */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long unlistedBound;
+
+    /** Approximate mode: probability that the Count-Min part of the bounds holds */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double confidence;
+
     // Manual getters and setters for compatibility
     public Map<String, Integer> getKeywordStats() { return keywordStats; }
     public void setKeywordStats(Map<String, Integer> keywordStats) { this.keywordStats = keywordStats; }
@@ -28,6 +45,18 @@ public class KeywordStatsResponse {
     public Integer getTotalKeywords() { return totalKeywords; }
     public void setTotalKeywords(Integer totalKeywords) { this.totalKeywords = totalKeywords; }
 
+    public String getAccuracy() { return accuracy; }
+    public void setAccuracy(String accuracy) { this.accuracy = accuracy; }
+
+    public Map<String, Integer> getLowerBounds() { return lowerBounds; }
+    public void setLowerBounds(Map<String, Integer> lowerBounds) { this.lowerBounds = lowerBounds; }
+
+    public Long getUnlistedBound() { return unlistedBound; }
+    public void setUnlistedBound(Long unlistedBound) { this.unlistedBound = unlistedBound; }
+
+    public Double getConfidence() { return confidence; }
+    public void setConfidence(Double confidence) { this.confidence = confidence; }
+
     public KeywordStatsResponse() {}
 
     public KeywordStatsResponse(Map<String, Integer> keywordStats, String timePeriod, Integer totalKeywords) {
@@ -0,0 +1,34 @@
+package org.emotion.detect.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import org.emotion.detect.entity.Post;
+
+import java.util.List;
+
+/**
+ * DTO class for one page of anonymous posts
+ * Pass nextCursor back as cursor to get the following page
+ */
+@Data
+public class PostPageResponse {
+    /** Posts of this page, newest first */
+    private List<Post> posts;
+    /** Cursor of the next page, omitted on the last page */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
+    // Manual getters and setters for compatibility
+    public List<Post> getPosts() { return posts; }
+    public void setPosts(List<Post> posts) { this.posts = posts; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public PostPageResponse() {}
+
+    public PostPageResponse(List<Post> posts, String nextCursor) {
+        this.posts = posts;
+        this.nextCursor = nextCursor;
+    }
+}
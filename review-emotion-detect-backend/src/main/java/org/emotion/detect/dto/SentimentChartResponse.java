@@ -1,7 +1,7 @@
 package org.emotion.detect.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
-import java.util.List;
 
 /**
  * DTO class for sentiment chart response
@@ -9,31 +9,37 @@ import java.util.List;
  */
 @Data
 public class SentimentChartResponse {
-    /** List of dates in format suitable for ECharts (e.g., ["2024.9.10", "2024.9.11", "2024.9.12"]) */
-    private List<String> date;
-    /** List of negative sentiment counts for each date */
-    private List<Integer> negative;
-    /** List of positive sentiment counts for each date */
-    private List<Integer> positive;
-    /** List of neutral sentiment counts for each date */
-    private List<Integer> neutral;
+    /** Dates in format suitable for ECharts (e.g., ["2024.9.10", "2024.9.11", "2024.9.12"]) */
+    private String[] date;
+    /** Negative sentiment counts for each date */
+    private int[] negative;
+    /** Positive sentiment counts for each date */
+    private int[] positive;
+    /** Neutral sentiment counts for each date */
+    private int[] neutral;
+    /** Pass as since to get only the days changed after this response, omitted where unsupported */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String cursor;
 
     // Manual getters and setters for compatibility
-    public List<String> getDate() { return date; }
-    public void setDate(List<String> date) { this.date = date; }
+    public String[] getDate() { return date; }
+    public void setDate(String[] date) { this.date = date; }
 
-    public List<Integer> getNegative() { return negative; }
-    public void setNegative(List<Integer> negative) { this.negative = negative; }
+    public int[] getNegative() { return negative; }
+    public void setNegative(int[] negative) { this.negative = negative; }
 
-    public List<Integer> getPositive() { return positive; }
-    public void setPositive(List<Integer> positive) { this.positive = positive; }
+    public int[] getPositive() { return positive; }
+    public void setPositive(int[] positive) { this.positive = positive; }
 
-    public List<Integer> getNeutral() { return neutral; }
-    public void setNeutral(List<Integer> neutral) { this.neutral = neutral; }
+    public int[] getNeutral() { return neutral; }
+    public void setNeutral(int[] neutral) { this.neutral = neutral; }
+
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
 
     public SentimentChartResponse() {}
 
-    public SentimentChartResponse(List<String> date, List<Integer> negative, List<Integer> positive, List<Integer> neutral) {
+    public SentimentChartResponse(String[] date, int[] negative, int[] positive, int[] neutral) {
         this.date = date;
         this.negative = negative;
         this.positive = positive;
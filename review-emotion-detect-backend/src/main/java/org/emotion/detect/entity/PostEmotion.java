@@ -0,0 +1,48 @@
+package org.emotion.detect.entity;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Entity class for post_emotions table
+ * The top emotion label the model assigned to an anonymous post
+ */
+@Data
+public class PostEmotion {
+    /** ID of the classified post */
+    private Integer postId;
+    /** Top fine emotion label */
+    private String label;
+    /** Model score of the label */
+    private Double score;
+    /** Sentiment of the label (positive, negative, neutral) */
+    private String sentiment;
+    /** Timestamp when the post was classified */
+    private LocalDateTime classifiedAt;
+
+    // Manual getters and setters for compatibility
+    public Integer getPostId() { return postId; }
+    public void setPostId(Integer postId) { this.postId = postId; }
+
+    public String getLabel() { return label; }
+    public void setLabel(String label) { this.label = label; }
+
+    public Double getScore() { return score; }
+    public void setScore(Double score) { this.score = score; }
+
+    public String getSentiment() { return sentiment; }
+    public void setSentiment(String sentiment) { this.sentiment = sentiment; }
+
+    public LocalDateTime getClassifiedAt() { return classifiedAt; }
+    public void setClassifiedAt(LocalDateTime classifiedAt) { this.classifiedAt = classifiedAt; }
+
+    public PostEmotion() {}
+
+    public PostEmotion(Integer postId, String label, Double score, String sentiment, LocalDateTime classifiedAt) {
+        this.postId = postId;
+        this.label = label;
+        this.score = score;
+        this.sentiment = sentiment;
+        this.classifiedAt = classifiedAt;
+    }
+}
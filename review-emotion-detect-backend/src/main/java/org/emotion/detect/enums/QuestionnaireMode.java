@@ -0,0 +1,49 @@
+package org.emotion.detect.enums;
+
+/**
+ * Questionnaire difficulty modes
+ * Each mode fixes the number of questions and the labels its items are spread across: the
+ * shorter modes cover the Ekman categories, Advanced covers the fine labels
+ */
+public enum QuestionnaireMode {
+
+    EASY(7, false),
+
+    STANDARD(15, false),
+
+    ADVANCED(25, true);
+
+    /** Number of questions */
+    private final int questionCount;
+    /** Spread items across fine labels instead of Ekman categories */
+    private final boolean byFineLabel;
+
+    QuestionnaireMode(int questionCount, boolean byFineLabel) {
+        this.questionCount = questionCount;
+        this.byFineLabel = byFineLabel;
+    }
+
+    public int getQuestionCount() {
+        return questionCount;
+    }
+
+    public boolean isByFineLabel() {
+        return byFineLabel;
+    }
+
+    /**
+     * Parse a mode name, ignoring case
+     * @param mode "Easy", "Standard" or "Advanced"
+     * @return the mode
+     */
+    public static QuestionnaireMode of(String mode) {
+        if (mode != null) {
+            for (QuestionnaireMode value : values()) {
+                if (value.name().equalsIgnoreCase(mode)) {
+                    return value;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid mode: " + mode + ". Valid modes are: Easy, Standard, Advanced");
+    }
+}
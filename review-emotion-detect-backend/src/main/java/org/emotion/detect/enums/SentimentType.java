@@ -1,7 +1,9 @@
 package org.emotion.detect.enums;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Simple enum for emotion sentiment classification
@@ -12,7 +14,7 @@ public enum SentimentType {
     POSITIVE("positive", Arrays.asList(
         "joy", "excitement", "love", "admiration", "amusement", "approval", 
         "gratitude", "pride", "relief", "optimism", "caring", "curiosity", 
-        "surprise", "realization"
+        "surprise", "realization", "desire", "confusion"
     )),
     
     NEGATIVE("negative", Arrays.asList(
@@ -27,6 +29,17 @@ public enum SentimentType {
     private final String value;
     private final List<String> emotions;
     
+    /** Emotion -> sentiment index, built once instead of scanning every list per call */
+    private static final Map<String, SentimentType> BY_EMOTION = new HashMap<>();
+    
+    static {
+        for (SentimentType type : values()) {
+            for (String emotion : type.emotions) {
+                BY_EMOTION.put(emotion, type);
+            }
+        }
+    }
+    
     SentimentType(String value, List<String> emotions) {
         this.value = value;
         this.emotions = emotions;
@@ -42,6 +55,8 @@ public enum SentimentType {
     
     /**
      * Get sentiment type for a given emotion
+     * Request paths use {@link org.emotion.detect.taxonomy.EmotionTaxonomy}, which can be
+     * reloaded and does not allocate per lookup
      * @param emotion the emotion to classify
      * @return the sentiment type as string, or "neutral" if not found
      */
@@ -50,15 +65,8 @@ public enum SentimentType {
             return "neutral";
         }
         
-        String lowerEmotion = emotion.toLowerCase();
-        
-        for (SentimentType type : SentimentType.values()) {
-            if (type.emotions.contains(lowerEmotion)) {
-                return type.value;
-            }
-        }
-        
-        return "neutral";
+        SentimentType type = BY_EMOTION.get(emotion.toLowerCase());
+        return type != null ? type.value : "neutral";
     }
 }
 
@@ -0,0 +1,117 @@
+package org.emotion.detect.ingest;
+
+import org.emotion.detect.entity.DailyKeyword;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A group of emotion events pre-aggregated for writing
+ * Keyword rows are kept one per event (daily_keywords stores raw events), sentiment
+ * counts are summed per day so each affected day costs a single upsert
+ */
+public class EmotionBatch {
+
+    /** Sentiment slots of the per-day count arrays, in {positive, negative, neutral} order */
+    public static final int POSITIVE = 0;
+    public static final int NEGATIVE = 1;
+    public static final int NEUTRAL = 2;
+
+    private final List<DailyKeyword> keywords = new ArrayList<>();
+
+    private final Map<LocalDate, int[]> sentimentCounts = new HashMap<>();
+
+    /**
+     * Add one emotion event
+     * @param keyword the emotion keyword
+     * @param recordedAt when the event happened
+     * @param sentimentType the sentiment type of the keyword (positive, negative, neutral)
+     */
+    public void add(String keyword, LocalDateTime recordedAt, String sentimentType) {
+        addKeyword(keyword, recordedAt, 1);
+        addSentiment(recordedAt.toLocalDate(), sentimentSlot(sentimentType), 1);
+    }
+
+    /**
+     * Add keyword rows without touching the sentiment counts
+     * @param keyword the emotion keyword
+     * @param recordedAt record date of the rows
+     * @param count number of rows to add
+     */
+    public void addKeyword(String keyword, LocalDateTime recordedAt, long count) {
+        for (long i = 0; i < count; i++) {
+            keywords.add(new DailyKeyword(null, keyword, recordedAt));
+        }
+    }
+
+    /**
+     * Add to the sentiment count of a day
+     * @param day the day
+     * @param slot one of POSITIVE, NEGATIVE, NEUTRAL
+     * @param count the increment
+     */
+    public void addSentiment(LocalDate day, int slot, long count) {
+        sentimentCounts.computeIfAbsent(day, d -> new int[3])[slot] += (int) count;
+    }
+
+    public boolean isEmpty() {
+        return keywords.isEmpty() && sentimentCounts.isEmpty();
+    }
+
+    /**
+     * @return keyword rows to insert into daily_keywords
+     */
+    public List<DailyKeyword> getKeywords() {
+        return Collections.unmodifiableList(keywords);
+    }
+
+    /**
+     * @return keyword counts per hour bucket, for the keyword window and sketches
+     */
+    public Map<LocalDateTime, Map<String, Integer>> getKeywordCountsByHour() {
+        Map<LocalDateTime, Map<String, Integer>> result = new HashMap<>();
+        for (DailyKeyword keyword : keywords) {
+            result.computeIfAbsent(keyword.getRecordDate().truncatedTo(ChronoUnit.HOURS), hour -> new HashMap<>())
+                    .merge(keyword.getKeyword(), 1, Integer::sum);
+        }
+        return result;
+    }
+
+    /**
+     * @return sentiment increments per day as {positive, negative, neutral}
+     */
+    public Map<LocalDate, int[]> getSentimentCounts() {
+        return Collections.unmodifiableMap(sentimentCounts);
+    }
+
+    /**
+     * @return sentiment increments keyed by SQL date, as the repository expects them
+     */
+    public Map<java.sql.Date, int[]> getSentimentCountsBySqlDate() {
+        Map<java.sql.Date, int[]> result = new HashMap<>();
+        sentimentCounts.forEach((day, counts) -> result.put(java.sql.Date.valueOf(day), counts));
+        return result;
+    }
+
+    /**
+     * Map a sentiment type string to its count slot
+     * @param sentimentType positive, negative or neutral (anything else counts as neutral)
+     * @return the slot index
+     */
+    public static int sentimentSlot(String sentimentType) {
+        switch (sentimentType.toLowerCase()) {
+            case "positive":
+                return POSITIVE;
+            case "negative":
+                return NEGATIVE;
+            default:
+                return NEUTRAL;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.emotion.detect.ingest;
+
+import org.emotion.detect.repository.DashboardRepository;
+import org.emotion.detect.stats.KeywordWindowCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes pre-aggregated emotion batches to daily_keywords and sentiment_summary
+ * One batched keyword insert plus one upsert per affected day, in a single transaction.
+ * The keyword rollups and the keyword sketches built from them are updated later, off the
+ * ingest path, by KeywordRollupCompactor and KeywordSketchStore. Once it commits the
+ * in-memory keyword window is updated and an EmotionBatchWrittenEvent is published.
+ */
+@Component
+public class EmotionBatchWriter {
+
+    @Autowired
+    private DashboardRepository dashboardRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private IngestBarrier ingestBarrier;
+
+    @Autowired
+    private KeywordWindowCounter keywordWindowCounter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Write a batch; keyword rows and sentiment counts commit or roll back together
+     * @param batch the batch to write
+     */
+    public void write(EmotionBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        ingestBarrier.write(() -> {
+            transactionTemplate.executeWithoutResult(status -> {
+                dashboardRepository.batchInsertEmotionKeywords(batch.getKeywords());
+                dashboardRepository.batchUpsertSentimentCounts(batch.getSentimentCountsBySqlDate());
+            });
+            keywordWindowCounter.record(batch);
+        });
+        eventPublisher.publishEvent(new EmotionBatchWrittenEvent(batch));
+    }
+}
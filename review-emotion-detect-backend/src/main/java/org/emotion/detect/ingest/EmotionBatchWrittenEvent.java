@@ -0,0 +1,21 @@
+package org.emotion.detect.ingest;
+
+/**
+ * Published by EmotionBatchWriter after a batch has been committed
+ * Lets readers of daily_keywords and sentiment_summary drop derived state for the affected times
+ */
+public class EmotionBatchWrittenEvent {
+
+    private final EmotionBatch batch;
+
+    public EmotionBatchWrittenEvent(EmotionBatch batch) {
+        this.batch = batch;
+    }
+
+    /**
+     * @return the committed batch
+     */
+    public EmotionBatch getBatch() {
+        return batch;
+    }
+}
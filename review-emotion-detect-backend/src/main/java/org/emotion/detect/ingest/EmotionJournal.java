@@ -0,0 +1,424 @@
+package org.emotion.detect.ingest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Durable local journal for emotion events
+ * Events are appended to memory-mapped segment files and acknowledged once they are in
+ * the journal; {@link EmotionJournalReplayer} drains them into the database later, so a
+ * slow or unreachable MySQL no longer loses events or slows down ingestion.
+ *
+ * Segment layout: a sequence of frames [int length][int crc32][payload], where the payload
+ * is [long epoch millis][byte sentiment slot][UTF-8 keyword]. Segments are preallocated and
+ * zero-filled, so a zero length marks the end of the written data. Disabled unless
+ * dashboard.journal.enabled=true
+ */
+@Component
+public class EmotionJournal {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    /** Frame header: payload length and CRC32 of the payload */
+    private static final int FRAME_HEADER_BYTES = 8;
+    /** Payload bytes before the keyword: epoch millis and sentiment slot */
+    private static final int PAYLOAD_FIXED_BYTES = 9;
+
+    @Value("${dashboard.journal.enabled:false}")
+    private boolean enabled;
+
+    @Value("${dashboard.journal.dir:./data/emotion-journal}")
+    private String dir;
+
+    @Value("${dashboard.journal.segment-size-bytes:8388608}")
+    private int segmentSizeBytes;
+
+    /** Force appended frames to disk before acknowledging them */
+    @Value("${dashboard.journal.force-on-append:true}")
+    private boolean forceOnAppend;
+
+    private Path directory;
+
+    private long activeSegmentId;
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeBuffer;
+
+    /** End of the durable data, published after every append for the replayer */
+    private volatile Position writePosition;
+
+    /** Read-only mapping of the sealed segment the replayer is currently draining */
+    private long readSegmentId = -1;
+    private MappedByteBuffer readBuffer;
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        directory = Paths.get(dir);
+        Files.createDirectories(directory);
+
+        TreeSet<Long> segmentIds = listSegmentIds();
+        activeSegmentId = segmentIds.isEmpty() ? readCheckpoint().getSegmentId() : segmentIds.last();
+        mapActiveSegment();
+        int offset = recoverWriteOffset(activeBuffer);
+        writePosition = new Position(activeSegmentId, offset);
+        System.out.println("Emotion journal opened at " + directory.toAbsolutePath()
+                + ", active segment " + activeSegmentId + ", offset " + offset);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (activeChannel == null) {
+            return;
+        }
+        activeBuffer.force();
+        activeChannel.close();
+        activeChannel = null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Append a single event
+     * @param keyword the emotion keyword
+     * @param recordedAt when the event happened
+     * @param sentimentSlot sentiment slot as defined by {@link EmotionBatch}
+     */
+    public void append(String keyword, LocalDateTime recordedAt, int sentimentSlot) throws IOException {
+        append(Collections.singletonList(new Entry(keyword, recordedAt, sentimentSlot)));
+    }
+
+    /**
+     * Append events; they are durable (with force-on-append) once this method returns
+     * Every entry is encoded and checked before the first frame is written, so a rejected
+     * batch leaves the journal untouched. A batch that spans segments publishes the end of
+     * each segment it seals; if opening the next segment fails, the published prefix stays
+     * in the journal and the active segment and offset remain those of that prefix.
+     * @param entries the events to append
+     */
+    public synchronized void append(List<Entry> entries) throws IOException {
+        if (!enabled) {
+            throw new IllegalStateException("Emotion journal is disabled");
+        }
+        List<byte[]> payloads = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            byte[] payload = encode(entry);
+            if (FRAME_HEADER_BYTES + payload.length > segmentSizeBytes) {
+                throw new IllegalArgumentException("Emotion keyword too long for the journal: " + entry.getKeyword());
+            }
+            payloads.add(payload);
+        }
+
+        int offset = writePosition.getOffset();
+        for (byte[] payload : payloads) {
+            int frameBytes = FRAME_HEADER_BYTES + payload.length;
+            if (offset + frameBytes > segmentSizeBytes) {
+                // Seal the current segment; its zero-filled tail marks the end
+                activeBuffer.force();
+                writePosition = new Position(activeSegmentId, offset);
+                rollActiveSegment();
+                offset = 0;
+                writePosition = new Position(activeSegmentId, offset);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer frame = activeBuffer.duplicate();
+            frame.position(offset + 4);
+            frame.putInt((int) crc.getValue());
+            frame.put(payload);
+            // Length goes in last, a frame is only visible once it is complete
+            activeBuffer.putInt(offset, payload.length);
+            offset += frameBytes;
+        }
+        if (forceOnAppend) {
+            activeBuffer.force();
+        }
+        writePosition = new Position(activeSegmentId, offset);
+    }
+
+    /**
+     * Read events starting at a position
+     * @param from position to start at, usually the last checkpoint
+     * @param maxEntries maximum number of events to return
+     * @return the events read and the position right after the last one
+     */
+    public synchronized ReadResult read(Position from, int maxEntries) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        Position end = writePosition;
+        long segmentId = from.getSegmentId();
+        int offset = from.getOffset();
+
+        while (entries.size() < maxEntries) {
+            if (segmentId > end.getSegmentId() || (segmentId == end.getSegmentId() && offset >= end.getOffset())) {
+                break;
+            }
+            ByteBuffer segment = segmentForRead(segmentId);
+            int limit = segment == null ? 0 : segmentId == end.getSegmentId() ? end.getOffset() : segment.capacity();
+            if (segment == null || offset + FRAME_HEADER_BYTES > limit || segment.getInt(offset) <= 0) {
+                // End of a sealed (or missing) segment, continue with the next one
+                segmentId = nextSegmentId(segmentId, end.getSegmentId());
+                offset = 0;
+                continue;
+            }
+            int length = segment.getInt(offset);
+            if (offset + FRAME_HEADER_BYTES + length > limit) {
+                segmentId = nextSegmentId(segmentId, end.getSegmentId());
+                offset = 0;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            ByteBuffer view = segment.duplicate();
+            view.position(offset + FRAME_HEADER_BYTES);
+            view.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != segment.getInt(offset + 4)) {
+                System.err.println("Emotion journal: corrupt frame in segment " + segmentId + " at " + offset + ", skipping rest of segment");
+                segmentId = nextSegmentId(segmentId, end.getSegmentId());
+                offset = 0;
+                continue;
+            }
+            entries.add(decode(payload));
+            offset += FRAME_HEADER_BYTES + length;
+        }
+        return new ReadResult(entries, new Position(segmentId, offset));
+    }
+
+    /**
+     * Load the replay checkpoint
+     * @return the last checkpointed position, or the start of segment 0
+     */
+    public Position readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return new Position(0, 0);
+        }
+        String[] parts = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim().split(":");
+        return new Position(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+    }
+
+    /**
+     * Persist the replay checkpoint atomically and drop segments that are fully replayed
+     * @param position position up to which events have been written to the database
+     */
+    public synchronized void writeCheckpoint(Position position) throws IOException {
+        Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.write(tmp, (position.getSegmentId() + ":" + position.getOffset()).getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.SYNC);
+        Files.move(tmp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (Long segmentId : listSegmentIds()) {
+            if (segmentId < position.getSegmentId() && segmentId < activeSegmentId) {
+                if (segmentId == readSegmentId) {
+                    readSegmentId = -1;
+                    readBuffer = null;
+                }
+                Files.deleteIfExists(segmentPath(segmentId));
+            }
+        }
+    }
+
+    private void mapActiveSegment() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(segmentPath(activeSegmentId).toFile(), "rw");
+        try {
+            if (file.length() < segmentSizeBytes) {
+                file.setLength(segmentSizeBytes);
+            }
+            activeBuffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSizeBytes);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+        activeChannel = file.getChannel();
+    }
+
+    /**
+     * Switch to the next segment; the sealed one is only closed once the next one is mapped,
+     * so a failure keeps the current segment active
+     */
+    private void rollActiveSegment() throws IOException {
+        FileChannel sealedChannel = activeChannel;
+        MappedByteBuffer sealedBuffer = activeBuffer;
+        activeSegmentId++;
+        try {
+            mapActiveSegment();
+        } catch (IOException | RuntimeException e) {
+            activeSegmentId--;
+            activeChannel = sealedChannel;
+            activeBuffer = sealedBuffer;
+            throw e;
+        }
+        sealedChannel.close();
+    }
+
+    /**
+     * Find the end of valid data in a segment and zero out whatever a crash left behind it,
+     * so the next frames are not followed by stale bytes
+     */
+    private int recoverWriteOffset(MappedByteBuffer segment) {
+        int offset = 0;
+        while (offset + FRAME_HEADER_BYTES <= segment.capacity()) {
+            int length = segment.getInt(offset);
+            if (length <= 0 || offset + FRAME_HEADER_BYTES + length > segment.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            ByteBuffer view = segment.duplicate();
+            view.position(offset + FRAME_HEADER_BYTES);
+            view.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != segment.getInt(offset + 4)) {
+                break;
+            }
+            offset += FRAME_HEADER_BYTES + length;
+        }
+        for (int i = offset; i < segment.capacity(); i++) {
+            if (segment.get(i) != 0) {
+                segment.put(i, (byte) 0);
+            }
+        }
+        return offset;
+    }
+
+    private ByteBuffer segmentForRead(long segmentId) throws IOException {
+        if (segmentId == activeSegmentId) {
+            return activeBuffer;
+        }
+        if (segmentId != readSegmentId) {
+            Path path = segmentPath(segmentId);
+            if (!Files.exists(path)) {
+                return null;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                readBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            readSegmentId = segmentId;
+        }
+        return readBuffer;
+    }
+
+    private long nextSegmentId(long segmentId, long lastSegmentId) throws IOException {
+        for (Long id : listSegmentIds()) {
+            if (id > segmentId) {
+                return id;
+            }
+        }
+        return lastSegmentId > segmentId ? lastSegmentId : segmentId + 1;
+    }
+
+    private TreeSet<Long> listSegmentIds() throws IOException {
+        TreeSet<Long> ids = new TreeSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        return ids;
+    }
+
+    private Path segmentPath(long segmentId) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+    private static byte[] encode(Entry entry) {
+        byte[] keyword = entry.getKeyword().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(PAYLOAD_FIXED_BYTES + keyword.length)
+                .putLong(entry.getRecordedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                .put((byte) entry.getSentimentSlot())
+                .put(keyword)
+                .array();
+    }
+
+    private static Entry decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long epochMillis = buffer.getLong();
+        int slot = buffer.get();
+        String keyword = new String(payload, PAYLOAD_FIXED_BYTES, payload.length - PAYLOAD_FIXED_BYTES, StandardCharsets.UTF_8);
+        return new Entry(keyword, LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()), slot);
+    }
+
+    /**
+     * A journaled emotion event
+     */
+    public static class Entry {
+        private final String keyword;
+        private final LocalDateTime recordedAt;
+        private final int sentimentSlot;
+
+        public Entry(String keyword, LocalDateTime recordedAt, int sentimentSlot) {
+            this.keyword = keyword;
+            this.recordedAt = recordedAt;
+            this.sentimentSlot = sentimentSlot;
+        }
+
+        public String getKeyword() { return keyword; }
+
+        public LocalDateTime getRecordedAt() { return recordedAt; }
+
+        public int getSentimentSlot() { return sentimentSlot; }
+    }
+
+    /**
+     * A position in the journal: segment id and byte offset within the segment
+     */
+    public static class Position {
+        private final long segmentId;
+        private final int offset;
+
+        public Position(long segmentId, int offset) {
+            this.segmentId = segmentId;
+            this.offset = offset;
+        }
+
+        public long getSegmentId() { return segmentId; }
+
+        public int getOffset() { return offset; }
+    }
+
+    /**
+     * Events returned by {@link #read(Position, int)} and where the next read should start
+     */
+    public static class ReadResult {
+        private final List<Entry> entries;
+        private final Position next;
+
+        public ReadResult(List<Entry> entries, Position next) {
+            this.entries = entries;
+            this.next = next;
+        }
+
+        public List<Entry> getEntries() { return entries; }
+
+        public Position getNext() { return next; }
+    }
+}
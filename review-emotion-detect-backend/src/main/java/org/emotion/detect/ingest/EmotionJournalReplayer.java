@@ -0,0 +1,117 @@
+package org.emotion.detect.ingest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background replayer that drains the emotion journal into the database
+ * Reads journaled events from the last checkpoint, writes them as one EmotionBatch
+ * (daily_keywords plus sentiment_summary, one transaction) and then advances the checkpoint.
+ * Delivery is at-least-once: a crash between the database commit and the checkpoint write
+ * replays that batch again after restart.
+ * Nothing injects this bean, so it is created eagerly even with lazy initialization on;
+ * otherwise journaled events would never reach the database.
+ */
+@Component
+@Lazy(false)
+public class EmotionJournalReplayer {
+
+    @Autowired
+    private EmotionJournal emotionJournal;
+
+    @Autowired
+    private EmotionBatchWriter emotionBatchWriter;
+
+    /** Pause between replay rounds, also the retry delay while the database is down */
+    @Value("${dashboard.journal.replay-interval-ms:500}")
+    private long replayIntervalMs;
+
+    /** Maximum number of events written per database transaction */
+    @Value("${dashboard.journal.replay-batch-size:1000}")
+    private int replayBatchSize;
+
+    private ScheduledExecutorService scheduler;
+
+    private EmotionJournal.Position checkpoint;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!emotionJournal.isEnabled()) {
+            return;
+        }
+        checkpoint = emotionJournal.readCheckpoint();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "emotion-journal-replayer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::replayQuietly, 0, replayIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop replaying and make a last attempt to drain the journal
+     * Whatever is left stays in the journal and is replayed after the next start
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        replayQuietly();
+    }
+
+    /**
+     * Replay everything journaled since the last checkpoint
+     * @return number of events written to the database
+     */
+    public synchronized int replay() throws IOException {
+        int replayed = 0;
+        while (true) {
+            EmotionJournal.ReadResult result = emotionJournal.read(checkpoint, replayBatchSize);
+            if (!result.getEntries().isEmpty()) {
+                EmotionBatch batch = new EmotionBatch();
+                for (EmotionJournal.Entry entry : result.getEntries()) {
+                    batch.addKeyword(entry.getKeyword(), entry.getRecordedAt(), 1);
+                    batch.addSentiment(entry.getRecordedAt().toLocalDate(), entry.getSentimentSlot(), 1);
+                }
+                emotionBatchWriter.write(batch);
+                replayed += result.getEntries().size();
+            }
+            EmotionJournal.Position next = result.getNext();
+            if (next.getSegmentId() != checkpoint.getSegmentId() || next.getOffset() != checkpoint.getOffset()) {
+                emotionJournal.writeCheckpoint(next);
+                checkpoint = next;
+            }
+            if (result.getEntries().size() < replayBatchSize) {
+                break;
+            }
+        }
+        if (replayed > 0) {
+            System.out.println("Replayed emotion journal: " + replayed + " events");
+        }
+        return replayed;
+    }
+
+    private void replayQuietly() {
+        try {
+            replay();
+        } catch (Exception e) {
+            System.err.println("Error replaying emotion journal, will retry: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.emotion.detect.ingest;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Lets readers take a consistent cut of the emotion writes of this process
+ * EmotionBatchWriter runs every write (transaction plus in-memory updates) inside write();
+ * writes share the lock, so they do not wait for each other. quiesced() runs an action
+ * while no write is in progress: every daily_keywords id the database has handed out is
+ * then committed, and every committed batch has been counted in memory.
+ */
+@Component
+public class IngestBarrier {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Writes completed so far, lets a reader skip a cut when nothing was written since the last one */
+    private final AtomicLong completedWrites = new AtomicLong();
+
+    /**
+     * Run a write
+     * @param write the write, including whatever must be done before a cut may be taken
+     */
+    public void write(Runnable write) {
+        lock.readLock().lock();
+        try {
+            write.run();
+        } finally {
+            completedWrites.incrementAndGet();
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Run an action while no write is in progress; new writes wait until it returns
+     * @param action the action, should be a short read
+     * @return the action's result
+     */
+    public <T> T quiesced(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of writes completed, successful or not
+     */
+    public long getCompletedWrites() {
+        return completedWrites.get();
+    }
+}
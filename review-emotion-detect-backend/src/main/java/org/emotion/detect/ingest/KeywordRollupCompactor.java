@@ -0,0 +1,134 @@
+package org.emotion.detect.ingest;
+
+import org.emotion.detect.repository.DashboardRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds new daily_keywords rows into the hourly and daily keyword rollups, off the ingest path
+ * keyword_rollup_watermark holds the last daily_keywords id the rollups contain. Each round
+ * takes the highest id while no write is in progress (see IngestBarrier), so every id up to it
+ * is committed, then counts the rows above the watermark per hour and keyword, upserts the
+ * rollups and advances the watermark in one transaction. Readers add the rows above the
+ * watermark themselves, so keyword statistics stay exact while the rollups lag.
+ * A KeywordRollupsCompactedEvent names the days each compaction changed.
+ * Nothing injects this bean, so it is created eagerly even with lazy initialization on.
+ */
+@Component
+@Lazy(false)
+public class KeywordRollupCompactor {
+
+    @Autowired
+    private DashboardRepository dashboardRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private IngestBarrier ingestBarrier;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /** Pause between compaction rounds */
+    @Value("${dashboard.keyword-rollup.compact-interval-ms:1000}")
+    private long compactIntervalMs;
+
+    /** Maximum number of daily_keywords ids folded per transaction */
+    @Value("${dashboard.keyword-rollup.compact-batch-size:50000}")
+    private int compactBatchSize;
+
+    private ScheduledExecutorService scheduler;
+
+    /** Writes completed at the last cut, -1 so the first round always looks at the table */
+    private long lastCompletedWrites = -1;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "keyword-rollup-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::compactQuietly, 0, compactIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fold every committed daily_keywords row above the watermark into the rollups
+     * @return number of daily_keywords ids folded
+     */
+    public synchronized long compact() {
+        long completedWrites = ingestBarrier.getCompletedWrites();
+        if (completedWrites == lastCompletedWrites) {
+            return 0;
+        }
+        long maxId = ingestBarrier.quiesced(dashboardRepository::getMaxKeywordId);
+        long compacted = 0;
+        Set<LocalDate> days = new TreeSet<>();
+        try {
+            while (true) {
+                Long folded = transactionTemplate.execute(status -> {
+                    long from = dashboardRepository.lockKeywordRollupWatermark();
+                    if (from >= maxId) {
+                        return 0L;
+                    }
+                    long to = Math.min(maxId, from + compactBatchSize);
+                    Map<LocalDateTime, Map<String, Integer>> counts = dashboardRepository.getKeywordCountsByHour(from, to);
+                    dashboardRepository.batchUpsertKeywordRollups(counts);
+                    dashboardRepository.updateKeywordRollupWatermark(to);
+                    for (LocalDateTime hour : counts.keySet()) {
+                        days.add(hour.toLocalDate());
+                    }
+                    return to - from;
+                });
+                if (folded == null || folded == 0) {
+                    break;
+                }
+                compacted += folded;
+            }
+            lastCompletedWrites = completedWrites;
+        } finally {
+            // Also after a failed round, the rounds before it did commit
+            if (!days.isEmpty()) {
+                eventPublisher.publishEvent(new KeywordRollupsCompactedEvent(days));
+            }
+        }
+        if (compacted > 0) {
+            System.out.println("Compacted keyword rollups up to id " + maxId + ": " + compacted + " ids");
+        }
+        return compacted;
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (Exception e) {
+            System.err.println("Error compacting keyword rollups, will retry: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.emotion.detect.ingest;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Published by KeywordRollupCompactor after new rows were folded into the keyword rollups
+ * Lets state derived from keyword_rollup_daily rebuild the affected days
+ */
+public class KeywordRollupsCompactedEvent {
+
+    private final Set<LocalDate> days;
+
+    public KeywordRollupsCompactedEvent(Set<LocalDate> days) {
+        this.days = days;
+    }
+
+    /**
+     * @return the days whose daily rollups changed
+     */
+    public Set<LocalDate> getDays() {
+        return days;
+    }
+}
@@ -0,0 +1,179 @@
+package org.emotion.detect.ingest;
+
+import org.emotion.detect.entity.Post;
+import org.emotion.detect.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for anonymous post inserts
+ * Callers hand their post to a single writer thread and wait on a future. The writer takes
+ * whatever has queued up, waits at most one short window for more, and stores the group with
+ * one multi-row INSERT, so a burst of posts costs one round trip and commit per group instead
+ * of one per post. A lone post waits at most the window. Disabled unless
+ * posts.group-commit.enabled=true
+ */
+@Component
+public class PostGroupCommitWriter {
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Value("${posts.group-commit.enabled:false}")
+    private boolean enabled;
+
+    /** How long the writer waits for more posts after the first one of a group */
+    @Value("${posts.group-commit.window-micros:500}")
+    private long windowMicros;
+
+    /** Largest group written with one statement */
+    @Value("${posts.group-commit.max-batch:100}")
+    private int maxBatch;
+
+    /** Hard bound on queued posts; beyond it callers must write synchronously */
+    @Value("${posts.group-commit.max-pending:10000}")
+    private int maxPending;
+
+    private BlockingQueue<Submission> queue;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new LinkedBlockingQueue<>(maxPending);
+        running = true;
+        writer = new Thread(this::run, "post-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+        System.out.println("Post group commit enabled, window " + windowMicros + "us, max batch " + maxBatch);
+    }
+
+    /**
+     * Stop accepting posts and write out everything still queued
+     */
+    @PreDestroy
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a post for the next group
+     * @param post the post to save, without ID
+     * @return completes with the saved post (ID and creation time set) once its group is
+     *         committed; null if group commit is disabled or full and the caller should
+     *         save the post itself
+     */
+    public CompletableFuture<Post> submit(Post post) {
+        if (!running) {
+            return null;
+        }
+        Submission submission = new Submission(post);
+        if (!queue.offer(submission)) {
+            return null;
+        }
+        // The writer may have stopped between the check above and the offer; it only exits on
+        // an empty queue, so if the submission is still there, nobody will write it
+        if (!running && queue.remove(submission)) {
+            return null;
+        }
+        return submission.future;
+    }
+
+    private void run() {
+        List<Submission> group = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Submission first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                // Everything already waiting joins for free, then give stragglers one window
+                queue.drainTo(group, maxBatch - group.size());
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(windowMicros);
+                while (group.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Submission next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                    queue.drainTo(group, maxBatch - group.size());
+                }
+                write(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                fail(group, new IllegalStateException("Post group commit writer was interrupted", e));
+                break;
+            } finally {
+                group.clear();
+            }
+        }
+        // Only left over after an interrupt; their callers must not wait forever
+        group.clear();
+        queue.drainTo(group);
+        fail(group, new IllegalStateException("Post group commit writer stopped"));
+    }
+
+    private static void fail(List<Submission> group, Exception error) {
+        for (Submission submission : group) {
+            submission.future.completeExceptionally(error);
+        }
+    }
+
+    private void write(List<Submission> group) {
+        List<Post> posts = new ArrayList<>(group.size());
+        for (Submission submission : group) {
+            posts.add(submission.post);
+        }
+        try {
+            postRepository.saveAll(posts);
+            for (Submission submission : group) {
+                submission.future.complete(submission.post);
+            }
+        } catch (Exception e) {
+            System.err.println("Error writing group of " + group.size() + " posts: " + e.getMessage());
+            fail(group, e);
+        }
+    }
+
+    /**
+     * A queued post and the future its caller waits on
+     */
+    private static final class Submission {
+        private final Post post;
+        private final CompletableFuture<Post> future = new CompletableFuture<>();
+
+        Submission(Post post) {
+            this.post = post;
+        }
+    }
+}
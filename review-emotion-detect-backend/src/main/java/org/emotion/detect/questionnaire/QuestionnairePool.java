@@ -0,0 +1,416 @@
+package org.emotion.detect.questionnaire;
+
+import org.emotion.detect.entity.LabeledComment;
+import org.emotion.detect.enums.QuestionnaireMode;
+import org.emotion.detect.repository.QuestionnaireRepository;
+import org.emotion.detect.taxonomy.EmotionLabel;
+import org.emotion.detect.taxonomy.EmotionTaxonomy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory pool of the scenarios_comments rows questionnaires are drawn from
+ * The table is loaded once at startup into an immutable snapshot and reloaded periodically or
+ * on demand, swapping in the new snapshot when it is complete. On load the fine_labels and
+ * ekman_labels of every row are parsed once into per-label int[] indexes of row numbers.
+ * A questionnaire spreads its items evenly across the labels of its mode, each label's
+ * share drawn by a partial Fisher-Yates shuffle over a thread-local copy of that label's
+ * index, so a draw costs O(k + labels) with no database round trip.
+ */
+@Component
+public class QuestionnairePool {
+
+    @Autowired
+    private QuestionnaireRepository questionnaireRepository;
+
+    @Autowired
+    private EmotionTaxonomy emotionTaxonomy;
+
+    /** False draws every questionnaire with ORDER BY RAND() in the database */
+    @Value("${questionnaire.pool.enabled:true}")
+    private boolean enabled;
+
+    /** Reload period, 0 disables periodic reload */
+    @Value("${questionnaire.pool.refresh-interval-ms:600000}")
+    private long refreshIntervalMs;
+
+    private volatile Snapshot snapshot = Snapshot.build(Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+
+    /** Per-thread shuffle state, rebuilt when the snapshot changes */
+    private final ThreadLocal<DrawState> drawStates = new ThreadLocal<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        reloadQuietly();
+        if (refreshIntervalMs > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "questionnaire-pool-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::reloadQuietly, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Reload the pool from scenarios_comments, readers keep the old pool until the new one is complete
+     * @return number of rows now in the pool
+     */
+    public synchronized int reload() {
+        List<LabeledComment> rows = questionnaireRepository.findAllLabeledComments();
+        List<Set<String>> fineLabels = new ArrayList<>(rows.size());
+        List<Set<String>> ekmanLabels = new ArrayList<>(rows.size());
+        for (LabeledComment row : rows) {
+            Set<String> fine = parseLabels(row.getFineLabels());
+            Set<String> ekman = parseLabels(row.getEkmanLabels());
+            if (ekman.isEmpty()) {
+                // Derive missing Ekman categories from the fine labels
+                for (String label : fine) {
+                    EmotionLabel entry = emotionTaxonomy.lookup(label);
+                    if (entry != null) {
+                        ekman.add(entry.getEkman());
+                    }
+                }
+            }
+            fineLabels.add(fine);
+            ekmanLabels.add(ekman);
+        }
+        Snapshot loaded = Snapshot.build(rows, fineLabels, ekmanLabels);
+        snapshot = loaded;
+        System.out.println("Questionnaire pool loaded: " + loaded.comments.length + " comments, "
+                + loaded.fine.size() + " fine labels, " + loaded.ekman.size() + " Ekman categories");
+        return loaded.comments.length;
+    }
+
+    /**
+     * @return true if questionnaires can be drawn from memory
+     */
+    public boolean isAvailable() {
+        return enabled && snapshot.comments.length > 0;
+    }
+
+    /**
+     * @return number of rows in the pool
+     */
+    public int size() {
+        return snapshot.comments.length;
+    }
+
+    /**
+     * Draw distinct rows spread evenly across the labels of a mode
+     * Every label gets k / labels items and a random k % labels of them one more, so a mode
+     * with at least as many labels as questions covers k distinct labels. A row with several
+     * labels counts towards all of them and is only taken while each has room; a label left
+     * short because its rows all carry a full label takes them anyway. Labels that run out of
+     * rows are made up by the others, then by rows from the whole pool.
+     * @param mode the questionnaire mode
+     * @return min(question count, pool size) distinct rows in random order
+     */
+    public List<LabeledComment> draw(QuestionnaireMode mode) {
+        Snapshot current = snapshot;
+        DrawState state = drawState(current);
+        Strata strata = mode.isByFineLabel() ? state.fine : state.ekman;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int count = Math.min(mode.getQuestionCount(), current.comments.length);
+        int stamp = state.nextStamp();
+        List<LabeledComment> drawn = new ArrayList<>(count);
+
+        int labelCount = strata.index.size();
+        if (labelCount > 0) {
+            // Labels in random order, so the remainder quota goes to different labels each time
+            int[] labels = strata.labels;
+            for (int i = 0; i < labelCount; i++) {
+                int j = i + random.nextInt(labelCount - i);
+                int label = labels[j];
+                labels[j] = labels[i];
+                labels[i] = label;
+                strata.cursors[label] = strata.index.start[label];
+                strata.counts[label] = 0;
+                strata.quotas[label] = count / labelCount + (i < count % labelCount ? 1 : 0);
+            }
+            for (int i = 0; i < labelCount && drawn.size() < count; i++) {
+                strata.take(labels[i], strata.quotas[labels[i]], true, current, state, stamp, drawn, random);
+            }
+            // Labels still below quota take the rows they skipped for lack of room, over the other labels' quota
+            for (int i = 0; i < labelCount && drawn.size() < count; i++) {
+                if (strata.counts[labels[i]] < strata.quotas[labels[i]]) {
+                    strata.take(labels[i], strata.quotas[labels[i]], false, current, state, stamp, drawn, random);
+                }
+            }
+            // Labels with rows left make up for the ones that ran short, one item per label per round
+            boolean progress = true;
+            while (drawn.size() < count && progress) {
+                progress = false;
+                for (int i = 0; i < labelCount && drawn.size() < count; i++) {
+                    progress |= strata.take(labels[i], strata.counts[labels[i]] + 1, false, current, state, stamp, drawn, random);
+                }
+            }
+        }
+        // Rows without labels are only used when the labeled ones are not enough
+        int[] all = state.allRows;
+        for (int position = 0; drawn.size() < count && position < all.length; position++) {
+            int j = position + random.nextInt(all.length - position);
+            int row = all[j];
+            all[j] = all[position];
+            all[position] = row;
+            if (state.marks[row] != stamp) {
+                state.marks[row] = stamp;
+                drawn.add(current.comments[row]);
+            }
+        }
+        // Items were drawn label by label, mix them
+        Collections.shuffle(drawn, random);
+        return drawn;
+    }
+
+    private DrawState drawState(Snapshot current) {
+        DrawState state = drawStates.get();
+        if (state == null || state.snapshot != current) {
+            state = new DrawState(current);
+            drawStates.set(state);
+        }
+        return state;
+    }
+
+    /**
+     * Distinct lowercased labels of a label column
+     * Accepts single labels as well as lists such as "joy, love" or "['joy', 'love']"
+     */
+    static Set<String> parseLabels(String value) {
+        Set<String> labels = new LinkedHashSet<>();
+        if (value == null) {
+            return labels;
+        }
+        int start = -1;
+        for (int i = 0; i <= value.length(); i++) {
+            boolean part = i < value.length() && (Character.isLetter(value.charAt(i)) || value.charAt(i) == '_');
+            if (part && start < 0) {
+                start = i;
+            } else if (!part && start >= 0) {
+                labels.add(value.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return labels;
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (Exception e) {
+            System.err.println("Error loading questionnaire pool: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Row numbers per label and label ids per row, each kept in one array
+     * The rows of label l are rows[start[l], start[l + 1]); the labels of row r are
+     * rowLabels[rowStart[r], rowStart[r + 1])
+     */
+    private static final class LabelIndex {
+        private final String[] names;
+        private final int[] start;
+        private final int[] rows;
+        private final int[] rowStart;
+        private final int[] rowLabels;
+
+        private LabelIndex(String[] names, int[] start, int[] rows, int[] rowStart, int[] rowLabels) {
+            this.names = names;
+            this.start = start;
+            this.rows = rows;
+            this.rowStart = rowStart;
+            this.rowLabels = rowLabels;
+        }
+
+        static LabelIndex build(List<Set<String>> labelsByRow) {
+            Map<String, Integer> ids = new LinkedHashMap<>();
+            int postings = 0;
+            for (Set<String> labels : labelsByRow) {
+                for (String label : labels) {
+                    ids.putIfAbsent(label, ids.size());
+                }
+                postings += labels.size();
+            }
+            int[] start = new int[ids.size() + 1];
+            for (Set<String> labels : labelsByRow) {
+                for (String label : labels) {
+                    start[ids.get(label) + 1]++;
+                }
+            }
+            for (int l = 0; l < ids.size(); l++) {
+                start[l + 1] += start[l];
+            }
+            int[] fill = Arrays.copyOf(start, ids.size());
+            int[] rows = new int[postings];
+            int[] rowStart = new int[labelsByRow.size() + 1];
+            int[] rowLabels = new int[postings];
+            for (int row = 0; row < labelsByRow.size(); row++) {
+                int next = rowStart[row];
+                for (String label : labelsByRow.get(row)) {
+                    int id = ids.get(label);
+                    rows[fill[id]++] = row;
+                    rowLabels[next++] = id;
+                }
+                rowStart[row + 1] = next;
+            }
+            return new LabelIndex(ids.keySet().toArray(new String[0]), start, rows, rowStart, rowLabels);
+        }
+
+        int size() {
+            return names.length;
+        }
+    }
+
+    /**
+     * One immutable state of the pool
+     */
+    private static final class Snapshot {
+        private final LabeledComment[] comments;
+        private final LabelIndex fine;
+        private final LabelIndex ekman;
+
+        private Snapshot(LabeledComment[] comments, LabelIndex fine, LabelIndex ekman) {
+            this.comments = comments;
+            this.fine = fine;
+            this.ekman = ekman;
+        }
+
+        static Snapshot build(List<LabeledComment> rows, List<Set<String>> fineLabels, List<Set<String>> ekmanLabels) {
+            return new Snapshot(rows.toArray(new LabeledComment[0]), LabelIndex.build(fineLabels), LabelIndex.build(ekmanLabels));
+        }
+    }
+
+    /**
+     * A thread's private shuffle state for one label dimension
+     * rows is a copy of the index's rows, shuffled in place within each label's range
+     */
+    private static final class Strata {
+        private final LabelIndex index;
+        private final int[] rows;
+        private final int[] labels;
+        private final int[] cursors;
+        private final int[] counts;
+        private final int[] quotas;
+
+        Strata(LabelIndex index) {
+            this.index = index;
+            rows = index.rows.clone();
+            labels = DrawState.identity(index.size());
+            cursors = new int[index.size()];
+            counts = new int[index.size()];
+            quotas = new int[index.size()];
+        }
+
+        /**
+         * Partial Fisher-Yates over the label's untouched rows until it holds target items
+         * Rows skipped for lack of room are swapped to the end of the range instead of being
+         * consumed, so later passes of the same draw can still take them.
+         * @param limited only take rows whose labels are all still below their quota
+         * @return true if a row was added
+         */
+        boolean take(int label, int target, boolean limited, Snapshot current, DrawState state, int stamp,
+                     List<LabeledComment> drawn, ThreadLocalRandom random) {
+            boolean added = false;
+            int position = cursors[label];
+            int end = index.start[label + 1];
+            while (counts[label] < target && position < end) {
+                int j = position + random.nextInt(end - position);
+                int row = rows[j];
+                if (limited && state.marks[row] != stamp && !hasRoom(row)) {
+                    rows[j] = rows[--end];
+                    rows[end] = row;
+                    continue;
+                }
+                rows[j] = rows[position];
+                rows[position++] = row;
+                if (state.marks[row] == stamp) {
+                    continue;
+                }
+                state.marks[row] = stamp;
+                drawn.add(current.comments[row]);
+                for (int l = index.rowStart[row]; l < index.rowStart[row + 1]; l++) {
+                    counts[index.rowLabels[l]]++;
+                }
+                added = true;
+            }
+            cursors[label] = position;
+            return added;
+        }
+
+        private boolean hasRoom(int row) {
+            for (int l = index.rowStart[row]; l < index.rowStart[row + 1]; l++) {
+                int label = index.rowLabels[l];
+                if (counts[label] >= quotas[label]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A thread's private copies of the indexes, shuffled in place across draws
+     * Any permutation of an index is a valid start for the next shuffle, so nothing is reset
+     * between draws; rows already drawn are recognised by a per-draw stamp instead of a set.
+     */
+    private static final class DrawState {
+        private final Snapshot snapshot;
+        private final Strata fine;
+        private final Strata ekman;
+        private final int[] allRows;
+        private final int[] marks;
+        private int stamp;
+
+        DrawState(Snapshot snapshot) {
+            this.snapshot = snapshot;
+            fine = new Strata(snapshot.fine);
+            ekman = new Strata(snapshot.ekman);
+            allRows = identity(snapshot.comments.length);
+            marks = new int[snapshot.comments.length];
+        }
+
+        int nextStamp() {
+            if (++stamp == 0) {
+                Arrays.fill(marks, 0);
+                stamp = 1;
+            }
+            return stamp;
+        }
+
+        static int[] identity(int size) {
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = i;
+            }
+            return values;
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package org.emotion.detect.repository;
 
+import org.emotion.detect.entity.DailyKeyword;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Map;
 
@@ -14,23 +19,150 @@ public interface DashboardRepository {
      * Get keyword statistics for a specific time period
      * @param startDate start date for the time period
      * @param endDate end date for the time period
-     * @return list of keyword counts as map entries
+     * @return keyword counts, sorted by count descending
      */
-    List<Map<String, Object>> getKeywordStatsByTimePeriod(LocalDateTime startDate, LocalDateTime endDate);
+    KeywordCounts getKeywordStatsByTimePeriod(LocalDateTime startDate, LocalDateTime endDate);
     
     /**
      * Get all keywords within a time period
      * @param startDate start date for the time period
      * @param endDate end date for the time period
-     * @return list of keywords with their counts
+     * @return keywords with their counts, sorted by count descending
+     */
+    KeywordCounts getAllKeywordsByTimePeriod(LocalDateTime startDate, LocalDateTime endDate);
+    
+    /**
+     * Get keyword statistics for a time period from the keyword rollup tables
+     * Whole days are read from keyword_rollup_daily, whole hours at the edges from
+     * keyword_rollup_hourly, and only the partial hours at both ends from daily_keywords.
+     * Rows above the rollup watermark are added from daily_keywords.
+     * @param startDate start date for the time period (inclusive)
+     * @param endDate end date for the time period (inclusive)
+     * @return keywords with their counts, sorted by count descending
+     */
+    KeywordCounts getKeywordStatsFromRollups(LocalDateTime startDate, LocalDateTime endDate);
+    
+    /**
+     * Add keyword counts to the hourly and daily rollup tables
+     * @param countsByHour keyword counts per hour bucket
+     */
+    void batchUpsertKeywordRollups(Map<LocalDateTime, Map<String, Integer>> countsByHour);
+    
+    /**
+     * Get the highest id handed out for daily_keywords
+     * @return the highest id, 0 if the table is empty
+     */
+    long getMaxKeywordId();
+    
+    /**
+     * Lock the keyword rollup watermark for the rest of the transaction
+     * @return the last daily_keywords id contained in the rollup tables
+     */
+    long lockKeywordRollupWatermark();
+    
+    /**
+     * Set the keyword rollup watermark (lock it first, see lockKeywordRollupWatermark)
+     * @param lastKeywordId the last daily_keywords id contained in the rollup tables
+     */
+    void updateKeywordRollupWatermark(long lastKeywordId);
+    
+    /**
+     * Count daily_keywords rows of an id range per hour and keyword
+     * @param afterId lower bound of the id range (exclusive)
+     * @param toId upper bound of the id range (inclusive)
+     * @return keyword counts per hour bucket
+     */
+    Map<LocalDateTime, Map<String, Integer>> getKeywordCountsByHour(long afterId, long toId);
+    
+    /**
+     * Get the top keywords of an hour-aligned range from the keyword rollup tables
+     * Whole days are read from keyword_rollup_daily, the remaining hours from keyword_rollup_hourly.
+     * Rows above the rollup watermark are added from daily_keywords.
+     * @param from start of the range, on an hour boundary (inclusive)
+     * @param to end of the range, on an hour boundary (exclusive)
+     * @param limit maximum number of keywords
+     * @return keywords with their counts, sorted by count descending
+     */
+    KeywordCounts getTopKeywordsFromRollups(LocalDateTime from, LocalDateTime to, int limit);
+    
+    /**
+     * Get the top keywords of every bucket of an aligned range with one grouped query
+     * Hour buckets are summed from keyword_rollup_hourly, day, week (from Monday) and month
+     * buckets from keyword_rollup_daily; rows above the rollup watermark are added from
+     * daily_keywords. Each bucket is ranked and cut to the limit in SQL.
+     * @param from start of the range, on a bucket boundary (inclusive)
+     * @param to end of the range, on a bucket boundary (exclusive)
+     * @param granularity HOURS, DAYS, WEEKS or MONTHS
+     * @param limit maximum number of keywords per bucket
+     * @return bucket start -> keywords with their counts, sorted by count descending;
+     *         buckets without keywords are absent
+     */
+    Map<LocalDateTime, KeywordCounts> getTopKeywordsPerBucket(LocalDateTime from, LocalDateTime to,
+                                                              ChronoUnit granularity, int limit);
+    
+    /**
+     * Get exact per-day keyword counts, the daily rollup table plus the rows not yet compacted into it
+     * @param fromDay first day to return (inclusive)
+     * @param toDay last day to return (inclusive)
+     * @return rows of day, keyword and count
      */
-    List<Map<String, Object>> getAllKeywordsByTimePeriod(LocalDateTime startDate, LocalDateTime endDate);
+    List<Map<String, Object>> getKeywordDailyCounts(LocalDate fromDay, LocalDate toDay);
+    
+    /**
+     * Get the per-day keyword counts of the daily rollup table
+     * @param fromDay first day to return (inclusive)
+     * @param toDay last day to return (inclusive)
+     * @return rows of day, keyword and count
+     */
+    List<Map<String, Object>> getKeywordDailyRollups(LocalDate fromDay, LocalDate toDay);
+    
+    /**
+     * Get the days whose keyword sketch is missing or does not match keyword_rollup_daily
+     * A sketch matches when its total equals the day's rollup total
+     * @return the days, oldest first
+     */
+    List<LocalDate> getDaysWithStaleKeywordSketch();
+    
+    /**
+     * Insert or replace the keyword sketch of a day
+     * @param day the day
+     * @param total number of keyword occurrences in the sketch
+     * @param sketch the serialized sketch
+     */
+    void saveKeywordSketch(LocalDate day, long total, byte[] sketch);
+    
+    /**
+     * Get the keyword sketches of a range of days
+     * @param fromDay first day (inclusive)
+     * @param toDay last day (inclusive)
+     * @return the serialized sketches
+     */
+    List<byte[]> getKeywordSketches(LocalDate fromDay, LocalDate toDay);
     
     /**
      * Get all sentiment chart data aggregated by date
-     * @return list of sentiment data grouped by date
+     * @return daily sentiment counts keyed by epoch day, sorted by day ascending
+     */
+    SentimentSeries getAllSentimentChartData();
+    
+    /**
+     * Get the sentiment chart rows added or changed since a point in time
+     * @param since lower bound of updated_at (inclusive)
+     * @return daily sentiment counts keyed by epoch day, sorted by day ascending
+     */
+    SentimentSeries getSentimentChartDataSince(LocalDateTime since);
+    
+    /**
+     * Get the current time of the database clock, which also stamps updated_at
+     * @return the database time
      */
-    List<Map<String, Object>> getAllSentimentChartData();
+    LocalDateTime getDatabaseTime();
+    
+    /**
+     * Get the latest day of the sentiment_summary table
+     * @return the latest day, null if the table is empty
+     */
+    LocalDate getMaxSentimentDay();
     
     /**
      * Insert emotion keyword into daily_keywords table
@@ -40,33 +172,64 @@ public interface DashboardRepository {
     int insertEmotionKeyword(String emotion);
     
     /**
-     * Check if sentiment record exists for a specific date
-     * @param date the date to check
-     * @return true if record exists, false otherwise
+     * Insert many emotion keywords into daily_keywords table in one JDBC batch
+     * @param keywords the keyword rows to insert (keyword and record date)
+     * @return the number of rows inserted
      */
-    boolean existsSentimentRecordForDate(java.sql.Date date);
+    int batchInsertEmotionKeywords(List<DailyKeyword> keywords);
     
     /**
-     * Insert new sentiment record for a date
-     * @param date the date
-     * @param positive positive count (0 or 1)
-     * @param negative negative count (0 or 1)
-     * @param neutral neutral count (0 or 1)
-     */
-    void insertSentimentRecord(java.sql.Date date, int positive, int negative, int neutral);
-    
-    /**
-     * Update sentiment counts for existing date
+     * Atomically add sentiment counts to the record for a date
+     * Inserts the day row if it does not exist yet, in a single statement
      * @param date the date
      * @param positive positive count increment
      * @param negative negative count increment
      * @param neutral neutral count increment
      */
-    void updateSentimentCounts(java.sql.Date date, int positive, int negative, int neutral);
+    void upsertSentimentCounts(java.sql.Date date, int positive, int negative, int neutral);
+    
+    /**
+     * Atomically add sentiment counts for many dates in one JDBC batch
+     * @param countsByDate increments per date as {positive, negative, neutral}
+     */
+    void batchUpsertSentimentCounts(Map<java.sql.Date, int[]> countsByDate);
+    
+    /**
+     * Get yearly AU sentiment statistics from twitter_comments_time table
+     * @return sentiment counts keyed by year, sorted by year ascending
+     */
+    SentimentSeries getTwitterSentimentChartData();
+    
+    /**
+     * Get the row count and latest publishedat of twitter_comments_time
+     * @return map with rows and max_published
+     */
+    Map<String, Object> getTwitterSourceState();
+    
+    /**
+     * Get the source state the twitter aggregate was last built from
+     * @return map with rows and max_published, null if the aggregate was never built
+     */
+    Map<String, Object> getTwitterAggregateState();
+    
+    /**
+     * Rebuild twitter_sentiment_agg from twitter_comments_time and record the source state
+     * Must run inside a transaction so readers never see a half-built aggregate
+     * @param sourceRows row count of the source the aggregate is built from
+     * @param sourceMaxPublished latest publishedat of that source, may be null
+     */
+    void rebuildTwitterAggregate(long sourceRows, LocalDateTime sourceMaxPublished);
+    
+    /**
+     * Get twitter sentiment chart data from the materialized aggregate
+     * @return sentiment counts keyed by year, same shape as getTwitterSentimentChartData
+     */
+    SentimentSeries getTwitterSentimentChartDataFromAggregate();
     
     /**
-     * Get daily sentiment statistics from twitter_comments_time table
-     * @return list of sentiment data grouped by date
+     * Stream every row of twitter_comments_time (countrycode, publishedat, sentiment)
+     * Rows are fetched incrementally, so the table is never held in memory as a list
+     * @param handler called once per row
      */
-    List<Map<String, Object>> getTwitterSentimentChartData();
+    void forEachTwitterComment(RowCallbackHandler handler);
 }
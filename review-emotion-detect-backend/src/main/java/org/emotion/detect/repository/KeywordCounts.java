@@ -0,0 +1,38 @@
+package org.emotion.detect.repository;
+
+import java.util.Arrays;
+
+/**
+ * Keyword counts as parallel arrays, in the order the query returned them
+ */
+public class KeywordCounts {
+
+    private String[] keywords;
+    private int[] counts;
+    private int size;
+
+    public KeywordCounts(int capacity) {
+        int initial = Math.max(capacity, 16);
+        keywords = new String[initial];
+        counts = new int[initial];
+    }
+
+    /**
+     * Append one keyword
+     */
+    public void add(String keyword, int count) {
+        if (size == keywords.length) {
+            keywords = Arrays.copyOf(keywords, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        keywords[size] = keyword;
+        counts[size] = count;
+        size++;
+    }
+
+    public int size() { return size; }
+
+    public String getKeyword(int index) { return keywords[index]; }
+
+    public int getCount(int index) { return counts[index]; }
+}
@@ -1,7 +1,10 @@
 package org.emotion.detect.repository;
 
 import org.emotion.detect.entity.Post;
+import org.emotion.detect.entity.PostEmotion;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Repository interface for Post entity
@@ -16,10 +19,53 @@ public interface PostRepository {
      */
     Post save(Post post);
     
+    /**
+     * Save several new posts with one multi-row INSERT
+     * @param posts the post entities to save, in insert order
+     * @return the same posts with generated IDs and a shared creation time
+     */
+    List<Post> saveAll(List<Post> posts);
+    
     /**
      * Find all posts from the database
      * @return list of all posts ordered by creation time (newest first)
      */
     List<Post> findAll();
+    
+    /**
+     * Find posts by ID
+     * @param postIds the IDs to look up
+     * @return the posts that exist, in no particular order
+     */
+    List<Post> findByIds(int[] postIds);
+    
+    /**
+     * Find one page of posts, newest first, ordered by (created_at, post_id)
+     * @param beforeCreatedAt created_at of the last post of the previous page, null for the first page
+     * @param beforePostId post_id of the last post of the previous page, null for the first page
+     * @param limit maximum number of posts
+     * @return posts strictly after the given position in the newest first order
+     */
+    List<Post> findPage(LocalDateTime beforeCreatedAt, Integer beforePostId, int limit);
+    
+    /**
+     * Stream all posts from a forward-only result set, newest first
+     * Rows are handed over one at a time and never collected into a list
+     * @param consumer called for each post, on the calling thread
+     */
+    void forEachPost(Consumer<Post> consumer);
+    
+    /**
+     * Store post classifications, replacing earlier ones for the same posts
+     * @param emotions one row per post
+     */
+    void batchSavePostEmotions(List<PostEmotion> emotions);
+    
+    /**
+     * Find posts that have no row in post_emotions yet, newest first from a cursor
+     * @param beforePostId only IDs below this one, null to start from the newest post
+     * @param limit maximum number of IDs
+     * @return post IDs, highest first
+     */
+    List<Integer> findUnclassifiedPostIds(Integer beforePostId, int limit);
 }
-
@@ -14,5 +14,11 @@ public interface QuestionnaireRepository {
      * @return list of random labeled comments
      */
     List<LabeledComment> findRandomLabeledComments(int limit);
+
+    /**
+     * Get every labeled comment, for the in-memory questionnaire pool
+     * @return all rows of scenarios_comments
+     */
+    List<LabeledComment> findAllLabeledComments();
 }
 
@@ -0,0 +1,67 @@
+package org.emotion.detect.repository;
+
+import java.util.Arrays;
+
+/**
+ * Sentiment counts per period as parallel primitive columns
+ * Periods are ascending; a key is an epoch day or a year depending on the query.
+ */
+public class SentimentSeries {
+
+    private int[] keys;
+    private int[] positive;
+    private int[] negative;
+    private int[] neutral;
+    private int size;
+
+    public SentimentSeries(int capacity) {
+        int initial = Math.max(capacity, 16);
+        keys = new int[initial];
+        positive = new int[initial];
+        negative = new int[initial];
+        neutral = new int[initial];
+    }
+
+    /**
+     * Append one period
+     * @param key epoch day or year of the period
+     */
+    public void add(int key, int positiveCount, int negativeCount, int neutralCount) {
+        if (size == keys.length) {
+            int grown = size * 2;
+            keys = Arrays.copyOf(keys, grown);
+            positive = Arrays.copyOf(positive, grown);
+            negative = Arrays.copyOf(negative, grown);
+            neutral = Arrays.copyOf(neutral, grown);
+        }
+        keys[size] = key;
+        positive[size] = positiveCount;
+        negative[size] = negativeCount;
+        neutral[size] = neutralCount;
+        size++;
+    }
+
+    public int size() { return size; }
+
+    public int getKey(int index) { return keys[index]; }
+
+    public int[] getPositive() { return positive; }
+
+    public int[] getNegative() { return negative; }
+
+    public int[] getNeutral() { return neutral; }
+
+    /**
+     * Drop the spare capacity, after which each column holds exactly size() values
+     * @return this series
+     */
+    public SentimentSeries trim() {
+        if (keys.length != size) {
+            keys = Arrays.copyOf(keys, size);
+            positive = Arrays.copyOf(positive, size);
+            negative = Arrays.copyOf(negative, size);
+            neutral = Arrays.copyOf(neutral, size);
+        }
+        return this;
+    }
+}
@@ -1,14 +1,27 @@
 package org.emotion.detect.repository.impl;
 
+import org.emotion.detect.entity.DailyKeyword;
 import org.emotion.detect.repository.DashboardRepository;
+import org.emotion.detect.repository.KeywordCounts;
+import org.emotion.detect.repository.SentimentSeries;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Implementation of DashboardRepository
@@ -20,8 +33,41 @@ public class DashboardRepositoryImpl implements DashboardRepository {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    /** Reads (keyword, count) rows straight into arrays, without a map per row */
+    private static final ResultSetExtractor<KeywordCounts> KEYWORD_COUNTS = rs -> {
+        KeywordCounts counts = new KeywordCounts(64);
+        while (rs.next()) {
+            counts.add(rs.getString(1), rs.getInt(2));
+        }
+        return counts;
+    };
+
+    /** Reads (day, positive, negative, neutral) rows keyed by epoch day */
+    private static final ResultSetExtractor<SentimentSeries> DAILY_SENTIMENT = rs -> {
+        SentimentSeries series = new SentimentSeries(512);
+        while (rs.next()) {
+            series.add((int) rs.getDate(1).toLocalDate().toEpochDay(), rs.getInt(2), rs.getInt(3), rs.getInt(4));
+        }
+        return series.trim();
+    };
+
+    /** Reads (year, positive, negative, neutral) rows keyed by year */
+    private static final ResultSetExtractor<SentimentSeries> YEARLY_SENTIMENT = rs -> {
+        SentimentSeries series = new SentimentSeries(16);
+        while (rs.next()) {
+            series.add(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4));
+        }
+        return series.trim();
+    };
+
+    /** daily_keywords rows not yet folded into the rollup tables, see KeywordRollupCompactor */
+    private static final String UNCOMPACTED = "id > (SELECT last_keyword_id FROM keyword_rollup_watermark WHERE id = 1)";
+
+    /** Detected on first use, see {@link SqlDialect#detect(JdbcTemplate)} */
+    private volatile SqlDialect dialect;
+
     @Override
-    public List<Map<String, Object>> getKeywordStatsByTimePeriod(LocalDateTime startDate, LocalDateTime endDate) {
+    public KeywordCounts getKeywordStatsByTimePeriod(LocalDateTime startDate, LocalDateTime endDate) {
         String sql = "SELECT keyword, COUNT(*) as count " +
                     "FROM daily_keywords " +
                     "WHERE record_date >= ? AND record_date <= ? " +
@@ -31,14 +77,14 @@ public class DashboardRepositoryImpl implements DashboardRepository {
         System.out.println("Executing keyword stats SQL: " + sql);
         System.out.println("Start date: " + startDate + ", End date: " + endDate);
         
-        List<Map<String, Object>> result = jdbcTemplate.queryForList(sql, startDate, endDate);
+        KeywordCounts result = jdbcTemplate.query(sql, KEYWORD_COUNTS, startDate, endDate);
         System.out.println("Query result size: " + result.size());
         
         return result;
     }
 
     @Override
-    public List<Map<String, Object>> getAllKeywordsByTimePeriod(LocalDateTime startDate, LocalDateTime endDate) {
+    public KeywordCounts getAllKeywordsByTimePeriod(LocalDateTime startDate, LocalDateTime endDate) {
         String sql = "SELECT keyword, COUNT(*) as count " +
                     "FROM daily_keywords " +
                     "WHERE record_date >= ? AND record_date <= ? " +
@@ -48,25 +94,300 @@ public class DashboardRepositoryImpl implements DashboardRepository {
         System.out.println("Executing all keywords SQL: " + sql);
         System.out.println("Start date: " + startDate + ", End date: " + endDate);
         
-        List<Map<String, Object>> result = jdbcTemplate.queryForList(sql, startDate, endDate);
+        KeywordCounts result = jdbcTemplate.query(sql, KEYWORD_COUNTS, startDate, endDate);
+        System.out.println("Query result size: " + result.size());
+        
+        return result;
+    }
+
+    @Override
+    public KeywordCounts getKeywordStatsFromRollups(LocalDateTime startDate, LocalDateTime endDate) {
+        // Split [startDate, endDate] into raw edges, whole hours and whole days:
+        // start .. startHour (raw) .. startDay (hourly) .. endDay (daily) .. endHour (hourly) .. end (raw)
+        LocalDateTime startHour = ceil(startDate, ChronoUnit.HOURS);
+        LocalDateTime endHour = endDate.truncatedTo(ChronoUnit.HOURS);
+        if (!startHour.isBefore(endHour)) {
+            // Window shorter than an hour boundary pair, the raw table is cheapest
+            startHour = endDate;
+            endHour = endDate;
+        }
+        LocalDateTime startDay = ceil(startHour, ChronoUnit.DAYS);
+        LocalDateTime endDay = endHour.truncatedTo(ChronoUnit.DAYS);
+        if (!startDay.isBefore(endDay)) {
+            startDay = endHour;
+            endDay = endHour;
+        }
+        
+        String sql = "SELECT keyword, SUM(cnt) as count FROM (" +
+                    "SELECT keyword, cnt FROM keyword_rollup_daily WHERE bucket_day >= ? AND bucket_day < ? " +
+                    "UNION ALL " +
+                    "SELECT keyword, cnt FROM keyword_rollup_hourly WHERE bucket_start >= ? AND bucket_start < ? " +
+                    "UNION ALL " +
+                    "SELECT keyword, cnt FROM keyword_rollup_hourly WHERE bucket_start >= ? AND bucket_start < ? " +
+                    "UNION ALL " +
+                    "SELECT keyword, COUNT(*) as cnt FROM daily_keywords WHERE " + UNCOMPACTED +
+                    " AND record_date >= ? AND record_date < ? GROUP BY keyword " +
+                    "UNION ALL " +
+                    "SELECT keyword, COUNT(*) as cnt FROM daily_keywords WHERE record_date >= ? AND record_date < ? GROUP BY keyword " +
+                    "UNION ALL " +
+                    "SELECT keyword, COUNT(*) as cnt FROM daily_keywords WHERE record_date >= ? AND record_date <= ? GROUP BY keyword" +
+                    ") buckets " +
+                    "GROUP BY keyword " +
+                    "ORDER BY count DESC";
+        
+        System.out.println("Executing keyword rollup SQL, days [" + startDay + ", " + endDay + "), hours ["
+                + startHour + ", " + startDay + ") and [" + endDay + ", " + endHour + "), raw edges");
+        
+        KeywordCounts result = jdbcTemplate.query(sql, KEYWORD_COUNTS,
+                java.sql.Date.valueOf(startDay.toLocalDate()), java.sql.Date.valueOf(endDay.toLocalDate()),
+                Timestamp.valueOf(startHour), Timestamp.valueOf(startDay),
+                Timestamp.valueOf(endDay), Timestamp.valueOf(endHour),
+                Timestamp.valueOf(startHour), Timestamp.valueOf(endHour),
+                Timestamp.valueOf(startDate), Timestamp.valueOf(startHour),
+                Timestamp.valueOf(endHour), Timestamp.valueOf(endDate));
         System.out.println("Query result size: " + result.size());
         
         return result;
     }
 
     @Override
-    public List<Map<String, Object>> getAllSentimentChartData() {
-        String sql = "SELECT DATE(record_date) as date, " +
-                    "SUM(positive) as positive, " +
-                    "SUM(negative) as negative, " +
-                    "SUM(neutral) as neutral " +
+    public KeywordCounts getTopKeywordsFromRollups(LocalDateTime from, LocalDateTime to, int limit) {
+        LocalDateTime fromDay = ceil(from, ChronoUnit.DAYS);
+        LocalDateTime toDay = to.truncatedTo(ChronoUnit.DAYS);
+        if (!fromDay.isBefore(toDay)) {
+            // No whole day inside the range, hours only
+            fromDay = to;
+            toDay = to;
+        }
+        
+        String sql = "SELECT keyword, SUM(cnt) as count FROM (" +
+                    "SELECT keyword, cnt FROM keyword_rollup_daily WHERE bucket_day >= ? AND bucket_day < ? " +
+                    "UNION ALL " +
+                    "SELECT keyword, cnt FROM keyword_rollup_hourly WHERE bucket_start >= ? AND bucket_start < ? " +
+                    "UNION ALL " +
+                    "SELECT keyword, cnt FROM keyword_rollup_hourly WHERE bucket_start >= ? AND bucket_start < ? " +
+                    "UNION ALL " +
+                    "SELECT keyword, COUNT(*) as cnt FROM daily_keywords WHERE " + UNCOMPACTED +
+                    " AND record_date >= ? AND record_date < ? GROUP BY keyword" +
+                    ") buckets " +
+                    "GROUP BY keyword " +
+                    "ORDER BY count DESC, keyword ASC " +
+                    "LIMIT ?";
+        
+        return jdbcTemplate.query(sql, KEYWORD_COUNTS,
+                java.sql.Date.valueOf(fromDay.toLocalDate()), java.sql.Date.valueOf(toDay.toLocalDate()),
+                Timestamp.valueOf(from), Timestamp.valueOf(fromDay),
+                Timestamp.valueOf(toDay), Timestamp.valueOf(to),
+                Timestamp.valueOf(from), Timestamp.valueOf(to),
+                limit);
+    }
+
+    @Override
+    public Map<LocalDateTime, KeywordCounts> getTopKeywordsPerBucket(LocalDateTime from, LocalDateTime to,
+                                                                     ChronoUnit granularity, int limit) {
+        boolean h2 = dialect() == SqlDialect.H2;
+        String source;
+        Object[] sourceArgs;
+        if (granularity == ChronoUnit.HOURS) {
+            String hour = h2
+                    ? "DATE_TRUNC('HOUR', record_date)"
+                    : "CAST(DATE_FORMAT(record_date, '%Y-%m-%d %H:00:00') AS DATETIME)";
+            source = "SELECT bucket_start as t, keyword, cnt FROM keyword_rollup_hourly WHERE bucket_start >= ? AND bucket_start < ? " +
+                    "UNION ALL " +
+                    "SELECT " + hour + ", keyword, COUNT(*) FROM daily_keywords WHERE " + UNCOMPACTED +
+                    " AND record_date >= ? AND record_date < ? GROUP BY " + hour + ", keyword";
+            sourceArgs = new Object[]{Timestamp.valueOf(from), Timestamp.valueOf(to), Timestamp.valueOf(from), Timestamp.valueOf(to)};
+        } else {
+            source = "SELECT bucket_day as t, keyword, cnt FROM keyword_rollup_daily WHERE bucket_day >= ? AND bucket_day < ? " +
+                    "UNION ALL " +
+                    "SELECT CAST(record_date AS DATE), keyword, COUNT(*) FROM daily_keywords WHERE " + UNCOMPACTED +
+                    " AND record_date >= ? AND record_date < ? GROUP BY CAST(record_date AS DATE), keyword";
+            sourceArgs = new Object[]{java.sql.Date.valueOf(from.toLocalDate()), java.sql.Date.valueOf(to.toLocalDate()),
+                    Timestamp.valueOf(from), Timestamp.valueOf(to)};
+        }
+        String bucket;
+        switch (granularity) {
+            case WEEKS:
+                bucket = h2 ? "DATEADD(DAY, 1 - ISO_DAY_OF_WEEK(t), t)" : "DATE_SUB(t, INTERVAL WEEKDAY(t) DAY)";
+                break;
+            case MONTHS:
+                bucket = h2 ? "CAST(DATE_TRUNC('MONTH', t) AS DATE)" : "CAST(DATE_FORMAT(t, '%Y-%m-01') AS DATE)";
+                break;
+            default:
+                bucket = "t";
+        }
+        
+        String sql = "SELECT bucket, keyword, total FROM (" +
+                    "SELECT bucket, keyword, total, " +
+                    "ROW_NUMBER() OVER (PARTITION BY bucket ORDER BY total DESC, keyword ASC) as rn FROM (" +
+                    "SELECT " + bucket + " as bucket, keyword, SUM(cnt) as total FROM (" + source + ") src " +
+                    "GROUP BY " + bucket + ", keyword" +
+                    ") grouped" +
+                    ") ranked " +
+                    "WHERE rn <= ? " +
+                    "ORDER BY bucket, rn";
+        
+        Object[] args = Arrays.copyOf(sourceArgs, sourceArgs.length + 1);
+        args[sourceArgs.length] = limit;
+        Map<LocalDateTime, KeywordCounts> buckets = new TreeMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> buckets
+                .computeIfAbsent(rs.getTimestamp(1).toLocalDateTime(), start -> new KeywordCounts(Math.min(limit, 64)))
+                .add(rs.getString(2), rs.getInt(3)), args);
+        return buckets;
+    }
+
+    @Override
+    public void batchUpsertKeywordRollups(Map<LocalDateTime, Map<String, Integer>> countsByHour) {
+        if (countsByHour.isEmpty()) {
+            return;
+        }
+        // Sorted by bucket and keyword so concurrent batches lock rows in the same order
+        Map<java.sql.Date, Map<String, Integer>> countsByDay = new TreeMap<>();
+        List<Object[]> hourlyArgs = new ArrayList<>();
+        for (Map.Entry<LocalDateTime, Map<String, Integer>> hour : new TreeMap<>(countsByHour).entrySet()) {
+            Map<String, Integer> dayCounts = countsByDay.computeIfAbsent(
+                    java.sql.Date.valueOf(hour.getKey().toLocalDate()), day -> new TreeMap<>());
+            for (Map.Entry<String, Integer> keyword : new TreeMap<>(hour.getValue()).entrySet()) {
+                hourlyArgs.add(new Object[]{Timestamp.valueOf(hour.getKey()), keyword.getKey(), keyword.getValue()});
+                dayCounts.merge(keyword.getKey(), keyword.getValue(), Integer::sum);
+            }
+        }
+        List<Object[]> dailyArgs = new ArrayList<>();
+        for (Map.Entry<java.sql.Date, Map<String, Integer>> day : countsByDay.entrySet()) {
+            for (Map.Entry<String, Integer> keyword : day.getValue().entrySet()) {
+                dailyArgs.add(new Object[]{day.getKey(), keyword.getKey(), keyword.getValue()});
+            }
+        }
+        
+        System.out.println("Batch upserting keyword rollups: " + hourlyArgs.size() + " hourly, " + dailyArgs.size() + " daily");
+        
+        jdbcTemplate.batchUpdate(upsertRollupSql("keyword_rollup_hourly", "bucket_start", "TIMESTAMP"), hourlyArgs);
+        jdbcTemplate.batchUpdate(upsertRollupSql("keyword_rollup_daily", "bucket_day", "DATE"), dailyArgs);
+    }
+
+    @Override
+    public long getMaxKeywordId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM daily_keywords", Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    @Override
+    public long lockKeywordRollupWatermark() {
+        return jdbcTemplate.queryForObject(
+                "SELECT last_keyword_id FROM keyword_rollup_watermark WHERE id = 1 FOR UPDATE", Long.class);
+    }
+
+    @Override
+    public void updateKeywordRollupWatermark(long lastKeywordId) {
+        jdbcTemplate.update("UPDATE keyword_rollup_watermark SET last_keyword_id = ? WHERE id = 1", lastKeywordId);
+    }
+
+    @Override
+    public Map<LocalDateTime, Map<String, Integer>> getKeywordCountsByHour(long afterId, long toId) {
+        String hour = dialect() == SqlDialect.H2
+                ? "DATE_TRUNC('HOUR', record_date)"
+                : "DATE_FORMAT(record_date, '%Y-%m-%d %H:00:00')";
+        String sql = "SELECT " + hour + " as bucket_start, keyword, COUNT(*) as cnt FROM daily_keywords " +
+                    "WHERE id > ? AND id <= ? " +
+                    "GROUP BY " + hour + ", keyword";
+        
+        Map<LocalDateTime, Map<String, Integer>> countsByHour = new TreeMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> countsByHour
+                .computeIfAbsent(rs.getTimestamp(1).toLocalDateTime(), bucket -> new TreeMap<>())
+                .put(rs.getString(2), rs.getInt(3)), afterId, toId);
+        return countsByHour;
+    }
+
+    @Override
+    public List<Map<String, Object>> getKeywordDailyCounts(LocalDate fromDay, LocalDate toDay) {
+        String sql = "SELECT bucket_day as day, keyword, SUM(cnt) as count FROM (" +
+                    "SELECT bucket_day, keyword, cnt FROM keyword_rollup_daily WHERE bucket_day >= ? AND bucket_day <= ? " +
+                    "UNION ALL " +
+                    "SELECT CAST(record_date AS DATE) as bucket_day, keyword, COUNT(*) as cnt FROM daily_keywords " +
+                    "WHERE " + UNCOMPACTED + " AND record_date >= ? AND record_date < ? " +
+                    "GROUP BY CAST(record_date AS DATE), keyword" +
+                    ") days " +
+                    "GROUP BY bucket_day, keyword";
+        
+        return jdbcTemplate.queryForList(sql, java.sql.Date.valueOf(fromDay), java.sql.Date.valueOf(toDay),
+                Timestamp.valueOf(fromDay.atStartOfDay()), Timestamp.valueOf(toDay.plusDays(1).atStartOfDay()));
+    }
+
+    @Override
+    public List<Map<String, Object>> getKeywordDailyRollups(LocalDate fromDay, LocalDate toDay) {
+        String sql = "SELECT bucket_day as day, keyword, cnt as count FROM keyword_rollup_daily " +
+                    "WHERE bucket_day >= ? AND bucket_day <= ?";
+        
+        return jdbcTemplate.queryForList(sql, java.sql.Date.valueOf(fromDay), java.sql.Date.valueOf(toDay));
+    }
+
+    @Override
+    public List<LocalDate> getDaysWithStaleKeywordSketch() {
+        String sql = "SELECT r.bucket_day FROM (" +
+                    "SELECT bucket_day, SUM(cnt) as total FROM keyword_rollup_daily GROUP BY bucket_day" +
+                    ") r " +
+                    "LEFT JOIN keyword_sketches s ON s.bucket_day = r.bucket_day " +
+                    "WHERE s.sketch IS NULL OR s.total <> r.total ORDER BY r.bucket_day";
+        
+        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getDate(1).toLocalDate());
+    }
+
+    @Override
+    public void saveKeywordSketch(LocalDate day, long total, byte[] sketch) {
+        String sql;
+        if (dialect() == SqlDialect.H2) {
+            sql = "MERGE INTO keyword_sketches t " +
+                  "USING (VALUES (CAST(? AS DATE), CAST(? AS BIGINT), CAST(? AS VARBINARY))) s(bucket_day, total, sketch) " +
+                  "ON t.bucket_day = s.bucket_day " +
+                  "WHEN MATCHED THEN UPDATE SET total = s.total, sketch = s.sketch " +
+                  "WHEN NOT MATCHED THEN INSERT (bucket_day, total, sketch) VALUES (s.bucket_day, s.total, s.sketch)";
+        } else {
+            sql = "INSERT INTO keyword_sketches (bucket_day, total, sketch) VALUES (?, ?, ?) " +
+                  "ON DUPLICATE KEY UPDATE total = VALUES(total), sketch = VALUES(sketch)";
+        }
+        jdbcTemplate.update(sql, java.sql.Date.valueOf(day), total, sketch);
+    }
+
+    @Override
+    public List<byte[]> getKeywordSketches(LocalDate fromDay, LocalDate toDay) {
+        String sql = "SELECT sketch FROM keyword_sketches WHERE bucket_day >= ? AND bucket_day <= ? AND sketch IS NOT NULL";
+        
+        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getBytes(1),
+                java.sql.Date.valueOf(fromDay), java.sql.Date.valueOf(toDay));
+    }
+
+    @Override
+    public SentimentSeries getSentimentChartDataSince(LocalDateTime since) {
+        String sql = "SELECT day as date, positive, negative, neutral FROM sentiment_summary " +
+                    "WHERE updated_at >= ? ORDER BY day ASC";
+        
+        System.out.println("Executing sentiment delta SQL since: " + since);
+        
+        return jdbcTemplate.query(sql, DAILY_SENTIMENT, Timestamp.valueOf(since));
+    }
+
+    @Override
+    public LocalDateTime getDatabaseTime() {
+        return jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP(3)", Timestamp.class).toLocalDateTime();
+    }
+
+    @Override
+    public LocalDate getMaxSentimentDay() {
+        java.sql.Date day = jdbcTemplate.queryForObject("SELECT MAX(day) FROM sentiment_summary", java.sql.Date.class);
+        return day == null ? null : day.toLocalDate();
+    }
+
+    @Override
+    public SentimentSeries getAllSentimentChartData() {
+        // One row per day (unique key on day), so no grouping is needed and the
+        // ORDER BY is served by the unique index
+        String sql = "SELECT day as date, positive, negative, neutral " +
                     "FROM sentiment_summary " +
-                    "GROUP BY DATE(record_date) " +
-                    "ORDER BY DATE(record_date) ASC";
+                    "ORDER BY day ASC";
         
         System.out.println("Executing all sentiment chart SQL: " + sql);
         
-        List<Map<String, Object>> result = jdbcTemplate.queryForList(sql);
+        SentimentSeries result = jdbcTemplate.query(sql, DAILY_SENTIMENT);
         System.out.println("All sentiment chart query result size: " + result.size());
         
         return result;
@@ -82,41 +403,135 @@ public class DashboardRepositoryImpl implements DashboardRepository {
     }
 
     @Override
-    public boolean existsSentimentRecordForDate(java.sql.Date date) {
-        String sql = "SELECT COUNT(*) FROM sentiment_summary WHERE DATE(record_date) = ?";
-        
-        System.out.println("Checking if sentiment record exists for date: " + date);
+    public int batchInsertEmotionKeywords(List<DailyKeyword> keywords) {
+        if (keywords.isEmpty()) {
+            return 0;
+        }
+        String sql = "INSERT INTO daily_keywords (keyword, record_date) VALUES (?, ?)";
         
-        int count = jdbcTemplate.queryForObject(sql, Integer.class, date);
-        boolean exists = count > 0;
+        List<Object[]> batchArgs = new ArrayList<>(keywords.size());
+        for (DailyKeyword keyword : keywords) {
+            batchArgs.add(new Object[]{keyword.getKeyword(), Timestamp.valueOf(keyword.getRecordDate())});
+        }
         
-        System.out.println("Sentiment record exists for date " + date + ": " + exists);
+        System.out.println("Batch inserting emotion keywords: " + batchArgs.size());
         
-        return exists;
+        int inserted = 0;
+        for (int count : jdbcTemplate.batchUpdate(sql, batchArgs)) {
+            // Drivers may report SUCCESS_NO_INFO (-2) for rewritten batches
+            inserted += count > 0 ? count : 1;
+        }
+        return inserted;
     }
 
     @Override
-    public void insertSentimentRecord(java.sql.Date date, int positive, int negative, int neutral) {
-        String sql = "INSERT INTO sentiment_summary (record_date, positive, negative, neutral) VALUES (?, ?, ?, ?)";
-        
-        System.out.println("Inserting new sentiment record for date: " + date + 
-                          " positive: " + positive + " negative: " + negative + " neutral: " + neutral);
+    public void upsertSentimentCounts(java.sql.Date date, int positive, int negative, int neutral) {
+        System.out.println("Upserting sentiment counts for date: " + date + 
+                          " positive: +" + positive + " negative: +" + negative + " neutral: +" + neutral);
         
-        jdbcTemplate.update(sql, date, positive, negative, neutral);
+        upsertSentiment(new Object[]{date, date, positive, negative, neutral});
     }
 
     @Override
-    public void updateSentimentCounts(java.sql.Date date, int positive, int negative, int neutral) {
-        String sql = "UPDATE sentiment_summary SET positive = positive + ?, negative = negative + ?, neutral = neutral + ? WHERE DATE(record_date) = ?";
+    public void batchUpsertSentimentCounts(Map<java.sql.Date, int[]> countsByDate) {
+        if (countsByDate.isEmpty()) {
+            return;
+        }
+        // Sorted by date so concurrent batches lock day rows in the same order
+        List<Object[]> batchArgs = new ArrayList<>(countsByDate.size());
+        for (Map.Entry<java.sql.Date, int[]> entry : new TreeMap<>(countsByDate).entrySet()) {
+            int[] counts = entry.getValue();
+            batchArgs.add(new Object[]{entry.getKey(), entry.getKey(), counts[0], counts[1], counts[2]});
+        }
         
-        System.out.println("Updating sentiment counts for date: " + date + 
-                          " positive: +" + positive + " negative: +" + negative + " neutral: +" + neutral);
+        System.out.println("Batch upserting sentiment counts for days: " + batchArgs.size());
         
-        jdbcTemplate.update(sql, positive, negative, neutral, date);
+        if (dialect() == SqlDialect.H2) {
+            for (Object[] args : batchArgs) {
+                upsertSentiment(args);
+            }
+            return;
+        }
+        jdbcTemplate.batchUpdate(upsertSentimentSql(), batchArgs);
+    }
+
+    /**
+     * Run the sentiment upsert for one day
+     * Two H2 MERGEs creating the same day at once both take the insert branch and one fails
+     * on the unique key; the failed statement is rolled back on its own, and running it again
+     * takes the update branch. MySQL's upsert has no such window.
+     */
+    private void upsertSentiment(Object[] args) {
+        try {
+            jdbcTemplate.update(upsertSentimentSql(), args);
+        } catch (DuplicateKeyException e) {
+            if (dialect() != SqlDialect.H2) {
+                throw e;
+            }
+            jdbcTemplate.update(upsertSentimentSql(), args);
+        }
+    }
+
+    /**
+     * Upsert statement for sentiment_summary, relies on the unique key on day
+     * record_date is kept filled for older readers of the table, updated_at feeds the chart delta API
+     * Parameters: day, record_date, positive, negative, neutral
+     */
+    private String upsertSentimentSql() {
+        if (dialect() == SqlDialect.H2) {
+            return "MERGE INTO sentiment_summary t " +
+                   "USING (VALUES (CAST(? AS DATE), CAST(? AS DATE), CAST(? AS INT), CAST(? AS INT), CAST(? AS INT))) " +
+                   "s(day, record_date, positive, negative, neutral) " +
+                   "ON t.day = s.day " +
+                   "WHEN MATCHED THEN UPDATE SET positive = t.positive + s.positive, " +
+                   "negative = t.negative + s.negative, neutral = t.neutral + s.neutral, " +
+                   "updated_at = CURRENT_TIMESTAMP(3) " +
+                   "WHEN NOT MATCHED THEN INSERT (day, record_date, positive, negative, neutral, updated_at) " +
+                   "VALUES (s.day, s.record_date, s.positive, s.negative, s.neutral, CURRENT_TIMESTAMP(3))";
+        }
+        return "INSERT INTO sentiment_summary (day, record_date, positive, negative, neutral, updated_at) " +
+               "VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP(3)) " +
+               "ON DUPLICATE KEY UPDATE positive = positive + VALUES(positive), " +
+               "negative = negative + VALUES(negative), neutral = neutral + VALUES(neutral), " +
+               "updated_at = CURRENT_TIMESTAMP(3)";
+    }
+
+    /**
+     * Upsert statement for a keyword rollup table, keyed by (bucket, keyword)
+     * Parameters: bucket, keyword, count increment
+     */
+    private String upsertRollupSql(String table, String bucketColumn, String bucketType) {
+        if (dialect() == SqlDialect.H2) {
+            return "MERGE INTO " + table + " t " +
+                   "USING (VALUES (CAST(? AS " + bucketType + "), CAST(? AS VARCHAR), CAST(? AS INT))) " +
+                   "s(bucket, keyword, cnt) " +
+                   "ON t." + bucketColumn + " = s.bucket AND t.keyword = s.keyword " +
+                   "WHEN MATCHED THEN UPDATE SET cnt = t.cnt + s.cnt " +
+                   "WHEN NOT MATCHED THEN INSERT (" + bucketColumn + ", keyword, cnt) VALUES (s.bucket, s.keyword, s.cnt)";
+        }
+        return "INSERT INTO " + table + " (" + bucketColumn + ", keyword, cnt) VALUES (?, ?, ?) " +
+               "ON DUPLICATE KEY UPDATE cnt = cnt + VALUES(cnt)";
+    }
+
+    /**
+     * Round a time up to the next unit boundary (unchanged if already on one)
+     */
+    private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime floor = time.truncatedTo(unit);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+
+    private SqlDialect dialect() {
+        SqlDialect current = dialect;
+        if (current == null) {
+            current = SqlDialect.detect(jdbcTemplate);
+            dialect = current;
+        }
+        return current;
     }
 
     @Override
-    public List<Map<String, Object>> getTwitterSentimentChartData() {
+    public SentimentSeries getTwitterSentimentChartData() {
         String sql = "SELECT YEAR(publishedat) as date, " +
                     "SUM(CASE WHEN sentiment = 'Positive' THEN 1 ELSE 0 END) as positive, " +
                     "SUM(CASE WHEN sentiment = 'Negative' THEN 1 ELSE 0 END) as negative, " +
@@ -128,9 +543,69 @@ public class DashboardRepositoryImpl implements DashboardRepository {
         
         System.out.println("Executing twitter sentiment chart SQL (AU only, yearly): " + sql);
         
-        List<Map<String, Object>> result = jdbcTemplate.queryForList(sql);
+        SentimentSeries result = jdbcTemplate.query(sql, YEARLY_SENTIMENT);
         System.out.println("Twitter sentiment chart query result size (AU): " + result.size());
         
         return result;
     }
+
+    @Override
+    public Map<String, Object> getTwitterSourceState() {
+        return jdbcTemplate.queryForMap("SELECT COUNT(*) as rows_count, MAX(publishedat) as max_published FROM twitter_comments_time");
+    }
+
+    @Override
+    public Map<String, Object> getTwitterAggregateState() {
+        List<Map<String, Object>> state = jdbcTemplate.queryForList(
+                "SELECT source_rows as rows_count, source_max_published as max_published FROM twitter_sentiment_agg_state WHERE id = 1");
+        return state.isEmpty() ? null : state.get(0);
+    }
+
+    @Override
+    public void rebuildTwitterAggregate(long sourceRows, LocalDateTime sourceMaxPublished) {
+        String month = dialect() == SqlDialect.H2
+                ? "CAST(DATE_TRUNC('MONTH', publishedat) AS DATE)"
+                : "CAST(DATE_FORMAT(publishedat, '%Y-%m-01') AS DATE)";
+        
+        jdbcTemplate.update("DELETE FROM twitter_sentiment_agg");
+        int rows = jdbcTemplate.update("INSERT INTO twitter_sentiment_agg (countrycode, period_month, sentiment, cnt) " +
+                "SELECT countrycode, " + month + ", sentiment, COUNT(*) FROM twitter_comments_time " +
+                "WHERE countrycode IS NOT NULL AND publishedat IS NOT NULL AND sentiment IS NOT NULL " +
+                "GROUP BY countrycode, " + month + ", sentiment");
+        
+        jdbcTemplate.update("DELETE FROM twitter_sentiment_agg_state");
+        jdbcTemplate.update("INSERT INTO twitter_sentiment_agg_state (id, source_rows, source_max_published, refreshed_at) " +
+                "VALUES (1, ?, ?, ?)",
+                sourceRows, sourceMaxPublished == null ? null : Timestamp.valueOf(sourceMaxPublished),
+                Timestamp.valueOf(LocalDateTime.now()));
+        
+        System.out.println("Rebuilt twitter sentiment aggregate: " + rows + " rows from " + sourceRows + " source rows");
+    }
+
+    @Override
+    public SentimentSeries getTwitterSentimentChartDataFromAggregate() {
+        String sql = "SELECT YEAR(period_month) as date, " +
+                    "SUM(CASE WHEN sentiment = 'Positive' THEN cnt ELSE 0 END) as positive, " +
+                    "SUM(CASE WHEN sentiment = 'Negative' THEN cnt ELSE 0 END) as negative, " +
+                    "SUM(CASE WHEN sentiment = 'Neutral' THEN cnt ELSE 0 END) as neutral " +
+                    "FROM twitter_sentiment_agg " +
+                    "WHERE countrycode = 'AU' " +
+                    "GROUP BY YEAR(period_month) " +
+                    "ORDER BY YEAR(period_month) ASC";
+        
+        return jdbcTemplate.query(sql, YEARLY_SENTIMENT);
+    }
+
+    @Override
+    public void forEachTwitterComment(RowCallbackHandler handler) {
+        String sql = "SELECT countrycode, publishedat, sentiment FROM twitter_comments_time";
+        // MySQL streams row by row only with this fetch size, other drivers take it as a batch size
+        int fetchSize = dialect() == SqlDialect.MYSQL ? Integer.MIN_VALUE : 1000;
+        
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, handler);
+    }
 }
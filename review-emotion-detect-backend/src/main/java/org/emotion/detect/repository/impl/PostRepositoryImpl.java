@@ -1,8 +1,10 @@
 package org.emotion.detect.repository.impl;
 
 import org.emotion.detect.entity.Post;
+import org.emotion.detect.entity.PostEmotion;
 import org.emotion.detect.repository.PostRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -13,8 +15,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Implementation of PostRepository
@@ -26,6 +33,13 @@ public class PostRepositoryImpl implements PostRepository {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    /** Rows per round trip when streaming posts on drivers that fetch in batches */
+    @Value("${posts.stream.fetch-size:500}")
+    private int streamFetchSize;
+
+    /** Detected on first use, see {@link SqlDialect#detect(JdbcTemplate)} */
+    private volatile SqlDialect dialect;
+
     private final RowMapper<Post> postRowMapper = new RowMapper<Post>() {
         @Override
         public Post mapRow(ResultSet rs, int rowNum) throws SQLException {
@@ -43,26 +57,155 @@ public class PostRepositoryImpl implements PostRepository {
         String sql = "INSERT INTO anonymous_posts (content, bg_color, created_at) VALUES (?, ?, ?)";
         
         KeyHolder keyHolder = new GeneratedKeyHolder();
+        // Whole seconds, so the returned post carries exactly the stored created_at
+        // (a DATETIME column would round fractions) and cursors built from it line up
+        LocalDateTime createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
         
         jdbcTemplate.update(connection -> {
             PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             ps.setString(1, post.getContent());
             ps.setString(2, post.getBgColor());
-            ps.setObject(3, LocalDateTime.now());
+            ps.setObject(3, createdAt);
             return ps;
         }, keyHolder);
         
         // Set the generated ID
         post.setPostId(keyHolder.getKey().intValue());
-        post.setCreatedAt(LocalDateTime.now());
+        post.setCreatedAt(createdAt);
         
         return post;
     }
 
+    @Override
+    public List<Post> saveAll(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return posts;
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO anonymous_posts (content, bg_color, created_at) VALUES ");
+        for (int i = 0; i < posts.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+        
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        LocalDateTime createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS);
+            int index = 1;
+            for (Post post : posts) {
+                ps.setString(index++, post.getContent());
+                ps.setString(index++, post.getBgColor());
+                ps.setObject(index++, createdAt);
+            }
+            return ps;
+        }, keyHolder);
+        
+        // One generated key per row, in insert order
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != posts.size()) {
+            throw new IllegalStateException("Expected " + posts.size() + " generated keys, got " + keys.size());
+        }
+        for (int i = 0; i < posts.size(); i++) {
+            Post post = posts.get(i);
+            post.setPostId(((Number) keys.get(i).values().iterator().next()).intValue());
+            post.setCreatedAt(createdAt);
+        }
+        
+        return posts;
+    }
+
     @Override
     public List<Post> findAll() {
         String sql = "SELECT post_id, content, bg_color, created_at FROM anonymous_posts ORDER BY created_at DESC";
         return jdbcTemplate.query(sql, postRowMapper);
     }
-}
 
+    @Override
+    public List<Post> findByIds(int[] postIds) {
+        if (postIds.length == 0) {
+            return new ArrayList<>();
+        }
+        StringBuilder sql = new StringBuilder("SELECT post_id, content, bg_color, created_at FROM anonymous_posts WHERE post_id IN (");
+        Object[] args = new Object[postIds.length];
+        for (int i = 0; i < postIds.length; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+            args[i] = postIds[i];
+        }
+        sql.append(")");
+        return jdbcTemplate.query(sql.toString(), postRowMapper, args);
+    }
+
+    @Override
+    public List<Post> findPage(LocalDateTime beforeCreatedAt, Integer beforePostId, int limit) {
+        if (beforeCreatedAt == null || beforePostId == null) {
+            String sql = "SELECT post_id, content, bg_color, created_at FROM anonymous_posts " +
+                        "ORDER BY created_at DESC, post_id DESC LIMIT ?";
+            return jdbcTemplate.query(sql, postRowMapper, limit);
+        }
+        // Expanded row comparison (created_at, post_id) < (?, ?), which both databases
+        // turn into a range scan on idx_anonymous_posts_created_post
+        String sql = "SELECT post_id, content, bg_color, created_at FROM anonymous_posts " +
+                    "WHERE created_at < ? OR (created_at = ? AND post_id < ?) " +
+                    "ORDER BY created_at DESC, post_id DESC LIMIT ?";
+        Timestamp before = Timestamp.valueOf(beforeCreatedAt);
+        return jdbcTemplate.query(sql, postRowMapper, before, before, beforePostId, limit);
+    }
+
+    @Override
+    public void forEachPost(Consumer<Post> consumer) {
+        String sql = "SELECT post_id, content, bg_color, created_at FROM anonymous_posts " +
+                    "ORDER BY created_at DESC, post_id DESC";
+        // MySQL streams row by row only with this fetch size, other drivers take it as a batch size
+        int fetchSize = dialect() == SqlDialect.MYSQL ? Integer.MIN_VALUE : streamFetchSize;
+        
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, rs -> {
+            consumer.accept(postRowMapper.mapRow(rs, 0));
+        });
+    }
+
+    @Override
+    public void batchSavePostEmotions(List<PostEmotion> emotions) {
+        if (emotions.isEmpty()) {
+            return;
+        }
+        String sql = dialect() == SqlDialect.H2
+                ? "MERGE INTO post_emotions (post_id, label, score, sentiment, classified_at) KEY (post_id) VALUES (?, ?, ?, ?, ?)"
+                : "INSERT INTO post_emotions (post_id, label, score, sentiment, classified_at) VALUES (?, ?, ?, ?, ?) " +
+                  "ON DUPLICATE KEY UPDATE label = VALUES(label), score = VALUES(score), " +
+                  "sentiment = VALUES(sentiment), classified_at = VALUES(classified_at)";
+        
+        List<Object[]> args = new ArrayList<>(emotions.size());
+        for (PostEmotion emotion : emotions) {
+            args.add(new Object[]{emotion.getPostId(), emotion.getLabel(), emotion.getScore(),
+                    emotion.getSentiment(), Timestamp.valueOf(emotion.getClassifiedAt())});
+        }
+        jdbcTemplate.batchUpdate(sql, args);
+    }
+
+    @Override
+    public List<Integer> findUnclassifiedPostIds(Integer beforePostId, int limit) {
+        if (beforePostId == null) {
+            String sql = "SELECT p.post_id FROM anonymous_posts p " +
+                        "LEFT JOIN post_emotions e ON e.post_id = p.post_id " +
+                        "WHERE e.post_id IS NULL ORDER BY p.post_id DESC LIMIT ?";
+            return jdbcTemplate.queryForList(sql, Integer.class, limit);
+        }
+        String sql = "SELECT p.post_id FROM anonymous_posts p " +
+                    "LEFT JOIN post_emotions e ON e.post_id = p.post_id " +
+                    "WHERE p.post_id < ? AND e.post_id IS NULL ORDER BY p.post_id DESC LIMIT ?";
+        return jdbcTemplate.queryForList(sql, Integer.class, beforePostId, limit);
+    }
+
+    private SqlDialect dialect() {
+        SqlDialect current = dialect;
+        if (current == null) {
+            current = SqlDialect.detect(jdbcTemplate);
+            dialect = current;
+        }
+        return current;
+    }
+}
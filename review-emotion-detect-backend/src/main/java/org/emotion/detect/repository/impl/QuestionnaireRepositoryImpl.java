@@ -48,4 +48,10 @@ public class QuestionnaireRepositoryImpl implements QuestionnaireRepository {
             return new java.util.ArrayList<>();
         }
     }
+
+    @Override
+    public List<LabeledComment> findAllLabeledComments() {
+        String sql = "SELECT comment_id, scenario, text_natural, fine_labels, ekman_labels FROM scenarios_comments";
+        return jdbcTemplate.query(sql, labeledCommentRowMapper);
+    }
 }
@@ -0,0 +1,30 @@
+package org.emotion.detect.repository.impl;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * SQL dialects the repositories know how to talk to
+ * Production runs on MySQL, H2 is used for local runs, so statements that are not
+ * portable (upserts mostly) come in one variant per dialect
+ */
+public enum SqlDialect {
+    /** MySQL 8, the production database */
+    MYSQL,
+    /** H2 2.x, used for local runs */
+    H2;
+
+    /**
+     * Detect the dialect from the database behind a JdbcTemplate
+     * @param jdbcTemplate the template to inspect
+     * @return H2 when the product name says so, MYSQL otherwise
+     */
+    public static SqlDialect detect(JdbcTemplate jdbcTemplate) {
+        String productName = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (productName != null && productName.toLowerCase().contains("h2")) {
+            return H2;
+        }
+        return MYSQL;
+    }
+}
@@ -0,0 +1,343 @@
+package org.emotion.detect.search;
+
+import org.emotion.detect.entity.Post;
+import org.emotion.detect.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over anonymous post content
+ * Content is split into lowercased letter/digit runs; every term maps to a sorted int[]
+ * posting list of post_ids. Only ids are kept, the posts themselves are read back from the
+ * database by id for the page being returned. Built from a streaming scan at startup and
+ * updated by PostServiceImpl after each save. A failed build is retried in the background
+ * with exponential backoff; until one succeeds searches are refused.
+ */
+@Component
+public class PostSearchIndex {
+
+    /** Longer runs are cut, they are nearly always pasted junk */
+    private static final int MAX_TERM_LENGTH = 64;
+
+    /** Rough JVM sizes used for the memory estimate */
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int MAP_ENTRY_BYTES = 48;
+    private static final int STRING_BYTES = 40;
+    private static final int POSTING_LIST_BYTES = 24;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Value("${posts.search.enabled:true}")
+    private boolean enabled;
+
+    /** Delay before the first retry of a failed build, doubled after every further failure */
+    @Value("${posts.search.retry-initial-delay-ms:1000}")
+    private long retryInitialDelayMs;
+
+    /** Upper bound of the delay between build retries */
+    @Value("${posts.search.retry-max-delay-ms:60000}")
+    private long retryMaxDelayMs;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int indexedPosts;
+
+    private volatile boolean ready;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "post-search-index-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        buildOrRetry(retryInitialDelayMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Build the index from the posts table
+     * @return true once the index is ready, false if the scan failed
+     */
+    public boolean build() {
+        long startedAt = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            indexedPosts = 0;
+            // The scan is newest first, so lists fill in descending order and are sorted once at the end
+            postRepository.forEachPost(post -> addUnsorted(post.getPostId(), post.getContent()));
+            for (PostingList list : postings.values()) {
+                list.sortAndTrim();
+            }
+            ready = true;
+            System.out.println("Post search index built: " + indexedPosts + " posts, " + postings.size()
+                    + " terms in " + (System.currentTimeMillis() - startedAt) + "ms");
+            return true;
+        } catch (Exception e) {
+            postings.clear();
+            indexedPosts = 0;
+            System.err.println("Error building post search index: " + e.getMessage());
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void buildOrRetry(long delayMs) {
+        if (!build()) {
+            System.err.println("Post search index will retry in " + delayMs + "ms");
+            scheduler.schedule(() -> buildOrRetry(Math.min(delayMs * 2, retryMaxDelayMs)), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return true once the index covers the posts table
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Index a saved post
+     * A post saved while a build is scanning waits for the build and is then inserted; posts
+     * saved while no build has succeeded are picked up by the retry's scan.
+     * @param post the post as stored, with its ID
+     */
+    public void add(Post post) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                return;
+            }
+            indexedPosts++;
+            for (String term : tokenize(post.getContent())) {
+                postings.computeIfAbsent(term, key -> new PostingList()).insert(post.getPostId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find posts by content terms, highest post_id first
+     * @param query free text, split into terms like the content
+     * @param matchAll true to require every term (AND), false for any term (OR)
+     * @param beforePostId only ids below this one, null for the first page
+     * @param limit maximum number of ids
+     * @return matching post_ids in descending order
+     */
+    public int[] search(String query, boolean matchAll, Integer beforePostId, int limit) {
+        if (!ready) {
+            throw new IllegalStateException("Post search index is not ready");
+        }
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Query has no searchable terms");
+        }
+        int upper = beforePostId == null ? Integer.MAX_VALUE : beforePostId;
+
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list != null) {
+                    lists.add(list);
+                } else if (matchAll) {
+                    return new int[0];
+                }
+            }
+            if (lists.isEmpty()) {
+                return new int[0];
+            }
+            return matchAll ? intersect(lists, upper, limit) : union(lists, upper, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return index size and an estimate of its heap use
+     */
+    public PostSearchStats getStats() {
+        lock.readLock().lock();
+        try {
+            long postingCount = 0;
+            long bytes = 0;
+            for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                PostingList list = entry.getValue();
+                postingCount += list.size;
+                bytes += MAP_ENTRY_BYTES + STRING_BYTES + entry.getKey().length()
+                        + POSTING_LIST_BYTES + ARRAY_HEADER_BYTES + 4L * list.ids.length;
+            }
+            PostSearchStats stats = new PostSearchStats();
+            stats.setIndexedPosts(indexedPosts);
+            stats.setTerms(postings.size());
+            stats.setPostings(postingCount);
+            stats.setEstimatedBytes(bytes);
+            stats.setBytesPerPost(indexedPosts == 0 ? 0.0 : (double) bytes / indexedPosts);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addUnsorted(int postId, String content) {
+        indexedPosts++;
+        for (String term : tokenize(content)) {
+            postings.computeIfAbsent(term, key -> new PostingList()).append(postId);
+        }
+    }
+
+    /**
+     * Walk the shortest list downwards and probe the others by binary search
+     */
+    private static int[] intersect(List<PostingList> lists, int upper, int limit) {
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        PostingList shortest = lists.get(0);
+        int[] result = new int[Math.min(limit, shortest.size)];
+        int found = 0;
+        for (int i = shortest.floorIndex(upper); i >= 0 && found < result.length; i--) {
+            int id = shortest.ids[i];
+            boolean inAll = true;
+            for (int l = 1; l < lists.size() && inAll; l++) {
+                inAll = lists.get(l).contains(id);
+            }
+            if (inAll) {
+                result[found++] = id;
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    /**
+     * Merge the lists downwards from their positions below the cursor, skipping duplicates
+     */
+    private static int[] union(List<PostingList> lists, int upper, int limit) {
+        int[] positions = new int[lists.size()];
+        for (int l = 0; l < positions.length; l++) {
+            positions[l] = lists.get(l).floorIndex(upper);
+        }
+        int[] result = new int[limit];
+        int found = 0;
+        while (found < limit) {
+            int next = -1;
+            for (int l = 0; l < positions.length; l++) {
+                if (positions[l] >= 0) {
+                    next = Math.max(next, lists.get(l).ids[positions[l]]);
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            result[found++] = next;
+            for (int l = 0; l < positions.length; l++) {
+                if (positions[l] >= 0 && lists.get(l).ids[positions[l]] == next) {
+                    positions[l]--;
+                }
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    /**
+     * Distinct lowercased letter/digit runs of a text, in order of first appearance
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                terms.add(text.substring(start, Math.min(i, start + MAX_TERM_LENGTH)).toLowerCase());
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Growable sorted int[] of post_ids containing one term
+     */
+    private static final class PostingList {
+        private int[] ids = new int[4];
+        private int size;
+
+        void append(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        /** Keeps the list sorted; new posts have the highest ids, so this is nearly always an append */
+        void insert(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int at = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        void sortAndTrim() {
+            Arrays.sort(ids, 0, size);
+            ids = Arrays.copyOf(ids, size);
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        /** Index of the largest id below upper, -1 if there is none */
+        int floorIndex(int upper) {
+            int index = Arrays.binarySearch(ids, 0, size, upper);
+            return (index >= 0 ? index : -index - 1) - 1;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.emotion.detect.search;
+
+import lombok.Data;
+
+/**
+ * Size of the in-memory post search index
+ * Byte figures are estimates from array and entry sizes on a 64-bit JVM
+ */
+@Data
+public class PostSearchStats {
+    /** Posts in the index */
+    private Integer indexedPosts;
+
+    /** Distinct terms */
+    private Integer terms;
+
+    /** Total (term, post) entries over all posting lists */
+    private Long postings;
+
+    /** Estimated heap used by terms and posting lists */
+    private Long estimatedBytes;
+
+    /** Estimated heap per indexed post */
+    private Double bytesPerPost;
+
+    // Manual getters and setters for compatibility
+    public Integer getIndexedPosts() { return indexedPosts; }
+    public void setIndexedPosts(Integer indexedPosts) { this.indexedPosts = indexedPosts; }
+
+    public Integer getTerms() { return terms; }
+    public void setTerms(Integer terms) { this.terms = terms; }
+
+    public Long getPostings() { return postings; }
+    public void setPostings(Long postings) { this.postings = postings; }
+
+    public Long getEstimatedBytes() { return estimatedBytes; }
+    public void setEstimatedBytes(Long estimatedBytes) { this.estimatedBytes = estimatedBytes; }
+
+    public Double getBytesPerPost() { return bytesPerPost; }
+    public void setBytesPerPost(Double bytesPerPost) { this.bytesPerPost = bytesPerPost; }
+}
@@ -1,8 +1,13 @@
 package org.emotion.detect.service;
 
+import org.emotion.detect.dto.BatchEmotionResponse;
+import org.emotion.detect.dto.EmotionRequest;
+import org.emotion.detect.dto.KeywordRangeStatsResponse;
 import org.emotion.detect.dto.KeywordStatsResponse;
 import org.emotion.detect.dto.SentimentChartResponse;
 
+import java.util.List;
+
 /**
  * Service interface for Dashboard operations
  * Handles business logic for analytics and statistics
@@ -16,6 +21,25 @@ public interface DashboardService {
      */
     KeywordStatsResponse getKeywordStats(String timePeriod);
     
+    /**
+     * Get approximate keyword statistics from the per-day keyword sketches
+     * Covers whole days and returns only the top keywords, each with error bounds
+     * @param timePeriod the time period for analysis (weekly, monthly, yearly)
+     * @param topN maximum number of keywords to return
+     * @return keyword statistics response with estimated counts and their lower bounds
+     */
+    KeywordStatsResponse getApproxKeywordStats(String timePeriod, int topN);
+    
+    /**
+     * Get the top keywords of an explicit range, overall and per calendar-aligned bucket
+     * @param from start of the range (yyyy-MM-dd or ISO date-time, inclusive)
+     * @param to end of the range (yyyy-MM-dd or ISO date-time, exclusive)
+     * @param granularity bucket size: hour, day, week or month
+     * @param topN number of keywords per bucket and for the whole range
+     * @return keyword statistics of the range widened to whole buckets
+     */
+    KeywordRangeStatsResponse getKeywordRangeStats(String from, String to, String granularity, int topN);
+    
     /**
      * Get sentiment chart data for ECharts visualization
      * Returns all sentiment data for trend analysis
@@ -23,6 +47,14 @@ public interface DashboardService {
      */
     SentimentChartResponse getSentimentChartData();
     
+    /**
+     * Get the sentiment chart days added or changed since a cursor
+     * Days already seen may be returned again; they carry their full current counts
+     * @param since the cursor of an earlier chart response
+     * @return sentiment chart response with only the changed days and a new cursor
+     */
+    SentimentChartResponse getSentimentChartDelta(String since);
+    
     /**
      * Process emotion and update both daily_keywords and sentiment_summary tables
      * @param emotion the emotion keyword to process
@@ -30,10 +62,28 @@ public interface DashboardService {
      */
     boolean processEmotion(String emotion);
     
+    /**
+     * Process a batch of emotions in one go
+     * Valid items are aggregated per day and sentiment and written with one batched
+     * keyword insert and one upsert per affected day
+     * @param emotionRequests the emotions to process, optionally with client timestamps
+     * @return per-item validation results
+     */
+    BatchEmotionResponse processEmotions(List<EmotionRequest> emotionRequests);
+    
     /**
      * Get twitter sentiment chart data for ECharts visualization
      * Returns daily sentiment data from twitter_comments_time table
      * @return sentiment chart response with date and sentiment counts
      */
     SentimentChartResponse getTwitterSentimentChartData();
+    
+    /**
+     * Get twitter sentiment counts for any set of countries at any granularity
+     * Served from the in-memory column store of twitter_comments_time
+     * @param countries country codes to include, empty for all countries
+     * @param granularity day, week, month or year
+     * @return sentiment chart response with one entry per bucket
+     */
+    SentimentChartResponse getTwitterSentimentSlice(List<String> countries, String granularity);
 }
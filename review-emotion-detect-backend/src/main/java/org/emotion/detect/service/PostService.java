@@ -1,8 +1,13 @@
 package org.emotion.detect.service;
 
+import org.emotion.detect.classify.ClassificationStats;
+import org.emotion.detect.dto.ClassifyResponse;
+import org.emotion.detect.dto.PostPageResponse;
 import org.emotion.detect.dto.PostRequest;
 import org.emotion.detect.entity.Post;
+import org.emotion.detect.search.PostSearchStats;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service interface for Post operations
@@ -22,4 +27,45 @@ public interface PostService {
      * @return list of all posts ordered by creation time (newest first)
      */
     List<Post> getAllPosts();
+    
+    /**
+     * Get one page of anonymous posts, newest first
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param limit maximum number of posts in the page
+     * @return the posts and the cursor of the next page
+     */
+    PostPageResponse getPostPage(String cursor, int limit);
+    
+    /**
+     * Hand every anonymous post to a consumer, newest first, without loading them all
+     * @param consumer called for each post
+     */
+    void forEachPost(Consumer<Post> consumer);
+    
+    /**
+     * Search anonymous posts by content terms, newest first
+     * @param query free text search terms
+     * @param mode and to require every term, or for any term
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param limit maximum number of posts in the page
+     * @return the matching posts and the cursor of the next page
+     */
+    PostPageResponse searchPosts(String query, String mode, String cursor, int limit);
+    
+    /**
+     * @return size and memory use of the post search index
+     */
+    PostSearchStats getSearchStats();
+    
+    /**
+     * @return queue depth and throughput of the background post classification
+     */
+    ClassificationStats getClassificationStats();
+    
+    /**
+     * Classify a draft text while the user waits, within the classification latency budget
+     * @param text the text to classify
+     * @return the fine emotion labels and the sentiment of the top one
+     */
+    ClassifyResponse classifyText(String text);
 }
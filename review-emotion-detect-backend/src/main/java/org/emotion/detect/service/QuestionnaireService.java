@@ -21,4 +21,10 @@ public interface QuestionnaireService {
      * @return LevelFeedbackResponse with appropriate data
      */
     LevelFeedbackResponse getLevelFeedback(int level);
+
+    /**
+     * Reload the in-memory questionnaire pool from the database
+     * @return number of comments now in the pool
+     */
+    int refreshQuestionnairePool();
 }
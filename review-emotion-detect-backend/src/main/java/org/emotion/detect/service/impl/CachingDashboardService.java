@@ -0,0 +1,153 @@
+package org.emotion.detect.service.impl;
+
+import org.emotion.detect.cache.ResultCache;
+import org.emotion.detect.dto.BatchEmotionResponse;
+import org.emotion.detect.dto.EmotionRequest;
+import org.emotion.detect.dto.KeywordRangeStatsResponse;
+import org.emotion.detect.dto.KeywordStatsResponse;
+import org.emotion.detect.dto.SentimentChartResponse;
+import org.emotion.detect.ingest.EmotionBatch;
+import org.emotion.detect.ingest.EmotionBatchWrittenEvent;
+import org.emotion.detect.service.DashboardService;
+import org.emotion.detect.stats.TwitterAggregateRefreshedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Caching decorator of DashboardServiceImpl
+ * Read results are cached in the dashboard ResultCache. Every committed emotion batch
+ * removes exactly the entries whose time range it touches: the sentiment line chart,
+ * keyword periods reaching back to the batch, and explicit ranges containing it.
+ * The twitter charts are dropped whenever the twitter aggregate is refreshed.
+ */
+@Service
+@Primary
+public class CachingDashboardService implements DashboardService {
+
+    private static final String LINE_CHART = "line-chart";
+    private static final String TWITTER_LINE_CHART = "twitter-line-chart";
+    private static final String SORT_EMOTION = "sort-emotion:";
+    private static final String KEYWORD_STATS = "keyword-stats:";
+    private static final String TWITTER_SLICE = "twitter-slice:";
+
+    @Autowired
+    private DashboardServiceImpl delegate;
+
+    @Autowired
+    private ResultCache<String, Object> dashboardResultCache;
+
+    /** Serve dashboard reads through the result cache */
+    @Value("${dashboard.cache.enabled:true}")
+    private boolean enabled;
+
+    @Override
+    public KeywordStatsResponse getKeywordStats(String timePeriod) {
+        return cached(SORT_EMOTION + timePeriod, () -> delegate.getKeywordStats(timePeriod));
+    }
+
+    @Override
+    public KeywordStatsResponse getApproxKeywordStats(String timePeriod, int topN) {
+        return cached(SORT_EMOTION + timePeriod + ":approx:" + topN, () -> delegate.getApproxKeywordStats(timePeriod, topN));
+    }
+
+    @Override
+    public KeywordRangeStatsResponse getKeywordRangeStats(String from, String to, String granularity, int topN) {
+        return cached(KEYWORD_STATS + from + ":" + to + ":" + granularity + ":" + topN,
+                () -> delegate.getKeywordRangeStats(from, to, granularity, topN));
+    }
+
+    @Override
+    public SentimentChartResponse getSentimentChartData() {
+        return cached(LINE_CHART, delegate::getSentimentChartData);
+    }
+
+    @Override
+    public SentimentChartResponse getSentimentChartDelta(String since) {
+        // Deltas are small index range reads, and their cursors make every key unique
+        return delegate.getSentimentChartDelta(since);
+    }
+
+    @Override
+    public SentimentChartResponse getTwitterSentimentChartData() {
+        return cached(TWITTER_LINE_CHART, delegate::getTwitterSentimentChartData);
+    }
+
+    @Override
+    public SentimentChartResponse getTwitterSentimentSlice(List<String> countries, String granularity) {
+        List<String> key = new ArrayList<>(new TreeSet<>(countries));
+        return cached(TWITTER_SLICE + key + ":" + granularity, () -> delegate.getTwitterSentimentSlice(countries, granularity));
+    }
+
+    @Override
+    public boolean processEmotion(String emotion) {
+        return delegate.processEmotion(emotion);
+    }
+
+    @Override
+    public BatchEmotionResponse processEmotions(List<EmotionRequest> emotionRequests) {
+        return delegate.processEmotions(emotionRequests);
+    }
+
+    /**
+     * Drop the cached results a committed batch makes stale
+     * Runs before ChartVersionTracker advances the chart version
+     * @param event the batch written event
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onBatchWritten(EmotionBatchWrittenEvent event) {
+        EmotionBatch batch = event.getBatch();
+        boolean sentimentChanged = !batch.getSentimentCounts().isEmpty();
+        Set<LocalDateTime> hours = batch.getKeywordCountsByHour().keySet();
+        LocalDateTime now = LocalDateTime.now();
+        int removed = dashboardResultCache.invalidateIf((key, value) -> {
+            if (key.equals(LINE_CHART)) {
+                return sentimentChanged;
+            }
+            if (value instanceof KeywordStatsResponse) {
+                LocalDateTime start = DashboardServiceImpl.calculateStartDate(now,
+                        ((KeywordStatsResponse) value).getTimePeriod());
+                return hours.stream().anyMatch(hour -> hour.plus(1, ChronoUnit.HOURS).isAfter(start));
+            }
+            if (value instanceof KeywordRangeStatsResponse) {
+                LocalDateTime from = LocalDateTime.parse(((KeywordRangeStatsResponse) value).getFrom());
+                LocalDateTime to = LocalDateTime.parse(((KeywordRangeStatsResponse) value).getTo());
+                return hours.stream().anyMatch(hour -> !hour.isBefore(from) && hour.isBefore(to));
+            }
+            return false;
+        });
+        if (removed > 0) {
+            System.out.println("Invalidated " + removed + " cached dashboard results");
+        }
+    }
+
+    /**
+     * Drop the cached twitter charts once the source table was reloaded
+     * @param event the aggregate refreshed event
+     */
+    @EventListener
+    public void onTwitterAggregateRefreshed(TwitterAggregateRefreshedEvent event) {
+        dashboardResultCache.invalidateIf((key, value) -> key.equals(TWITTER_LINE_CHART) || key.startsWith(TWITTER_SLICE));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String key, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return (T) dashboardResultCache.get(key, loader::get);
+    }
+}
@@ -1,13 +1,31 @@
 package org.emotion.detect.service.impl;
 
+import org.emotion.detect.dto.BatchEmotionResponse;
+import org.emotion.detect.dto.EmotionRequest;
+import org.emotion.detect.dto.KeywordRangeStatsResponse;
 import org.emotion.detect.dto.KeywordStatsResponse;
 import org.emotion.detect.dto.SentimentChartResponse;
-import org.emotion.detect.enums.SentimentType;
+import org.emotion.detect.ingest.EmotionBatch;
+import org.emotion.detect.ingest.EmotionBatchWriter;
+import org.emotion.detect.ingest.EmotionJournal;
+import org.emotion.detect.ingest.EmotionWriteBehindBuffer;
 import org.emotion.detect.repository.DashboardRepository;
+import org.emotion.detect.repository.KeywordCounts;
+import org.emotion.detect.repository.SentimentSeries;
 import org.emotion.detect.service.DashboardService;
+import org.emotion.detect.stats.KeywordRangeQuery;
+import org.emotion.detect.stats.KeywordSketch;
+import org.emotion.detect.stats.KeywordSketchStore;
+import org.emotion.detect.stats.KeywordWindowCounter;
+import org.emotion.detect.stats.TwitterColumnStore;
+import org.emotion.detect.stats.TwitterSentimentAggregator;
+import org.emotion.detect.taxonomy.EmotionTaxonomy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -27,6 +45,49 @@ public class DashboardServiceImpl implements DashboardService {
     @Autowired
     private DashboardRepository dashboardRepository;
 
+    @Autowired
+    private EmotionWriteBehindBuffer writeBehindBuffer;
+
+    @Autowired
+    private EmotionBatchWriter emotionBatchWriter;
+
+    @Autowired
+    private EmotionJournal emotionJournal;
+
+    @Autowired
+    private EmotionTaxonomy emotionTaxonomy;
+
+    @Autowired
+    private KeywordWindowCounter keywordWindowCounter;
+
+    @Autowired
+    private KeywordSketchStore keywordSketchStore;
+
+    @Autowired
+    private KeywordRangeQuery keywordRangeQuery;
+
+    @Autowired
+    private TwitterSentimentAggregator twitterSentimentAggregator;
+
+    @Autowired
+    private TwitterColumnStore twitterColumnStore;
+
+    /** How far chart cursors lag behind the database clock */
+    @Value("${dashboard.chart.cursor-lag-ms:5000}")
+    private long chartCursorLagMs;
+
+    /** Largest array accepted by the bulk endpoint */
+    @Value("${dashboard.bulk.max-items:1000}")
+    private int bulkMaxItems;
+
+    /** Oldest client timestamp accepted by the bulk endpoint */
+    @Value("${dashboard.bulk.max-event-age-days:7}")
+    private int bulkMaxEventAgeDays;
+
+    /** How far a client timestamp may run ahead of the server clock */
+    @Value("${dashboard.bulk.max-clock-skew-seconds:300}")
+    private int bulkMaxClockSkewSeconds;
+
     @Override
     public KeywordStatsResponse getKeywordStats(String timePeriod) {
         // Calculate date range based on time period
@@ -35,77 +96,148 @@ public class DashboardServiceImpl implements DashboardService {
         
         System.out.println("Calculated date range: " + startDate + " to " + endDate);
         
-        // Get all keyword statistics from repository for the time period
-        List<Map<String, Object>> keywordStats = dashboardRepository.getAllKeywordsByTimePeriod(startDate, endDate);
+        if (keywordWindowCounter.isReady()) {
+            // Answer from the in-memory window, aligned to whole days ending today
+            int dayCount = (int) ChronoUnit.DAYS.between(startDate.toLocalDate(), endDate.toLocalDate());
+            Map<String, Integer> counts = keywordWindowCounter.getCounts(endDate.toLocalDate(), dayCount);
+            return new KeywordStatsResponse(counts, timePeriod, counts.size());
+        }
+        
+        // Get all keyword statistics for the time period, mostly from the rollup tables
+        KeywordCounts keywordStats = dashboardRepository.getKeywordStatsFromRollups(startDate, endDate);
         
         // Convert to sorted map
-        Map<String, Integer> sortedStats = new LinkedHashMap<>();
-        for (Map<String, Object> stat : keywordStats) {
-            String keyword = (String) stat.get("keyword");
-            Integer count = ((Number) stat.get("count")).intValue();
-            sortedStats.put(keyword, count);
+        Map<String, Integer> sortedStats = new LinkedHashMap<>(keywordStats.size() * 4 / 3 + 1);
+        for (int i = 0; i < keywordStats.size(); i++) {
+            sortedStats.put(keywordStats.getKeyword(i), keywordStats.getCount(i));
         }
         
         return new KeywordStatsResponse(sortedStats, timePeriod, keywordStats.size());
     }
 
+    @Override
+    public KeywordStatsResponse getApproxKeywordStats(String timePeriod, int topN) {
+        if (topN < 1) {
+            throw new IllegalArgumentException("topN must be at least 1");
+        }
+        LocalDateTime endDate = LocalDateTime.now();
+        LocalDateTime startDate = calculateStartDate(endDate, timePeriod);
+        // Sketches are per day: whole days after the start day, up to and including today
+        LocalDate fromDay = startDate.toLocalDate().plusDays(1);
+        LocalDate toDay = endDate.toLocalDate();
+        
+        System.out.println("Merging keyword sketches from " + fromDay + " to " + toDay);
+        
+        KeywordSketch sketch;
+        try {
+            sketch = keywordSketchStore.merged(fromDay, toDay);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading keyword sketches", e);
+        }
+        
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        Map<String, Integer> lowerBounds = new LinkedHashMap<>();
+        for (KeywordSketch.Estimate estimate : sketch.top(topN)) {
+            counts.put(estimate.getKeyword(), (int) estimate.getCount());
+            lowerBounds.put(estimate.getKeyword(), (int) estimate.getLowerBound());
+        }
+        
+        KeywordStatsResponse response = new KeywordStatsResponse(counts, timePeriod, counts.size());
+        response.setAccuracy("approx");
+        response.setLowerBounds(lowerBounds);
+        response.setUnlistedBound(sketch.unlistedBound(topN));
+        response.setConfidence(sketch.getConfidence());
+        return response;
+    }
+
+    @Override
+    public KeywordRangeStatsResponse getKeywordRangeStats(String from, String to, String granularity, int topN) {
+        return keywordRangeQuery.query(from, to, granularity, topN);
+    }
+
     @Override
     public SentimentChartResponse getSentimentChartData() {
         System.out.println("Getting all sentiment chart data for trend analysis");
         
+        // Read the cursor first, so the response holds at least everything before it
+        String cursor = nextCursor();
+        
         // Get all sentiment chart data from repository (no date filtering)
-        List<Map<String, Object>> sentimentData = dashboardRepository.getAllSentimentChartData();
+        SentimentSeries sentimentData = dashboardRepository.getAllSentimentChartData();
         
-        // Format data for ECharts
-        List<String> dates = new ArrayList<>();
-        List<Integer> positive = new ArrayList<>();
-        List<Integer> negative = new ArrayList<>();
-        List<Integer> neutral = new ArrayList<>();
+        SentimentChartResponse response = toSentimentChart(sentimentData);
+        response.setCursor(cursor);
+        return response;
+    }
+
+    @Override
+    public SentimentChartResponse getSentimentChartDelta(String since) {
+        LocalDateTime sinceTime;
+        try {
+            sinceTime = LocalDateTime.parse(since);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid cursor: " + since);
+        }
+        System.out.println("Getting sentiment chart data changed since " + sinceTime);
         
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy.M.d");
+        String cursor = nextCursor();
+        SentimentSeries sentimentData = dashboardRepository.getSentimentChartDataSince(sinceTime);
         
-        for (Map<String, Object> data : sentimentData) {
-            // Format date for ECharts (e.g., "2024.9.10", "2024.9.11")
-            java.sql.Date sqlDate = (java.sql.Date) data.get("date");
-            LocalDateTime dateTime = sqlDate.toLocalDate().atStartOfDay();
-            String formattedDate = dateTime.format(formatter);
-            dates.add(formattedDate);
-            
-            // Get sentiment counts
-            positive.add(((Number) data.get("positive")).intValue());
-            negative.add(((Number) data.get("negative")).intValue());
-            neutral.add(((Number) data.get("neutral")).intValue());
+        SentimentChartResponse response = toSentimentChart(sentimentData);
+        response.setCursor(cursor);
+        return response;
+    }
+
+    /**
+     * Cursor for the next delta request: the database time minus a safety lag
+     * updated_at is stamped before commit, so a write committing after this read may carry an
+     * earlier stamp; going back by the lag keeps such writes inside the next delta
+     */
+    private String nextCursor() {
+        return dashboardRepository.getDatabaseTime()
+                .minus(chartCursorLagMs, ChronoUnit.MILLIS)
+                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    /**
+     * Format sentiment_summary rows as parallel ECharts series
+     */
+    private SentimentChartResponse toSentimentChart(SentimentSeries sentimentData) {
+        // Format dates for ECharts (e.g., "2024.9.10", "2024.9.11"), the counts are passed as they are
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy.M.d");
+        String[] dates = new String[sentimentData.size()];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = LocalDate.ofEpochDay(sentimentData.getKey(i)).format(formatter);
         }
         
-        return new SentimentChartResponse(dates, negative, positive, neutral);
+        return new SentimentChartResponse(dates, sentimentData.getNegative(), sentimentData.getPositive(),
+                sentimentData.getNeutral());
     }
 
     @Override
     public SentimentChartResponse getTwitterSentimentChartData() {
         System.out.println("Getting twitter sentiment chart data for yearly trend analysis");
         
-        // Get all twitter sentiment chart data from repository
-        List<Map<String, Object>> sentimentData = dashboardRepository.getTwitterSentimentChartData();
+        // Serve from the materialized aggregate once it matches the source table
+        SentimentSeries sentimentData = twitterSentimentAggregator.isReady()
+                ? dashboardRepository.getTwitterSentimentChartDataFromAggregate()
+                : dashboardRepository.getTwitterSentimentChartData();
         
-        // Format data for ECharts
-        List<String> dates = new ArrayList<>();
-        List<Integer> positive = new ArrayList<>();
-        List<Integer> negative = new ArrayList<>();
-        List<Integer> neutral = new ArrayList<>();
-        
-        for (Map<String, Object> data : sentimentData) {
-            // Format year for ECharts (e.g., "2014", "2015", "2016")
-            Integer year = ((Number) data.get("date")).intValue();
-            String formattedYear = String.valueOf(year);
-            dates.add(formattedYear);
-            
-            // Get sentiment counts
-            positive.add(((Number) data.get("positive")).intValue());
-            negative.add(((Number) data.get("negative")).intValue());
-            neutral.add(((Number) data.get("neutral")).intValue());
+        // Format years for ECharts (e.g., "2014", "2015", "2016")
+        String[] dates = new String[sentimentData.size()];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = String.valueOf(sentimentData.getKey(i));
         }
         
-        return new SentimentChartResponse(dates, negative, positive, neutral);
+        return new SentimentChartResponse(dates, sentimentData.getNegative(), sentimentData.getPositive(),
+                sentimentData.getNeutral());
+    }
+    
+    @Override
+    public SentimentChartResponse getTwitterSentimentSlice(List<String> countries, String granularity) {
+        System.out.println("Getting twitter sentiment slice for countries " + countries + ", granularity " + granularity);
+        
+        return twitterColumnStore.slice(countries, granularity);
     }
     
     @Override
@@ -113,44 +245,30 @@ public class DashboardServiceImpl implements DashboardService {
         try {
             System.out.println("Processing emotion: " + emotion);
             
-            // 1. Insert emotion into daily_keywords table
-            dashboardRepository.insertEmotionKeyword(emotion);
-            System.out.println("Successfully inserted emotion into daily_keywords: " + emotion);
-            
-            // 2. Determine sentiment type using enum
-            String sentimentType = SentimentType.getSentimentTypeString(emotion);
-            System.out.println("Determined sentiment type for '" + emotion + "': " + sentimentType);
-            
-            // 3. Get current date
-            LocalDate currentDate = LocalDate.now();
-            java.sql.Date sqlDate = java.sql.Date.valueOf(currentDate);
-            
-            // 4. Check if sentiment record exists for today
-            boolean recordExists = dashboardRepository.existsSentimentRecordForDate(sqlDate);
-            
-            // 5. Set sentiment counts based on type
-            int positive = 0, negative = 0, neutral = 0;
-            switch (sentimentType.toLowerCase()) {
-                case "positive":
-                    positive = 1;
-                    break;
-                case "negative":
-                    negative = 1;
-                    break;
-                case "neutral":
-                    neutral = 1;
-                    break;
+            // Journal mode: acknowledge once the event is in the local journal,
+            // the journal replayer writes it to the database
+            if (emotionJournal.isEnabled()) {
+                int slot = EmotionBatch.sentimentSlot(emotionTaxonomy.getSentimentTypeString(emotion));
+                emotionJournal.append(emotion, LocalDateTime.now(), slot);
+                return true;
             }
             
-            // 6. Insert or update sentiment record
-            if (recordExists) {
-                dashboardRepository.updateSentimentCounts(sqlDate, positive, negative, neutral);
-                System.out.println("Updated existing sentiment record for date: " + sqlDate);
-            } else {
-                dashboardRepository.insertSentimentRecord(sqlDate, positive, negative, neutral);
-                System.out.println("Inserted new sentiment record for date: " + sqlDate);
+            // Write-behind mode: buffer the deltas, the buffer flushes them in batches
+            if (writeBehindBuffer.offer(emotion, emotionTaxonomy.getSentimentTypeString(emotion))) {
+                return true;
             }
             
+            // 1. Determine sentiment type using the emotion taxonomy
+            String sentimentType = emotionTaxonomy.getSentimentTypeString(emotion);
+            System.out.println("Determined sentiment type for '" + emotion + "': " + sentimentType);
+            
+            // 2. Insert the keyword and upsert today's sentiment record in one transaction,
+            //    so the tables cannot drift apart
+            EmotionBatch batch = new EmotionBatch();
+            batch.add(emotion, LocalDateTime.now(), sentimentType);
+            emotionBatchWriter.write(batch);
+            System.out.println("Recorded emotion '" + emotion + "' with sentiment: " + sentimentType);
+            
             return true;
         } catch (Exception e) {
             System.err.println("Error processing emotion: " + emotion + ", Error: " + e.getMessage());
@@ -158,6 +276,65 @@ public class DashboardServiceImpl implements DashboardService {
             return false;
         }
     }
+
+    @Override
+    public BatchEmotionResponse processEmotions(List<EmotionRequest> emotionRequests) {
+        if (emotionRequests == null || emotionRequests.isEmpty()) {
+            throw new IllegalArgumentException("Emotion list cannot be empty");
+        }
+        if (emotionRequests.size() > bulkMaxItems) {
+            throw new IllegalArgumentException("Too many emotions in one request: " + emotionRequests.size()
+                    + ", at most " + bulkMaxItems + " are allowed");
+        }
+        System.out.println("Processing emotion batch of size: " + emotionRequests.size());
+        
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime oldestAllowed = now.minusDays(bulkMaxEventAgeDays);
+        LocalDateTime newestAllowed = now.plusSeconds(bulkMaxClockSkewSeconds);
+        
+        // 1. Validate every item and aggregate the valid ones per day and sentiment
+        EmotionBatch batch = new EmotionBatch();
+        List<EmotionJournal.Entry> journalEntries = new ArrayList<>();
+        List<BatchEmotionResponse.ItemResult> results = new ArrayList<>(emotionRequests.size());
+        int accepted = 0;
+        for (int i = 0; i < emotionRequests.size(); i++) {
+            EmotionRequest request = emotionRequests.get(i);
+            String emotion = request == null ? null : request.getEmotion();
+            String error = null;
+            if (emotion == null || emotion.trim().isEmpty()) {
+                error = "Emotion cannot be empty";
+            } else if (request.getTimestamp() != null && request.getTimestamp().isAfter(newestAllowed)) {
+                error = "Timestamp is in the future: " + request.getTimestamp();
+            } else if (request.getTimestamp() != null && request.getTimestamp().isBefore(oldestAllowed)) {
+                error = "Timestamp is older than " + bulkMaxEventAgeDays + " days: " + request.getTimestamp();
+            }
+            
+            if (error == null) {
+                LocalDateTime recordedAt = request.getTimestamp() != null ? request.getTimestamp() : now;
+                String sentimentType = emotionTaxonomy.getSentimentTypeString(emotion);
+                batch.add(emotion, recordedAt, sentimentType);
+                journalEntries.add(new EmotionJournal.Entry(emotion, recordedAt, EmotionBatch.sentimentSlot(sentimentType)));
+                accepted++;
+            }
+            results.add(new BatchEmotionResponse.ItemResult(i, emotion, error == null, error));
+        }
+        
+        // 2. In journal mode the batch is acknowledged once journaled, otherwise
+        //    one batched keyword insert plus one upsert per affected day
+        if (emotionJournal.isEnabled()) {
+            try {
+                emotionJournal.append(journalEntries);
+            } catch (java.io.IOException e) {
+                throw new IllegalStateException("Error writing emotion journal: " + e.getMessage(), e);
+            }
+        } else {
+            emotionBatchWriter.write(batch);
+        }
+        System.out.println("Recorded emotion batch: " + accepted + " accepted, "
+                + batch.getSentimentCounts().size() + " days affected");
+        
+        return new BatchEmotionResponse(accepted, emotionRequests.size() - accepted, results);
+    }
     
     
     /**
@@ -166,7 +343,7 @@ public class DashboardServiceImpl implements DashboardService {
      * @param timePeriod the time period (weekly, monthly, yearly)
      * @return the calculated start date
      */
-    private LocalDateTime calculateStartDate(LocalDateTime endDate, String timePeriod) {
+    static LocalDateTime calculateStartDate(LocalDateTime endDate, String timePeriod) {
         switch (timePeriod.toLowerCase()) {
             case "weekly":
                 return endDate.minus(7, ChronoUnit.DAYS);
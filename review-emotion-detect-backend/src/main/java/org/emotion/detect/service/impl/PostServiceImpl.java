@@ -1,13 +1,36 @@
 package org.emotion.detect.service.impl;
 
+import org.emotion.detect.cache.RecentPostFeed;
+import org.emotion.detect.classify.ClassificationStats;
+import org.emotion.detect.classify.EmotionScore;
+import org.emotion.detect.classify.PostClassificationPipeline;
+import org.emotion.detect.classify.impl.LatencyBudgetRouter;
+import org.emotion.detect.dto.ClassifyResponse;
+import org.emotion.detect.dto.PostPageResponse;
 import org.emotion.detect.dto.PostRequest;
 import org.emotion.detect.entity.Post;
+import org.emotion.detect.enums.SentimentType;
+import org.emotion.detect.ingest.PostGroupCommitWriter;
 import org.emotion.detect.repository.PostRepository;
+import org.emotion.detect.search.PostSearchIndex;
+import org.emotion.detect.search.PostSearchStats;
 import org.emotion.detect.service.PostService;
+import org.emotion.detect.taxonomy.EmotionTaxonomy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 /**
  * Implementation of PostService
@@ -19,6 +42,32 @@ public class PostServiceImpl implements PostService {
     @Autowired
     private PostRepository postRepository;
 
+    @Autowired
+    private RecentPostFeed recentPostFeed;
+
+    @Autowired
+    private PostGroupCommitWriter postGroupCommitWriter;
+
+    @Autowired
+    private PostSearchIndex postSearchIndex;
+
+    @Autowired
+    private PostClassificationPipeline postClassificationPipeline;
+
+    @Autowired
+    private LatencyBudgetRouter latencyBudgetRouter;
+
+    @Autowired
+    private EmotionTaxonomy emotionTaxonomy;
+
+    /** Largest page a client may ask for */
+    @Value("${posts.page.max-limit:500}")
+    private int maxPageLimit;
+
+    /** Longest a request waits for its post's group to commit */
+    @Value("${posts.group-commit.await-timeout-ms:5000}")
+    private long groupAwaitTimeoutMs;
+
     @Override
     public Post createPost(PostRequest postRequest) {
         // Create Post entity from request
@@ -26,12 +75,140 @@ public class PostServiceImpl implements PostService {
         post.setContent(postRequest.getContent());
         post.setBgColor(postRequest.getBgColor());
         
-        // Save to database and return
-        return postRepository.save(post);
+        // Save to database, grouped with concurrent posts when enabled, then write through to the in-memory feed
+        CompletableFuture<Post> grouped = postGroupCommitWriter.submit(post);
+        if (grouped == null) {
+            Post saved = postRepository.save(post);
+            writeThrough(saved);
+            return saved;
+        }
+        // Chained to the commit itself, so a post whose caller gave up waiting still reaches the feed
+        return awaitGroup(grouped.thenApply(saved -> {
+            writeThrough(saved);
+            return saved;
+        }));
+    }
+
+    /**
+     * Add a committed post to the in-memory feed and search index and queue it for classification
+     */
+    private void writeThrough(Post saved) {
+        recentPostFeed.add(saved);
+        postSearchIndex.add(saved);
+        // Classified in the background, the response never waits for the model
+        postClassificationPipeline.submit(saved.getPostId());
+    }
+
+    private Post awaitGroup(CompletableFuture<Post> grouped) {
+        try {
+            return grouped.get(groupAwaitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // The group may still commit later, so the caller cannot simply retry the save
+            throw new IllegalStateException("Timed out waiting for the post to be saved", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while saving post", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
     }
 
     @Override
     public List<Post> getAllPosts() {
         return postRepository.findAll();
     }
+
+    @Override
+    public PostPageResponse getPostPage(String cursor, int limit) {
+        if (limit < 1 || limit > maxPageLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageLimit);
+        }
+        LocalDateTime beforeCreatedAt = null;
+        Integer beforePostId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            // Cursor is the (created_at, post_id) of the last post returned, base64url encoded
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf('|');
+                beforeCreatedAt = LocalDateTime.parse(decoded.substring(0, separator));
+                beforePostId = Integer.valueOf(decoded.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+        
+        // One extra row tells whether another page follows; first pages come from memory when they fit
+        List<Post> posts = beforeCreatedAt == null ? recentPostFeed.firstPage(limit) : null;
+        if (posts == null) {
+            posts = postRepository.findPage(beforeCreatedAt, beforePostId, limit + 1);
+        }
+        String nextCursor = null;
+        if (posts.size() > limit) {
+            posts = posts.subList(0, limit);
+            Post last = posts.get(limit - 1);
+            String position = last.getCreatedAt() + "|" + last.getPostId();
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+        return new PostPageResponse(posts, nextCursor);
+    }
+
+    @Override
+    public void forEachPost(Consumer<Post> consumer) {
+        postRepository.forEachPost(consumer);
+    }
+
+    @Override
+    public PostPageResponse searchPosts(String query, String mode, String cursor, int limit) {
+        if (limit < 1 || limit > maxPageLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageLimit);
+        }
+        if (!"and".equals(mode) && !"or".equals(mode)) {
+            throw new IllegalArgumentException("mode must be and or or");
+        }
+        Integer beforePostId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            // Search results are ordered by post_id alone, so the cursor is the last id returned
+            try {
+                beforePostId = Integer.valueOf(cursor);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+        
+        int[] ids = postSearchIndex.search(query, "and".equals(mode), beforePostId, limit + 1);
+        String nextCursor = null;
+        if (ids.length > limit) {
+            ids = Arrays.copyOf(ids, limit);
+            nextCursor = String.valueOf(ids[limit - 1]);
+        }
+        List<Post> posts = postRepository.findByIds(ids);
+        posts.sort(Comparator.comparing(Post::getPostId).reversed());
+        return new PostPageResponse(posts, nextCursor);
+    }
+
+    @Override
+    public PostSearchStats getSearchStats() {
+        return postSearchIndex.getStats();
+    }
+
+    @Override
+    public ClassificationStats getClassificationStats() {
+        ClassificationStats stats = postClassificationPipeline.getStats();
+        stats.setRoutedToModel(latencyBudgetRouter.getRoutedToModel());
+        stats.setRoutedToLexicon(latencyBudgetRouter.getRoutedToLexicon());
+        stats.setLexiconFallbacks(latencyBudgetRouter.getLexiconFallbacks());
+        stats.setModelLatencyMs(latencyBudgetRouter.getModelLatencyMs());
+        return stats;
+    }
+
+    @Override
+    public ClassifyResponse classifyText(String text) {
+        // The user is waiting, so the router answers from the lexicon when the model is over budget
+        List<EmotionScore> labels = latencyBudgetRouter.classify(text);
+        String sentiment = labels.isEmpty()
+                ? SentimentType.NEUTRAL.getValue()
+                : emotionTaxonomy.getSentimentTypeString(labels.get(0).getLabel());
+        return new ClassifyResponse(labels, sentiment);
+    }
 }
@@ -5,6 +5,8 @@ import org.emotion.detect.dto.QuestionnaireItem;
 import org.emotion.detect.dto.QuestionnaireResponse;
 import org.emotion.detect.entity.EmotionalLevel;
 import org.emotion.detect.entity.LabeledComment;
+import org.emotion.detect.enums.QuestionnaireMode;
+import org.emotion.detect.questionnaire.QuestionnairePool;
 import org.emotion.detect.repository.EmotionalLevelRepository;
 import org.emotion.detect.repository.QuestionnaireRepository;
 import org.emotion.detect.service.QuestionnaireService;
@@ -27,13 +29,18 @@ public class QuestionnaireServiceImpl implements QuestionnaireService {
     @Autowired
     private EmotionalLevelRepository emotionalLevelRepository;
 
+    @Autowired
+    private QuestionnairePool questionnairePool;
+
     @Override
     public QuestionnaireResponse generateQuestionnaire(String mode) {
-        // Determine the number of questions based on mode
-        int questionCount = getQuestionCountByMode(mode);
+        // Determine the number of questions and the labels to cover based on mode
+        QuestionnaireMode questionnaireMode = QuestionnaireMode.of(mode);
         
-        // Get random labeled comments from database
-        List<LabeledComment> labeledComments = questionnaireRepository.findRandomLabeledComments(questionCount);
+        // Draw labeled comments spread across labels from the in-memory pool, or random ones from the database while it is empty
+        List<LabeledComment> labeledComments = questionnairePool.isAvailable()
+                ? questionnairePool.draw(questionnaireMode)
+                : questionnaireRepository.findRandomLabeledComments(questionnaireMode.getQuestionCount());
         
         // Convert to questionnaire items - use fine_labels as the type
         List<QuestionnaireItem> questionnaireItems = labeledComments.stream()
@@ -67,6 +74,11 @@ public class QuestionnaireServiceImpl implements QuestionnaireService {
         );
     }
 
+    @Override
+    public int refreshQuestionnairePool() {
+        return questionnairePool.reload();
+    }
+
     public String mapLevelToText(int level) {
         switch (level) {
             case 1:
@@ -81,22 +93,4 @@ public class QuestionnaireServiceImpl implements QuestionnaireService {
                 throw new IllegalArgumentException("Invalid level: " + level + ". Valid levels are: 1, 2, 3, 4");
         }
     }
-
-    /**
-     * Get the number of questions based on the mode
-     * @param mode the difficulty mode
-     * @return number of questions to generate
-     */
-    private int getQuestionCountByMode(String mode) {
-        switch (mode.toUpperCase()) {
-            case "EASY":
-                return 7;
-            case "STANDARD":
-                return 15;
-            case "ADVANCED":
-                return 25;
-            default:
-                throw new IllegalArgumentException("Invalid mode: " + mode + ". Valid modes are: Easy, Standard, Advanced");
-        }
-    }
 }
@@ -0,0 +1,101 @@
+package org.emotion.detect.stats;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Count-Min sketch over string keys
+ * Estimates never undercount; with width w and depth d the overcount is at most
+ * e / w * total with probability 1 - e^-d. Sketches of the same shape merge by addition.
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final long[] cells;
+
+    public CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        this.width = width;
+        this.cells = new long[depth * width];
+    }
+
+    /**
+     * Count occurrences of a key
+     * @param key the key
+     * @param count number of occurrences
+     */
+    public void add(String key, long count) {
+        int hash = key.hashCode();
+        for (int row = 0; row < depth; row++) {
+            cells[row * width + index(hash, row)] += count;
+        }
+    }
+
+    /**
+     * @param key the key
+     * @return an upper bound of the key's count
+     */
+    public long estimate(String key) {
+        int hash = key.hashCode();
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, cells[row * width + index(hash, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Add another sketch of the same shape to this one
+     * @param other the sketch to merge
+     */
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Cannot merge Count-Min sketches of different shape: "
+                    + depth + "x" + width + " and " + other.depth + "x" + other.width);
+        }
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] += other.cells[i];
+        }
+    }
+
+    /**
+     * @return the relative error factor e / width
+     */
+    public double epsilon() {
+        return Math.E / width;
+    }
+
+    /**
+     * @return the probability that an estimate stays within epsilon * total
+     */
+    public double confidence() {
+        return 1 - Math.exp(-depth);
+    }
+
+    private int index(int hash, int row) {
+        // One multiplicative hash per row, seeded by the row number
+        int h = hash * (0x9E3779B9 + (row << 1) * 0x85EBCA6B);
+        h ^= h >>> 15;
+        h *= 0x2C1B3C6D;
+        h ^= h >>> 13;
+        return (h & 0x7FFFFFFF) % width;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(depth);
+        out.writeInt(width);
+        for (long cell : cells) {
+            out.writeLong(cell);
+        }
+    }
+
+    static CountMinSketch read(DataInputStream in) throws IOException {
+        CountMinSketch sketch = new CountMinSketch(in.readInt(), in.readInt());
+        for (int i = 0; i < sketch.cells.length; i++) {
+            sketch.cells[i] = in.readLong();
+        }
+        return sketch;
+    }
+}
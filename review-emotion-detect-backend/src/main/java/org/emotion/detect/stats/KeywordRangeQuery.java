@@ -0,0 +1,191 @@
+package org.emotion.detect.stats;
+
+import org.emotion.detect.dto.KeywordRangeStatsResponse;
+import org.emotion.detect.repository.DashboardRepository;
+import org.emotion.detect.repository.KeywordCounts;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keyword statistics over explicit ranges with calendar-aligned buckets
+ * The range is widened to whole buckets (hour, day, ISO week from Monday, month), so equal
+ * requests give equal answers. The buckets are ranked and cut to topN in SQL by one grouped
+ * rollup query per sub-range; a large range is split into a few sub-ranges of whole buckets
+ * that run in parallel on a small pool and are merged in bucket order.
+ */
+@Component
+public class KeywordRangeQuery {
+
+    @Autowired
+    private DashboardRepository dashboardRepository;
+
+    /** Threads running sub-range queries, shared by all requests */
+    @Value("${dashboard.keyword-stats.query-parallelism:4}")
+    private int queryParallelism;
+
+    /** Largest number of buckets a request may ask for */
+    @Value("${dashboard.keyword-stats.max-buckets:200}")
+    private int maxBuckets;
+
+    /** Fewest buckets worth a sub-range query of their own */
+    @Value("${dashboard.keyword-stats.min-buckets-per-query:24}")
+    private int minBucketsPerQuery;
+
+    /** Largest topN accepted */
+    @Value("${dashboard.keyword-stats.max-top-n:1000}")
+    private int maxTopN;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(queryParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "keyword-range-query-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Query keyword statistics for a range
+     * @param from start of the range (ISO date or date-time, inclusive)
+     * @param to end of the range (ISO date or date-time, exclusive)
+     * @param granularity bucket size: hour, day, week or month
+     * @param topN number of keywords per bucket and for the whole range
+     * @return the aligned range, its top keywords and the per-bucket top keywords
+     */
+    public KeywordRangeStatsResponse query(String from, String to, String granularity, int topN) {
+        ChronoUnit unit = parseGranularity(granularity);
+        if (topN < 1 || topN > maxTopN) {
+            throw new IllegalArgumentException("topN must be between 1 and " + maxTopN);
+        }
+        LocalDateTime start = floor(parseTime(from, "from"), unit);
+        LocalDateTime end = ceil(parseTime(to, "to"), unit);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        List<LocalDateTime> bounds = new ArrayList<>();
+        for (LocalDateTime bound = start; !bound.isAfter(end); bound = bound.plus(1, unit)) {
+            bounds.add(bound);
+            if (bounds.size() > maxBuckets + 1) {
+                throw new IllegalArgumentException("Range has more than " + maxBuckets + " " + unit.toString().toLowerCase()
+                        + " buckets, use a coarser granularity");
+            }
+        }
+
+        int bucketCount = bounds.size() - 1;
+        System.out.println("Querying keyword stats from " + start + " to " + end + " in " + bucketCount
+                + " " + granularity + " buckets");
+
+        // A few sub-ranges of whole buckets, each one grouped query ranking all of its buckets
+        int splits = Math.max(1, Math.min(queryParallelism, bucketCount / minBucketsPerQuery));
+        CompletableFuture<Map<String, Integer>> total = CompletableFuture.supplyAsync(
+                () -> toMap(dashboardRepository.getTopKeywordsFromRollups(start, end, topN)), executor);
+        List<CompletableFuture<Map<LocalDateTime, KeywordCounts>>> parts = new ArrayList<>(splits);
+        for (int split = 0; split < splits; split++) {
+            LocalDateTime partStart = bounds.get(bucketCount * split / splits);
+            LocalDateTime partEnd = bounds.get(bucketCount * (split + 1) / splits);
+            parts.add(CompletableFuture.supplyAsync(
+                    () -> dashboardRepository.getTopKeywordsPerBucket(partStart, partEnd, unit, topN), executor));
+        }
+
+        Map<LocalDateTime, KeywordCounts> merged = new HashMap<>();
+        for (CompletableFuture<Map<LocalDateTime, KeywordCounts>> part : parts) {
+            merged.putAll(part.join());
+        }
+        List<KeywordRangeStatsResponse.Bucket> bucketStats = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            KeywordCounts counts = merged.get(bounds.get(i));
+            Map<String, Integer> keywords = counts == null ? new LinkedHashMap<>() : toMap(counts);
+            bucketStats.add(new KeywordRangeStatsResponse.Bucket(format(bounds.get(i)), keywords));
+        }
+        return new KeywordRangeStatsResponse(format(start), format(end), granularity, total.join(), bucketStats);
+    }
+
+    private static Map<String, Integer> toMap(KeywordCounts counts) {
+        Map<String, Integer> result = new LinkedHashMap<>(counts.size() * 4 / 3 + 1);
+        for (int i = 0; i < counts.size(); i++) {
+            result.put(counts.getKeyword(i), counts.getCount(i));
+        }
+        return result;
+    }
+
+    private static ChronoUnit parseGranularity(String granularity) {
+        switch (granularity == null ? "" : granularity.toLowerCase()) {
+            case "hour":
+                return ChronoUnit.HOURS;
+            case "day":
+                return ChronoUnit.DAYS;
+            case "week":
+                return ChronoUnit.WEEKS;
+            case "month":
+                return ChronoUnit.MONTHS;
+            default:
+                throw new IllegalArgumentException("Invalid granularity: " + granularity);
+        }
+    }
+
+    private static LocalDateTime parseTime(String value, String name) {
+        try {
+            return value.length() <= 10
+                    ? LocalDate.parse(value).atStartOfDay()
+                    : LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value + ", expected yyyy-MM-dd or yyyy-MM-ddTHH:mm");
+        }
+    }
+
+    /**
+     * Start of the calendar bucket containing a time
+     */
+    private static LocalDateTime floor(LocalDateTime time, ChronoUnit unit) {
+        switch (unit) {
+            case HOURS:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            case DAYS:
+                return time.truncatedTo(ChronoUnit.DAYS);
+            case WEEKS:
+                return time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+            default:
+                return time.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        }
+    }
+
+    /**
+     * First bucket boundary at or after a time
+     */
+    private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime floor = floor(time, unit);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+
+    private static String format(LocalDateTime time) {
+        return time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+}
@@ -0,0 +1,148 @@
+package org.emotion.detect.stats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Approximate keyword counts of one day (or of a merged range of days)
+ * A Space-Saving summary picks the heavy hitters, a Count-Min sketch tightens their
+ * upper bounds. Serialized deflated, since most Count-Min cells of a day are zero.
+ */
+public class KeywordSketch {
+
+    /** Monitored keywords per sketch */
+    public static final int CAPACITY = 256;
+    /** Count-Min shape: overcount at most e/1024 (~0.27%) of the total with probability 1 - e^-4 (~98%) */
+    public static final int CMS_DEPTH = 4;
+    public static final int CMS_WIDTH = 1024;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private final SpaceSavingSketch heavyHitters;
+    private final CountMinSketch frequencies;
+    private long total;
+
+    public KeywordSketch() {
+        this(new SpaceSavingSketch(CAPACITY), new CountMinSketch(CMS_DEPTH, CMS_WIDTH), 0);
+    }
+
+    private KeywordSketch(SpaceSavingSketch heavyHitters, CountMinSketch frequencies, long total) {
+        this.heavyHitters = heavyHitters;
+        this.frequencies = frequencies;
+        this.total = total;
+    }
+
+    /**
+     * Count occurrences of a keyword
+     * @param keyword the keyword
+     * @param count number of occurrences
+     */
+    public void add(String keyword, long count) {
+        heavyHitters.offer(keyword, count);
+        frequencies.add(keyword, count);
+        total += count;
+    }
+
+    /**
+     * Merge another sketch into this one
+     * @param other the sketch to merge
+     */
+    public void merge(KeywordSketch other) {
+        heavyHitters.merge(other.heavyHitters);
+        frequencies.merge(other.frequencies);
+        total += other.total;
+    }
+
+    /**
+     * @return number of keyword occurrences counted
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * The most frequent keywords with error bounds
+     * @param n maximum number of keywords
+     * @return estimates sorted by estimated count descending
+     */
+    public List<Estimate> top(int n) {
+        List<Estimate> result = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : heavyHitters.top(n)) {
+            long upper = Math.min(entry.getValue()[0], frequencies.estimate(entry.getKey()));
+            long lower = Math.max(0, entry.getValue()[0] - entry.getValue()[1]);
+            result.add(new Estimate(entry.getKey(), upper, Math.min(lower, upper)));
+        }
+        result.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+        return result;
+    }
+
+    /**
+     * @param n length of the top list
+     * @return an upper bound for the count of any keyword missing from top(n)
+     */
+    public long unlistedBound(int n) {
+        List<Map.Entry<String, long[]>> entries = heavyHitters.top(n + 1);
+        long bound = heavyHitters.minCount();
+        return entries.size() > n ? Math.max(bound, entries.get(n).getValue()[0]) : bound;
+    }
+
+    /**
+     * @return probability that the Count-Min overcount stays within e/width of the total
+     */
+    public double getConfidence() {
+        return frequencies.confidence();
+    }
+
+    public byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(total);
+            heavyHitters.write(out);
+            frequencies.write(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static KeywordSketch fromBytes(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported keyword sketch format: " + version);
+            }
+            long total = in.readLong();
+            SpaceSavingSketch heavyHitters = SpaceSavingSketch.read(in);
+            CountMinSketch frequencies = CountMinSketch.read(in);
+            return new KeywordSketch(heavyHitters, frequencies, total);
+        }
+    }
+
+    /**
+     * Estimated count of one keyword; the true count lies in [lowerBound, count]
+     */
+    public static class Estimate {
+        private final String keyword;
+        private final long count;
+        private final long lowerBound;
+
+        public Estimate(String keyword, long count, long lowerBound) {
+            this.keyword = keyword;
+            this.count = count;
+            this.lowerBound = lowerBound;
+        }
+
+        public String getKeyword() { return keyword; }
+
+        public long getCount() { return count; }
+
+        public long getLowerBound() { return lowerBound; }
+    }
+}
@@ -0,0 +1,145 @@
+package org.emotion.detect.stats;
+
+import org.emotion.detect.ingest.KeywordRollupsCompactedEvent;
+import org.emotion.detect.repository.DashboardRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-day keyword sketches persisted in the keyword_sketches table
+ * Sketches are built off the ingest path: a day's sketch is rebuilt from keyword_rollup_daily
+ * whenever KeywordRollupCompactor reports new rollups for it, at most once per rebuild
+ * interval, and reads merge the stored sketches. At startup every day whose sketch is missing
+ * or whose total does not match its rollups is rebuilt. Approximate statistics therefore lag
+ * ingest by up to a rebuild interval.
+ */
+@Component
+public class KeywordSketchStore {
+
+    @Autowired
+    private DashboardRepository dashboardRepository;
+
+    /** Pause between sketch rebuild rounds */
+    @Value("${dashboard.keyword-sketch.rebuild-interval-ms:60000}")
+    private long rebuildIntervalMs;
+
+    /** Days with new rollups since their sketch was last built */
+    private final Set<LocalDate> staleDays = new ConcurrentSkipListSet<>();
+
+    /** Set once the startup backfill succeeded, until then every round retries it */
+    private boolean backfilled;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "keyword-sketch-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::rebuildQuietly, 0, rebuildIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Rebuild the sketch of every day that has none or one that no longer matches its rollups
+     * @return number of days rebuilt
+     */
+    public synchronized int backfill() {
+        List<LocalDate> days = dashboardRepository.getDaysWithStaleKeywordSketch();
+        for (LocalDate day : days) {
+            build(day);
+        }
+        if (!days.isEmpty()) {
+            System.out.println("Backfilled keyword sketches for " + days.size() + " days");
+        }
+        return days.size();
+    }
+
+    /**
+     * Rebuild the sketches of the days reported since the last round, after the backfill
+     * @return number of days rebuilt
+     */
+    public synchronized int rebuild() {
+        int rebuilt = 0;
+        if (!backfilled) {
+            rebuilt += backfill();
+            backfilled = true;
+        }
+        for (LocalDate day : staleDays) {
+            // Removed before reading, so rollups compacted meanwhile mark the day again
+            staleDays.remove(day);
+            try {
+                build(day);
+            } catch (RuntimeException e) {
+                staleDays.add(day);
+                throw e;
+            }
+            rebuilt++;
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Note the days whose rollups changed, their sketches are rebuilt in the next round
+     * @param event the compaction event
+     */
+    @EventListener
+    public void onRollupsCompacted(KeywordRollupsCompactedEvent event) {
+        staleDays.addAll(event.getDays());
+    }
+
+    /**
+     * Merge the sketches of a range of days
+     * @param from first day (inclusive)
+     * @param to last day (inclusive)
+     * @return the merged sketch, empty if no day has one
+     */
+    public KeywordSketch merged(LocalDate from, LocalDate to) throws IOException {
+        KeywordSketch result = new KeywordSketch();
+        for (byte[] stored : dashboardRepository.getKeywordSketches(from, to)) {
+            result.merge(KeywordSketch.fromBytes(stored));
+        }
+        return result;
+    }
+
+    private void build(LocalDate day) {
+        KeywordSketch sketch = new KeywordSketch();
+        for (Map<String, Object> row : dashboardRepository.getKeywordDailyRollups(day, day)) {
+            sketch.add((String) row.get("keyword"), ((Number) row.get("count")).longValue());
+        }
+        try {
+            dashboardRepository.saveKeywordSketch(day, sketch.getTotal(), sketch.toBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error serializing keyword sketch of " + day, e);
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            System.err.println("Error rebuilding keyword sketches, will retry: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.emotion.detect.stats;
+
+import org.emotion.detect.ingest.EmotionBatch;
+import org.emotion.detect.ingest.IngestBarrier;
+import org.emotion.detect.repository.DashboardRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory keyword counts over a sliding window of whole days
+ * A ring of per-day int[] arrays indexed by keyword id; a slot is recycled lazily when a
+ * newer day first writes to it. Seeded from the daily keyword counts at startup and updated by
+ * EmotionBatchWriter after every committed batch, so the weekly/monthly/yearly leaderboard
+ * is answered without SQL. Seeding runs while no write is in progress, so every batch is
+ * either in the seed or recorded afterwards, never both and never neither.
+ */
+@Component
+public class KeywordWindowCounter {
+
+    @Autowired
+    private DashboardRepository dashboardRepository;
+
+    @Autowired
+    private IngestBarrier ingestBarrier;
+
+    /** Answer keyword statistics from memory instead of the database */
+    @Value("${dashboard.keyword-window.enabled:false}")
+    private boolean enabled;
+
+    /** Number of days kept, must cover the longest period (a year) */
+    @Value("${dashboard.keyword-window.days:370}")
+    private int days;
+
+    /** Vocabulary limit; past it the counter disables itself and the database answers */
+    @Value("${dashboard.keyword-window.max-keywords:256}")
+    private int maxKeywords;
+
+    private final Map<String, Integer> keywordIds = new HashMap<>();
+
+    private String[] keywords = new String[0];
+
+    /** counts[slot][keywordId], slot = epochDay % days */
+    private int[][] counts;
+
+    /** Epoch day currently held by each slot, -1 for never used */
+    private long[] slotDays;
+
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        counts = new int[days][0];
+        slotDays = new long[days];
+        Arrays.fill(slotDays, -1);
+        LocalDate from = LocalDate.now().minusDays(days - 1);
+        try {
+            // Writes record their batch before leaving the barrier: batches committed before the
+            // read are in it, and later ones find the counter ready
+            int rows = ingestBarrier.quiesced(() -> seed(from, LocalDate.now()));
+            System.out.println("Keyword window counter seeded: " + rows + " rows, " + keywords.length + " keywords");
+        } catch (Exception e) {
+            System.err.println("Error seeding keyword window counter, using the database: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return true if counts can be served from memory
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Count the keywords of a committed batch
+     * @param batch the batch that was written
+     */
+    public void record(EmotionBatch batch) {
+        if (!ready) {
+            return;
+        }
+        synchronized (this) {
+            for (Map.Entry<LocalDateTime, Map<String, Integer>> hour : batch.getKeywordCountsByHour().entrySet()) {
+                long epochDay = hour.getKey().toLocalDate().toEpochDay();
+                for (Map.Entry<String, Integer> keyword : hour.getValue().entrySet()) {
+                    add(keyword.getKey(), epochDay, keyword.getValue());
+                }
+            }
+            if (keywords.length > maxKeywords) {
+                ready = false;
+                System.out.println("Keyword window counter disabled: more than " + maxKeywords + " keywords");
+            }
+        }
+    }
+
+    /**
+     * Keyword counts of the last whole days, most frequent first
+     * @param lastDay the newest day of the window
+     * @param dayCount number of days in the window, ending with lastDay
+     * @return keyword -> count, sorted by count descending
+     */
+    public synchronized Map<String, Integer> getCounts(LocalDate lastDay, int dayCount) {
+        if (dayCount > days) {
+            throw new IllegalArgumentException("Window of " + dayCount + " days exceeds the " + days + " days kept");
+        }
+        long last = lastDay.toEpochDay();
+        long first = last - dayCount + 1;
+        int[] totals = new int[keywords.length];
+        for (int slot = 0; slot < days; slot++) {
+            if (slotDays[slot] >= first && slotDays[slot] <= last) {
+                int[] row = counts[slot];
+                for (int id = 0; id < row.length; id++) {
+                    totals[id] += row[id];
+                }
+            }
+        }
+        Integer[] order = new Integer[totals.length];
+        for (int id = 0; id < order.length; id++) {
+            order[id] = id;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(totals[b], totals[a]));
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Integer id : order) {
+            if (totals[id] > 0) {
+                result.put(keywords[id], totals[id]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Load the daily keyword counts of [from, to]; the caller holds the ingest barrier
+     * @return number of rows read
+     */
+    private synchronized int seed(LocalDate from, LocalDate to) {
+        List<Map<String, Object>> rows = dashboardRepository.getKeywordDailyCounts(from, to);
+        for (Map<String, Object> row : rows) {
+            LocalDate day = ((java.sql.Date) row.get("day")).toLocalDate();
+            add((String) row.get("keyword"), day.toEpochDay(), ((Number) row.get("count")).intValue());
+        }
+        ready = keywords.length <= maxKeywords;
+        return rows.size();
+    }
+
+    private void add(String keyword, long epochDay, int count) {
+        int slot = (int) Math.floorMod(epochDay, (long) days);
+        if (slotDays[slot] != epochDay) {
+            if (slotDays[slot] > epochDay) {
+                // Older than the window, nothing to keep
+                return;
+            }
+            Arrays.fill(counts[slot], 0);
+            slotDays[slot] = epochDay;
+        }
+        int id = keywordId(keyword);
+        if (counts[slot].length <= id) {
+            counts[slot] = Arrays.copyOf(counts[slot], keywords.length);
+        }
+        counts[slot][id] += count;
+    }
+
+    private int keywordId(String keyword) {
+        Integer id = keywordIds.get(keyword);
+        if (id == null) {
+            id = keywords.length;
+            keywordIds.put(keyword, id);
+            keywords = Arrays.copyOf(keywords, id + 1);
+            keywords[id] = keyword;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,132 @@
+package org.emotion.detect.stats;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitter summary with a fixed number of counters
+ * Every key with a true count above total / capacity is guaranteed to be monitored, and
+ * each monitored count overestimates the true count by at most its recorded error.
+ * Summaries are mergeable, so per-day summaries combine into any date range.
+ */
+public class SpaceSavingSketch {
+
+    private final int capacity;
+
+    /** key -> {count, error} */
+    private final Map<String, long[]> counters;
+
+    public SpaceSavingSketch(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Count occurrences of a key
+     * @param key the key
+     * @param count number of occurrences
+     */
+    public void offer(String key, long count) {
+        long[] counter = counters.get(key);
+        if (counter != null) {
+            counter[0] += count;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(key, new long[]{count, 0});
+            return;
+        }
+        // Evict the smallest counter, the newcomer inherits its count as error
+        String minKey = null;
+        long[] min = null;
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            if (min == null || entry.getValue()[0] < min[0]) {
+                minKey = entry.getKey();
+                min = entry.getValue();
+            }
+        }
+        counters.remove(minKey);
+        counters.put(key, new long[]{min[0] + count, min[0]});
+    }
+
+    /**
+     * Merge another summary into this one
+     * Keys missing from a full summary are charged its minimum count, both as count and
+     * as error, which keeps the overestimate guarantee of the merged summary
+     * @param other the summary to merge
+     */
+    public void merge(SpaceSavingSketch other) {
+        long thisMin = minCount();
+        long otherMin = other.minCount();
+        Map<String, long[]> merged = new HashMap<>(counters.size() + other.counters.size());
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            long[] theirs = other.counters.get(entry.getKey());
+            long[] mine = entry.getValue();
+            merged.put(entry.getKey(), theirs == null
+                    ? new long[]{mine[0] + otherMin, mine[1] + otherMin}
+                    : new long[]{mine[0] + theirs[0], mine[1] + theirs[1]});
+        }
+        for (Map.Entry<String, long[]> entry : other.counters.entrySet()) {
+            if (!counters.containsKey(entry.getKey())) {
+                long[] theirs = entry.getValue();
+                merged.put(entry.getKey(), new long[]{theirs[0] + thisMin, theirs[1] + thisMin});
+            }
+        }
+        counters.clear();
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(merged.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        for (int i = 0; i < entries.size() && i < capacity; i++) {
+            counters.put(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+    }
+
+    /**
+     * @param n maximum number of entries
+     * @return the monitored keys with the highest counts, as {count, error}, highest first
+     */
+    public List<Map.Entry<String, long[]>> top(int n) {
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(counters.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        return entries.size() > n ? entries.subList(0, n) : entries;
+    }
+
+    /**
+     * @return the smallest monitored count if the summary is full, 0 otherwise
+     * (an upper bound for the count of any key that is not monitored)
+     */
+    public long minCount() {
+        if (counters.size() < capacity) {
+            return 0;
+        }
+        long min = Long.MAX_VALUE;
+        for (long[] counter : counters.values()) {
+            min = Math.min(min, counter[0]);
+        }
+        return min;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(capacity);
+        out.writeInt(counters.size());
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue()[0]);
+            out.writeLong(entry.getValue()[1]);
+        }
+    }
+
+    static SpaceSavingSketch read(DataInputStream in) throws IOException {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(in.readInt());
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            String key = in.readUTF();
+            sketch.counters.put(key, new long[]{in.readLong(), in.readLong()});
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,21 @@
+package org.emotion.detect.stats;
+
+/**
+ * Published by TwitterSentimentAggregator when the twitter aggregate becomes current
+ * Either after a rebuild or when an existing aggregate is first confirmed to match the source
+ */
+public class TwitterAggregateRefreshedEvent {
+
+    private final String version;
+
+    public TwitterAggregateRefreshedEvent(String version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the source state the aggregate now reflects
+     */
+    public String getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,353 @@
+package org.emotion.detect.stats;
+
+import org.emotion.detect.dto.SentimentChartResponse;
+import org.emotion.detect.repository.DashboardRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Columnar in-memory snapshot of twitter_comments_time
+ * Three primitive columns: epoch day (int), dictionary-encoded country (byte) and sentiment
+ * (byte). A slice by any country set and granularity is a single pass over the arrays that
+ * maps each day to its bucket through a precomputed table; tables past the parallel
+ * threshold are split into fork-join partitions whose counts are summed.
+ * The snapshot is (re)loaded when the twitter aggregate is refreshed, i.e. when the source
+ * table changed, and on first use.
+ */
+@Component
+public class TwitterColumnStore {
+
+    /** Sentiment ids, in the count order of a bucket */
+    private static final int POSITIVE = 0;
+    private static final int NEGATIVE = 1;
+    private static final int NEUTRAL = 2;
+    private static final int OTHER = 3;
+    private static final int SENTIMENTS = 4;
+
+    /** Country ids are stored as unsigned bytes */
+    private static final int MAX_COUNTRIES = 256;
+
+    @Autowired
+    private DashboardRepository dashboardRepository;
+
+    /** Row count from which slices are computed in parallel partitions */
+    @Value("${dashboard.twitter-columns.parallel-threshold:1000000}")
+    private int parallelThreshold;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Reload the snapshot after the source table changed
+     * @param event the aggregate refreshed event
+     */
+    @EventListener
+    public void onTwitterAggregateRefreshed(TwitterAggregateRefreshedEvent event) {
+        try {
+            reload();
+        } catch (Exception e) {
+            System.err.println("Error loading twitter column store: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Load a fresh snapshot of twitter_comments_time, readers keep the old one until it is complete
+     */
+    public synchronized void reload() {
+        Builder builder = new Builder();
+        dashboardRepository.forEachTwitterComment(rs -> {
+            Timestamp publishedAt = rs.getTimestamp(2);
+            if (publishedAt != null) {
+                builder.add(rs.getString(1), publishedAt.toLocalDateTime().toLocalDate(), rs.getString(3));
+            }
+        });
+        snapshot = builder.build();
+        System.out.println("Twitter column store loaded: " + snapshot.size + " rows, "
+                + snapshot.countryNames.length + " countries");
+    }
+
+    /**
+     * The current snapshot, loading it once if no reload has completed yet
+     * Concurrent first readers wait for the same load instead of each reading the table.
+     */
+    private synchronized Snapshot loadIfAbsent() {
+        if (snapshot == null) {
+            reload();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Sentiment counts per time bucket for a set of countries
+     * @param countries country codes to include, null or empty for all countries
+     * @param granularity day, week (from Monday), month or year
+     * @return chart series from the first to the last bucket with data
+     */
+    public SentimentChartResponse slice(Collection<String> countries, String granularity) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            current = loadIfAbsent();
+        }
+        BucketTable buckets = BucketTable.of(current.minDay, current.maxDay, granularity);
+
+        boolean[] countryMask = new boolean[MAX_COUNTRIES];
+        if (countries == null || countries.isEmpty()) {
+            Arrays.fill(countryMask, true);
+        } else {
+            for (String country : countries) {
+                Integer id = current.countryIds.get(country.trim().toUpperCase());
+                if (id != null) {
+                    countryMask[id] = true;
+                }
+            }
+        }
+
+        SliceTask task = new SliceTask(current, buckets, countryMask, 0, current.size,
+                Math.max(parallelThreshold / 4, 1 << 16));
+        int[] counts = current.size >= parallelThreshold ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+
+        int first = 0;
+        int last = buckets.labels.size() - 1;
+        while (first <= last && isEmpty(counts, first)) {
+            first++;
+        }
+        while (last >= first && isEmpty(counts, last)) {
+            last--;
+        }
+        int length = Math.max(0, last - first + 1);
+        String[] dates = new String[length];
+        int[] positive = new int[length];
+        int[] negative = new int[length];
+        int[] neutral = new int[length];
+        for (int i = 0; i < length; i++) {
+            int bucket = first + i;
+            dates[i] = buckets.labels.get(bucket);
+            positive[i] = counts[bucket * SENTIMENTS + POSITIVE];
+            negative[i] = counts[bucket * SENTIMENTS + NEGATIVE];
+            neutral[i] = counts[bucket * SENTIMENTS + NEUTRAL];
+        }
+        return new SentimentChartResponse(dates, negative, positive, neutral);
+    }
+
+    private static boolean isEmpty(int[] counts, int bucket) {
+        return counts[bucket * SENTIMENTS + POSITIVE] == 0
+                && counts[bucket * SENTIMENTS + NEGATIVE] == 0
+                && counts[bucket * SENTIMENTS + NEUTRAL] == 0;
+    }
+
+    private static int sentimentId(String sentiment) {
+        if (sentiment == null) {
+            return OTHER;
+        }
+        switch (sentiment.trim().toLowerCase()) {
+            case "positive":
+                return POSITIVE;
+            case "negative":
+                return NEGATIVE;
+            case "neutral":
+                return NEUTRAL;
+            default:
+                return OTHER;
+        }
+    }
+
+    /**
+     * Counts of one partition of the rows, split in halves down to the partition size
+     */
+    private static final class SliceTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final Snapshot snapshot;
+        private final BucketTable buckets;
+        private final boolean[] countryMask;
+        private final int from;
+        private final int to;
+        private final int partitionSize;
+
+        private SliceTask(Snapshot snapshot, BucketTable buckets, boolean[] countryMask,
+                          int from, int to, int partitionSize) {
+            this.snapshot = snapshot;
+            this.buckets = buckets;
+            this.countryMask = countryMask;
+            this.from = from;
+            this.to = to;
+            this.partitionSize = partitionSize;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from > partitionSize && getPool() != null) {
+                int middle = (from + to) >>> 1;
+                SliceTask left = new SliceTask(snapshot, buckets, countryMask, from, middle, partitionSize);
+                SliceTask right = new SliceTask(snapshot, buckets, countryMask, middle, to, partitionSize);
+                left.fork();
+                int[] counts = right.compute();
+                int[] leftCounts = left.join();
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] += leftCounts[i];
+                }
+                return counts;
+            }
+            int[] counts = new int[buckets.labels.size() * SENTIMENTS];
+            int[] days = snapshot.days;
+            byte[] countries = snapshot.countries;
+            byte[] sentiments = snapshot.sentiments;
+            int[] bucketOfDay = buckets.bucketOfDay;
+            int minDay = snapshot.minDay;
+            for (int row = from; row < to; row++) {
+                if (countryMask[countries[row] & 0xFF]) {
+                    counts[bucketOfDay[days[row] - minDay] * SENTIMENTS + sentiments[row]]++;
+                }
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Maps every day of the snapshot's range to its bucket index, with one label per bucket
+     */
+    private static final class BucketTable {
+        private final int[] bucketOfDay;
+        private final List<String> labels;
+
+        private BucketTable(int[] bucketOfDay, List<String> labels) {
+            this.bucketOfDay = bucketOfDay;
+            this.labels = labels;
+        }
+
+        static BucketTable of(int minDay, int maxDay, String granularity) {
+            DateTimeFormatter formatter;
+            switch (granularity == null ? "" : granularity.toLowerCase()) {
+                case "day":
+                case "week":
+                    formatter = DateTimeFormatter.ofPattern("yyyy.M.d");
+                    break;
+                case "month":
+                    formatter = DateTimeFormatter.ofPattern("yyyy.M");
+                    break;
+                case "year":
+                    formatter = DateTimeFormatter.ofPattern("yyyy");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid granularity: " + granularity);
+            }
+            String unit = granularity.toLowerCase();
+            int[] bucketOfDay = new int[Math.max(0, maxDay - minDay + 1)];
+            List<String> labels = new ArrayList<>();
+            LocalDate bucketStart = null;
+            for (int day = minDay; day <= maxDay; day++) {
+                LocalDate date = LocalDate.ofEpochDay(day);
+                LocalDate start = bucketStart(date, unit);
+                if (!start.equals(bucketStart)) {
+                    bucketStart = start;
+                    labels.add(start.format(formatter));
+                }
+                bucketOfDay[day - minDay] = labels.size() - 1;
+            }
+            return new BucketTable(bucketOfDay, labels);
+        }
+
+        private static LocalDate bucketStart(LocalDate date, String unit) {
+            switch (unit) {
+                case "week":
+                    return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case "month":
+                    return date.withDayOfMonth(1);
+                case "year":
+                    return date.withDayOfYear(1);
+                default:
+                    return date;
+            }
+        }
+    }
+
+    /**
+     * Immutable column arrays of one load
+     */
+    private static final class Snapshot {
+        private final int[] days;
+        private final byte[] countries;
+        private final byte[] sentiments;
+        private final int size;
+        private final int minDay;
+        private final int maxDay;
+        private final String[] countryNames;
+        private final Map<String, Integer> countryIds;
+
+        private Snapshot(int[] days, byte[] countries, byte[] sentiments, int size, int minDay, int maxDay,
+                         String[] countryNames, Map<String, Integer> countryIds) {
+            this.days = days;
+            this.countries = countries;
+            this.sentiments = sentiments;
+            this.size = size;
+            this.minDay = minDay;
+            this.maxDay = maxDay;
+            this.countryNames = countryNames;
+            this.countryIds = countryIds;
+        }
+    }
+
+    /**
+     * Growable columns filled while streaming the table
+     */
+    private static final class Builder {
+        private int[] days = new int[1 << 16];
+        private byte[] countries = new byte[1 << 16];
+        private byte[] sentiments = new byte[1 << 16];
+        private int size;
+        private int minDay = Integer.MAX_VALUE;
+        private int maxDay = Integer.MIN_VALUE;
+        private final List<String> countryNames = new ArrayList<>();
+        private final Map<String, Integer> countryIds = new HashMap<>();
+
+        void add(String country, LocalDate day, String sentiment) {
+            String code = country == null ? "" : country.trim().toUpperCase();
+            Integer id = countryIds.get(code);
+            if (id == null) {
+                if (countryNames.size() == MAX_COUNTRIES) {
+                    throw new IllegalStateException("More than " + MAX_COUNTRIES + " country codes in twitter_comments_time");
+                }
+                id = countryNames.size();
+                countryNames.add(code);
+                countryIds.put(code, id);
+            }
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                countries = Arrays.copyOf(countries, size * 2);
+                sentiments = Arrays.copyOf(sentiments, size * 2);
+            }
+            int epochDay = (int) day.toEpochDay();
+            days[size] = epochDay;
+            countries[size] = (byte) (int) id;
+            sentiments[size] = (byte) sentimentId(sentiment);
+            size++;
+            minDay = Math.min(minDay, epochDay);
+            maxDay = Math.max(maxDay, epochDay);
+        }
+
+        Snapshot build() {
+            if (size == 0) {
+                minDay = 0;
+                maxDay = -1;
+            }
+            return new Snapshot(Arrays.copyOf(days, size), Arrays.copyOf(countries, size),
+                    Arrays.copyOf(sentiments, size), size, minDay, maxDay,
+                    countryNames.toArray(new String[0]), countryIds);
+        }
+    }
+}
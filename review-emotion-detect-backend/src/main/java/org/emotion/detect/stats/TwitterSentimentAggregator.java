@@ -0,0 +1,122 @@
+package org.emotion.detect.stats;
+
+import org.emotion.detect.repository.DashboardRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps twitter_sentiment_agg in step with twitter_comments_time
+ * Checks the source row count and latest publishedat at startup and then periodically, and
+ * rebuilds the aggregate only when they differ from the state it was built from. The twitter
+ * chart is served from the aggregate once it is current.
+ */
+@Component
+public class TwitterSentimentAggregator {
+
+    @Autowired
+    private DashboardRepository dashboardRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /** Pause between source checks, 0 checks only at startup */
+    @Value("${dashboard.twitter-agg.check-interval-ms:3600000}")
+    private long checkIntervalMs;
+
+    private ScheduledExecutorService scheduler;
+
+    /** Source state the current aggregate was built from, null until it is known to be current */
+    private volatile String version;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "twitter-sentiment-aggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (checkIntervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler.execute(this::refreshQuietly);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * @return true if the aggregate matches the source table and can serve the chart
+     */
+    public boolean isReady() {
+        return version != null;
+    }
+
+    /**
+     * @return identifies the source state the aggregate was built from, null if not ready
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Rebuild the aggregate if the source table changed since it was built
+     * @return true if the aggregate was rebuilt
+     */
+    public synchronized boolean refresh() {
+        Map<String, Object> source = dashboardRepository.getTwitterSourceState();
+        Map<String, Object> built = dashboardRepository.getTwitterAggregateState();
+        long sourceRows = ((Number) source.get("rows_count")).longValue();
+        LocalDateTime sourceMaxPublished = toLocalDateTime(source.get("max_published"));
+
+        boolean current = built != null
+                && ((Number) built.get("rows_count")).longValue() == sourceRows
+                && Objects.equals(toLocalDateTime(built.get("max_published")), sourceMaxPublished);
+        if (!current) {
+            transactionTemplate.executeWithoutResult(status ->
+                    dashboardRepository.rebuildTwitterAggregate(sourceRows, sourceMaxPublished));
+        }
+        String previous = version;
+        version = sourceRows + "-" + sourceMaxPublished;
+        if (!current || previous == null) {
+            eventPublisher.publishEvent(new TwitterAggregateRefreshedEvent(version));
+        }
+        return !current;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            System.err.println("Error refreshing twitter sentiment aggregate, will retry: " + e.getMessage());
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        if (value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,28 @@
+package org.emotion.detect.taxonomy;
+
+import org.emotion.detect.enums.SentimentType;
+
+/**
+ * One fine-grained emotion label of the taxonomy
+ * Carries the sentiment it counts towards and its Ekman category
+ */
+public class EmotionLabel {
+    /** Fine label, lower case (e.g. "joy", "nervousness") */
+    private final String label;
+    /** Sentiment the label counts towards */
+    private final SentimentType sentiment;
+    /** Ekman category (anger, disgust, fear, joy, sadness, surprise or neutral) */
+    private final String ekman;
+
+    public EmotionLabel(String label, SentimentType sentiment, String ekman) {
+        this.label = label;
+        this.sentiment = sentiment;
+        this.ekman = ekman;
+    }
+
+    public String getLabel() { return label; }
+
+    public SentimentType getSentiment() { return sentiment; }
+
+    public String getEkman() { return ekman; }
+}
@@ -0,0 +1,247 @@
+package org.emotion.detect.taxonomy;
+
+import org.emotion.detect.enums.SentimentType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of emotion labels: fine label -> sentiment and Ekman category
+ * Labels come from the bundled taxonomy/goemotions.csv, optionally overridden or extended by
+ * rows of the emotion_taxonomy table. Lookups go through a precomputed open-addressing hash
+ * table that hashes and compares case-insensitively in place, so classifying a label
+ * allocates nothing. Reloads build a new table and swap it in atomically.
+ */
+@Component
+public class EmotionTaxonomy {
+
+    private static final String RESOURCE = "taxonomy/goemotions.csv";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Also read the emotion_taxonomy table on load */
+    @Value("${dashboard.taxonomy.db-enabled:false}")
+    private boolean dbEnabled;
+
+    /** Reload period, 0 disables periodic reload */
+    @Value("${dashboard.taxonomy.reload-interval-ms:0}")
+    private long reloadIntervalMs;
+
+    private volatile Table table = Table.build(Collections.emptyList());
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() throws IOException {
+        reload();
+        if (reloadIntervalMs > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "emotion-taxonomy-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::reloadQuietly, reloadIntervalMs, reloadIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Rebuild the lookup table from the classpath resource and, if enabled, the database
+     * Readers keep using the old table until the new one is complete
+     */
+    public void reload() throws IOException {
+        Map<String, EmotionLabel> labels = new LinkedHashMap<>();
+        for (EmotionLabel label : loadResource()) {
+            labels.put(label.getLabel(), label);
+        }
+        if (dbEnabled) {
+            for (EmotionLabel label : loadTable()) {
+                labels.put(label.getLabel(), label);
+            }
+        }
+        table = Table.build(new ArrayList<>(labels.values()));
+        System.out.println("Emotion taxonomy loaded: " + labels.size() + " labels");
+    }
+
+    /**
+     * Look up a label, ignoring case and surrounding whitespace
+     * @param label the fine label
+     * @return the taxonomy entry, or null for unknown labels
+     */
+    public EmotionLabel lookup(String label) {
+        return label == null ? null : table.get(label);
+    }
+
+    /**
+     * Classify a label into its sentiment
+     * @param label the fine label
+     * @return the sentiment, NEUTRAL for unknown labels
+     */
+    public SentimentType sentimentOf(String label) {
+        EmotionLabel entry = lookup(label);
+        return entry == null ? SentimentType.NEUTRAL : entry.getSentiment();
+    }
+
+    /**
+     * Classify a label into its sentiment, as the string used by the database columns
+     * @param label the fine label
+     * @return positive, negative or neutral
+     */
+    public String getSentimentTypeString(String label) {
+        return sentimentOf(label).getValue();
+    }
+
+    /**
+     * @return all labels currently registered
+     */
+    public List<EmotionLabel> getLabels() {
+        return table.labels;
+    }
+
+    private List<EmotionLabel> loadResource() throws IOException {
+        List<EmotionLabel> labels = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(RESOURCE).getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                labels.add(toLabel(parts[0], parts[1], parts[2]));
+            }
+        }
+        return labels;
+    }
+
+    private List<EmotionLabel> loadTable() {
+        try {
+            return jdbcTemplate.query("SELECT label, sentiment, ekman FROM emotion_taxonomy",
+                    (rs, rowNum) -> toLabel(rs.getString("label"), rs.getString("sentiment"), rs.getString("ekman")));
+        } catch (Exception e) {
+            System.out.println("Error loading emotion_taxonomy table, using bundled taxonomy only: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (Exception e) {
+            System.err.println("Error reloading emotion taxonomy: " + e.getMessage());
+        }
+    }
+
+    private static EmotionLabel toLabel(String label, String sentiment, String ekman) {
+        SentimentType type = SentimentType.valueOf(sentiment.trim().toUpperCase());
+        return new EmotionLabel(label.trim().toLowerCase(), type, ekman.trim().toLowerCase());
+    }
+
+    /**
+     * Immutable open-addressing hash table over the labels
+     * Keys are hashed and compared with ASCII case folding against the lowercase labels,
+     * both working on the caller's string in place
+     */
+    private static final class Table {
+        private final EmotionLabel[] slots;
+        private final int mask;
+        private final List<EmotionLabel> labels;
+
+        private Table(EmotionLabel[] slots, List<EmotionLabel> labels) {
+            this.slots = slots;
+            this.mask = slots.length - 1;
+            this.labels = labels;
+        }
+
+        static Table build(List<EmotionLabel> labels) {
+            // Load factor at most 1/4 keeps probe sequences at one or two slots
+            int capacity = Integer.highestOneBit(Math.max(4, labels.size() * 4) - 1) << 1;
+            EmotionLabel[] slots = new EmotionLabel[capacity];
+            for (EmotionLabel label : labels) {
+                int index = hash(label.getLabel(), 0, label.getLabel().length()) & (capacity - 1);
+                while (slots[index] != null) {
+                    index = (index + 1) & (capacity - 1);
+                }
+                slots[index] = label;
+            }
+            return new Table(slots, Collections.unmodifiableList(labels));
+        }
+
+        EmotionLabel get(String key) {
+            int start = 0;
+            int end = key.length();
+            while (start < end && key.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && key.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            int length = end - start;
+            int index = hash(key, start, end) & mask;
+            EmotionLabel candidate;
+            while ((candidate = slots[index]) != null) {
+                String label = candidate.getLabel();
+                if (label.length() == length && matches(key, start, label)) {
+                    return candidate;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * Compare against a lowercase label with the same ASCII folding as hash, falling back
+         * to regionMatches for other characters
+         */
+        private static boolean matches(String key, int start, String label) {
+            for (int i = 0; i < label.length(); i++) {
+                char c = key.charAt(start + i);
+                if (c >= 'A' && c <= 'Z') {
+                    c += 'a' - 'A';
+                }
+                if (c != label.charAt(i)) {
+                    return c >= 0x80 && key.regionMatches(true, start + i, label, i, label.length() - i);
+                }
+            }
+            return true;
+        }
+
+        private static int hash(String key, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                char c = key.charAt(i);
+                if (c >= 'A' && c <= 'Z') {
+                    c += 'a' - 'A';
+                }
+                h = 31 * h + c;
+            }
+            // Spread the high bits, the table only uses the low ones
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+-- Emotion of anonymous posts (H2)
+-- Filled asynchronously by the classification pipeline after a post is saved; posts
+-- without a row here are still waiting for (or failed) classification.
+
+CREATE TABLE post_emotions (
+    post_id INT NOT NULL PRIMARY KEY,
+    label VARCHAR(64) NOT NULL,
+    score DOUBLE NOT NULL,
+    sentiment VARCHAR(16) NOT NULL,
+    classified_at TIMESTAMP NOT NULL
+);
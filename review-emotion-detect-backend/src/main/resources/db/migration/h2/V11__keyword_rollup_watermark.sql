@@ -0,0 +1,14 @@
+-- Keyword rollup watermark (H2)
+-- The rollup tables are no longer maintained on ingest: KeywordRollupCompactor folds new
+-- daily_keywords rows into them in the background. last_keyword_id is the last
+-- daily_keywords id they contain; readers count the rows above it from daily_keywords.
+-- Before this migration the rollups were kept up to date on ingest, so they already
+-- contain every existing row.
+
+CREATE TABLE keyword_rollup_watermark (
+    id INT NOT NULL PRIMARY KEY,
+    last_keyword_id BIGINT NOT NULL
+);
+
+INSERT INTO keyword_rollup_watermark (id, last_keyword_id)
+SELECT 1, COALESCE(MAX(id), 0) FROM daily_keywords;
@@ -0,0 +1,22 @@
+-- Unique day key for sentiment_summary (H2)
+-- Needed by the upsert in DashboardRepositoryImpl, V2 later moves the key to a day column.
+-- Existing rows are merged into one row per day first,
+-- otherwise the unique key could not be created.
+-- If this script was already applied by hand, start Flyway with spring.flyway.baseline-version=1.
+
+CREATE TABLE sentiment_summary_merged AS
+SELECT CAST(record_date AS DATE) AS record_date,
+       SUM(positive) AS positive,
+       SUM(negative) AS negative,
+       SUM(neutral) AS neutral
+FROM sentiment_summary
+GROUP BY CAST(record_date AS DATE);
+
+DELETE FROM sentiment_summary;
+
+INSERT INTO sentiment_summary (record_date, positive, negative, neutral)
+SELECT record_date, positive, negative, neutral FROM sentiment_summary_merged;
+
+DROP TABLE sentiment_summary_merged;
+
+ALTER TABLE sentiment_summary ADD CONSTRAINT uk_sentiment_summary_record_date UNIQUE (record_date);
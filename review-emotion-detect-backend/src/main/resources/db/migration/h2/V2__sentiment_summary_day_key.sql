@@ -0,0 +1,31 @@
+-- DATE-typed unique day key for sentiment_summary (H2)
+-- Queries used to wrap the column as DATE(record_date), which no index can serve.
+-- The new day column is backfilled from record_date, duplicate rows of the same day are
+-- merged, and the unique key moves from record_date to day.
+-- DAY is a keyword in H2 2.x, the JDBC URL needs ;NON_KEYWORDS=DAY
+
+ALTER TABLE sentiment_summary ADD COLUMN day DATE NULL;
+
+UPDATE sentiment_summary SET day = CAST(record_date AS DATE);
+
+CREATE TABLE sentiment_summary_merged AS
+SELECT day,
+       MIN(record_date) AS record_date,
+       SUM(positive) AS positive,
+       SUM(negative) AS negative,
+       SUM(neutral) AS neutral
+FROM sentiment_summary
+GROUP BY day;
+
+DELETE FROM sentiment_summary;
+
+INSERT INTO sentiment_summary (day, record_date, positive, negative, neutral)
+SELECT day, record_date, positive, negative, neutral FROM sentiment_summary_merged;
+
+DROP TABLE sentiment_summary_merged;
+
+ALTER TABLE sentiment_summary ALTER COLUMN day SET NOT NULL;
+
+ALTER TABLE sentiment_summary DROP CONSTRAINT uk_sentiment_summary_record_date;
+
+ALTER TABLE sentiment_summary ADD CONSTRAINT uk_sentiment_summary_day UNIQUE (day);
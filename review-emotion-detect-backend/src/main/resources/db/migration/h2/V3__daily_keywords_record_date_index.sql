@@ -0,0 +1,5 @@
+-- Range index for daily_keywords (H2)
+-- Keyword statistics filter on record_date and group by keyword; with keyword in the
+-- index the query is answered from the index alone.
+
+CREATE INDEX idx_daily_keywords_record_date ON daily_keywords (record_date, keyword);
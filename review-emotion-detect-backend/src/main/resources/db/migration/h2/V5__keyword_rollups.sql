@@ -0,0 +1,28 @@
+-- Hourly and daily keyword rollups (H2)
+-- Keyword statistics read whole days and hours from these tables and only touch
+-- daily_keywords for the partial hours at the window edges. Both tables are kept up to
+-- date on ingest, in the same transaction as the daily_keywords insert.
+
+CREATE TABLE keyword_rollup_hourly (
+    bucket_start TIMESTAMP NOT NULL,
+    keyword VARCHAR(255) NOT NULL,
+    cnt INT NOT NULL,
+    PRIMARY KEY (bucket_start, keyword)
+);
+
+CREATE TABLE keyword_rollup_daily (
+    bucket_day DATE NOT NULL,
+    keyword VARCHAR(255) NOT NULL,
+    cnt INT NOT NULL,
+    PRIMARY KEY (bucket_day, keyword)
+);
+
+INSERT INTO keyword_rollup_hourly (bucket_start, keyword, cnt)
+SELECT DATE_TRUNC('HOUR', record_date), keyword, COUNT(*)
+FROM daily_keywords
+GROUP BY DATE_TRUNC('HOUR', record_date), keyword;
+
+INSERT INTO keyword_rollup_daily (bucket_day, keyword, cnt)
+SELECT CAST(record_date AS DATE), keyword, COUNT(*)
+FROM daily_keywords
+GROUP BY CAST(record_date AS DATE), keyword;
@@ -0,0 +1,8 @@
+-- Change tracking for sentiment_summary (H2)
+-- updated_at is set by every upsert; the line chart delta API returns the days with
+-- updated_at at or after the client's cursor, found through the index.
+
+ALTER TABLE sentiment_summary
+    ADD COLUMN updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3);
+
+CREATE INDEX idx_sentiment_summary_updated_at ON sentiment_summary (updated_at);
@@ -0,0 +1,22 @@
+-- Materialized twitter sentiment aggregates (H2)
+-- Monthly counts per country and sentiment, rebuilt by the application whenever the row
+-- count or latest publishedat of twitter_comments_time changes. The state table remembers
+-- which version of the source the aggregate was built from.
+
+CREATE TABLE twitter_sentiment_agg (
+    countrycode VARCHAR(64) NOT NULL,
+    period_month DATE NOT NULL,
+    sentiment VARCHAR(32) NOT NULL,
+    cnt INT NOT NULL,
+    PRIMARY KEY (countrycode, period_month, sentiment)
+);
+
+CREATE TABLE twitter_sentiment_agg_state (
+    id INT NOT NULL PRIMARY KEY,
+    source_rows BIGINT NOT NULL,
+    source_max_published TIMESTAMP(6) NULL,
+    refreshed_at TIMESTAMP NOT NULL
+);
+
+-- Range path for country filters on the source table
+CREATE INDEX idx_twitter_comments_time_country_published ON twitter_comments_time (countrycode, publishedat);
@@ -0,0 +1,8 @@
+-- Optional overrides for the bundled emotion taxonomy (taxonomy/goemotions.csv)
+-- Rows here replace or extend the bundled labels when dashboard.taxonomy.db-enabled=true.
+
+CREATE TABLE emotion_taxonomy (
+    label VARCHAR(64) NOT NULL PRIMARY KEY,
+    sentiment VARCHAR(16) NOT NULL,
+    ekman VARCHAR(16) NOT NULL
+);
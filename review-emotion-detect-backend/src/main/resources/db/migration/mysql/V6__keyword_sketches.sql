@@ -0,0 +1,10 @@
+-- Per-day keyword sketches (MySQL)
+-- One serialized Space-Saving plus Count-Min sketch per day, merged across days for
+-- approximate keyword statistics. Filled on ingest and backfilled from
+-- keyword_rollup_daily by the application at startup.
+
+CREATE TABLE keyword_sketches (
+    bucket_day DATE NOT NULL PRIMARY KEY,
+    total BIGINT NOT NULL DEFAULT 0,
+    sketch MEDIUMBLOB NULL
+);
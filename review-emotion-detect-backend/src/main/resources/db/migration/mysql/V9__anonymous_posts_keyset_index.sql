@@ -0,0 +1,5 @@
+-- Keyset index for anonymous_posts (MySQL)
+-- The wall is paged newest first on (created_at, post_id); the index serves both the
+-- ORDER BY and the cursor predicate, so a page reads only its own rows.
+
+CREATE INDEX idx_anonymous_posts_created_post ON anonymous_posts (created_at, post_id);
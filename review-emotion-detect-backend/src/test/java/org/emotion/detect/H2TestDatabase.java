@@ -0,0 +1,39 @@
+package org.emotion.detect;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+/**
+ * Fresh in-memory H2 database with the application schema
+ * The tables that predate the Flyway migrations are created first, then the H2 migrations run.
+ */
+public final class H2TestDatabase {
+
+    private H2TestDatabase() {
+    }
+
+    /**
+     * @return a data source on a new, uniquely named database
+     */
+    public static DataSource create() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;NON_KEYWORDS=DAY;LOCK_TIMEOUT=10000");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE daily_keywords (id INT AUTO_INCREMENT PRIMARY KEY, keyword VARCHAR(255), record_date TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE sentiment_summary (id INT AUTO_INCREMENT PRIMARY KEY, record_date TIMESTAMP, positive INT, negative INT, neutral INT)");
+        jdbcTemplate.execute("CREATE TABLE twitter_comments_time (id INT AUTO_INCREMENT PRIMARY KEY, publishedat TIMESTAMP, sentiment VARCHAR(16), countrycode VARCHAR(64))");
+        jdbcTemplate.execute("CREATE TABLE anonymous_posts (post_id INT AUTO_INCREMENT PRIMARY KEY, content VARCHAR(1000), bg_color VARCHAR(32), created_at TIMESTAMP)");
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/h2")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+        return dataSource;
+    }
+}
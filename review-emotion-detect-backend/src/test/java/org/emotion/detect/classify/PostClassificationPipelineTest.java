@@ -0,0 +1,100 @@
+package org.emotion.detect.classify;
+
+import org.emotion.detect.H2TestDatabase;
+import org.emotion.detect.client.ModelServiceClient;
+import org.emotion.detect.repository.impl.PostRepositoryImpl;
+import org.emotion.detect.taxonomy.EmotionTaxonomy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The sweep of PostClassificationPipeline against H2, with a model service that never
+ * classifies the newest posts
+ * The sweep only has room for a few posts per round, so it has to page past the failing
+ * posts to reach the older ones.
+ */
+class PostClassificationPipelineTest {
+
+    private static final int CLASSIFIABLE_POSTS = 10;
+
+    private static final int FAILING_POSTS = 20;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private PostClassificationPipeline pipeline;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = new JdbcTemplate(H2TestDatabase.create());
+        PostRepositoryImpl postRepository = new PostRepositoryImpl();
+        ReflectionTestUtils.setField(postRepository, "jdbcTemplate", jdbcTemplate);
+
+        // Older posts classify, the newer ones always come back without scores
+        List<Object[]> posts = new ArrayList<>();
+        for (int i = 0; i < CLASSIFIABLE_POSTS + FAILING_POSTS; i++) {
+            posts.add(new Object[]{(i < CLASSIFIABLE_POSTS ? "happy " : "broken ") + i,
+                    Timestamp.valueOf(LocalDateTime.of(2025, 5, 1, 12, 0).plusMinutes(i))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO anonymous_posts (content, created_at) VALUES (?, ?)", posts);
+
+        ModelServiceClient modelServiceClient = mock(ModelServiceClient.class);
+        when(modelServiceClient.classifyAll(anyList())).thenAnswer(invocation -> {
+            List<String> texts = invocation.getArgument(0);
+            List<List<EmotionScore>> results = new ArrayList<>();
+            for (String text : texts) {
+                results.add(text.startsWith("broken") ? null : Collections.singletonList(new EmotionScore("joy", 0.9)));
+            }
+            return results;
+        });
+
+        EmotionTaxonomy emotionTaxonomy = new EmotionTaxonomy();
+        emotionTaxonomy.start();
+
+        pipeline = new PostClassificationPipeline();
+        ReflectionTestUtils.setField(pipeline, "postRepository", postRepository);
+        ReflectionTestUtils.setField(pipeline, "modelServiceClient", modelServiceClient);
+        ReflectionTestUtils.setField(pipeline, "emotionTaxonomy", emotionTaxonomy);
+        ReflectionTestUtils.setField(pipeline, "enabled", true);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 8);
+        ReflectionTestUtils.setField(pipeline, "workers", 1);
+        ReflectionTestUtils.setField(pipeline, "batchSize", 4);
+        ReflectionTestUtils.setField(pipeline, "sweepIntervalMs", 10L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.stop();
+    }
+
+    @Test
+    void failingNewPostsDoNotStarveOlderOnes() throws InterruptedException {
+        pipeline.start();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (classifiedPosts() < CLASSIFIABLE_POSTS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(CLASSIFIABLE_POSTS, classifiedPosts());
+        assertEquals(CLASSIFIABLE_POSTS, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM post_emotions WHERE label = 'joy' AND sentiment = 'positive'", Integer.class).intValue());
+    }
+
+    private int classifiedPosts() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM post_emotions", Integer.class);
+    }
+}
@@ -0,0 +1,95 @@
+package org.emotion.detect.classify.impl;
+
+import org.emotion.detect.classify.EmotionScore;
+import org.emotion.detect.taxonomy.EmotionTaxonomy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The lexicon automaton over the bundled lexicon and taxonomy
+ */
+class LexiconEmotionClassifierTest {
+
+    private LexiconEmotionClassifier classifier;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        EmotionTaxonomy emotionTaxonomy = new EmotionTaxonomy();
+        emotionTaxonomy.start();
+        classifier = new LexiconEmotionClassifier();
+        ReflectionTestUtils.setField(classifier, "emotionTaxonomy", emotionTaxonomy);
+        classifier.load();
+    }
+
+    @Test
+    void wordsMatchOnlyOnWordBoundaries() {
+        assertEquals("amusement", top("that was lol"));
+        assertEquals("amusement", top("LOL, really"));
+        assertNeutral("lollipop");
+        assertNeutral("a blolb");
+        assertNeutral("glove");
+    }
+
+    @Test
+    void starTermsMatchWordPrefixes() {
+        assertEquals("amusement", top("hahahaha"));
+        assertEquals("amusement", top("telling jokes"));
+        assertEquals("admiration", top("I admired it"));
+        // The prefix must still start a word
+        assertNeutral("readmired");
+    }
+
+    @Test
+    void phrasesMatchAcrossSpaces() {
+        assertEquals("admiration", top("well done everyone"));
+    }
+
+    @Test
+    void emojiAndEmoticonsMatchAnywhere() {
+        assertEquals("amusement", top("ok😂ok"));
+        assertEquals("sadness", top("😢"));
+        assertEquals("sadness", top("not today:("));
+    }
+
+    @Test
+    void weightsAreSummedPerLabelAndNormalized() {
+        List<EmotionScore> scores = classifier.classify("so sad 😢 but I love it");
+        Map<String, Double> byLabel = new HashMap<>();
+        double total = 0;
+        for (EmotionScore score : scores) {
+            byLabel.put(score.getLabel(), score.getScore());
+            total += score.getScore();
+        }
+        assertEquals("sadness", scores.get(0).getLabel());
+        assertEquals(2.0 / 3.0, byLabel.get("sadness"), 1e-9);
+        assertEquals(1.0 / 3.0, byLabel.get("love"), 1e-9);
+        assertEquals(1.0, total, 1e-9);
+    }
+
+    @Test
+    void textWithoutTermsIsNeutral() {
+        assertNeutral("the table is brown");
+        assertTrue(classifier.classify("   ").isEmpty());
+        assertTrue(classifier.classify(null).isEmpty());
+    }
+
+    private String top(String text) {
+        return classifier.classify(text).get(0).getLabel();
+    }
+
+    private void assertNeutral(String text) {
+        List<EmotionScore> scores = classifier.classify(text);
+        assertEquals(1, scores.size(), "unexpected match in '" + text + "': " + scores);
+        assertEquals("neutral", scores.get(0).getLabel());
+        assertEquals(1.0, scores.get(0).getScore(), 1e-9);
+    }
+}
@@ -0,0 +1,231 @@
+package org.emotion.detect.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.emotion.detect.classify.EmotionScore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ModelServiceClient against an in-JVM stub of the model service
+ * The stub answers /classify and /rewrite with a status and latency chosen per test.
+ */
+class ModelServiceClientTest {
+
+    private static final byte[] CLASSIFY_RESPONSE =
+            "{\"results\":[{\"label\":\"joy\",\"score\":0.9}]}".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] REWRITE_RESPONSE = "{\"text\":\"hi there\"}".getBytes(StandardCharsets.UTF_8);
+
+    /** Decides how the stub answers a request */
+    private interface Behaviour {
+        /**
+         * @param call 1-based number of the request since the test started
+         * @return HTTP status to answer with, after any injected latency
+         */
+        int respond(int call) throws InterruptedException;
+    }
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private volatile Behaviour behaviour = call -> 200;
+
+    private ExecutorService serverExecutor;
+
+    private HttpServer server;
+
+    private ModelServiceClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/classify", exchange -> answer(exchange, CLASSIFY_RESPONSE));
+        server.createContext("/rewrite", exchange -> answer(exchange, REWRITE_RESPONSE));
+        server.start();
+
+        client = new ModelServiceClient();
+        ReflectionTestUtils.setField(client, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(client, "baseUrl", "http://localhost:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(client, "maxConnections", 8);
+        ReflectionTestUtils.setField(client, "connectTimeoutMs", 1000);
+        ReflectionTestUtils.setField(client, "deadlineMs", 1000L);
+        ReflectionTestUtils.setField(client, "rewriteDeadlineMs", 3000L);
+        // Hedging is off unless a test turns it on, so request counts are exact
+        ReflectionTestUtils.setField(client, "hedgeDelayMs", 0L);
+        ReflectionTestUtils.setField(client, "maxAttempts", 3);
+        ReflectionTestUtils.setField(client, "retryBackoffMs", 20L);
+        ReflectionTestUtils.setField(client, "cacheMaxEntries", 100);
+        ReflectionTestUtils.setField(client, "cacheTtlMs", 60000L);
+        ReflectionTestUtils.setField(client, "breakerFailureThreshold", 3);
+        ReflectionTestUtils.setField(client, "breakerOpenMs", 500L);
+        client.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.stop();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void classifyCachesByContent() {
+        List<EmotionScore> first = client.classify("hello");
+        List<EmotionScore> second = client.classify("hello");
+
+        assertEquals(1, first.size());
+        assertEquals("joy", first.get(0).getLabel());
+        assertEquals(first, second);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void classifyAllCallsOncePerDistinctText() {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            texts.add("text " + (i % 10));
+        }
+        texts.add(" ");
+
+        List<List<EmotionScore>> scores = client.classifyAll(texts);
+
+        assertEquals(41, scores.size());
+        for (int i = 0; i < 40; i++) {
+            assertNotNull(scores.get(i));
+            assertEquals("joy", scores.get(i).get(0).getLabel());
+        }
+        assertTrue(scores.get(40).isEmpty());
+        assertEquals(10, calls.get());
+    }
+
+    @Test
+    void slowAttemptIsHedged() {
+        ReflectionTestUtils.setField(client, "hedgeDelayMs", 100L);
+        behaviour = call -> {
+            if (call == 1) {
+                Thread.sleep(2000);
+            }
+            return 200;
+        };
+
+        long started = System.currentTimeMillis();
+        List<EmotionScore> scores = client.classify("slow");
+        long elapsed = System.currentTimeMillis() - started;
+
+        assertEquals("joy", scores.get(0).getLabel());
+        assertEquals(2, calls.get());
+        assertTrue(elapsed < 1000, "hedge did not answer before the slow attempt: " + elapsed + " ms");
+    }
+
+    @Test
+    void serverErrorIsRetried() {
+        behaviour = call -> call == 1 ? 503 : 200;
+
+        List<EmotionScore> scores = client.classify("flaky");
+
+        assertEquals("joy", scores.get(0).getLabel());
+        assertEquals(2, calls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitState());
+    }
+
+    @Test
+    void clientErrorIsNeitherRetriedNorCountedByTheBreaker() {
+        behaviour = call -> 422;
+
+        for (int i = 0; i < 5; i++) {
+            String text = "bad " + i;
+            assertThrows(ModelServiceException.class, () -> client.classify(text));
+        }
+
+        assertEquals(5, calls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitState());
+    }
+
+    @Test
+    void breakerOpensAfterRepeatedFailuresAndRecovers() throws InterruptedException {
+        behaviour = call -> 500;
+
+        for (int i = 0; i < 3; i++) {
+            String text = "failing " + i;
+            assertThrows(ModelServiceException.class, () -> client.classify(text));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, client.getCircuitState());
+        int failedCalls = calls.get();
+
+        ModelServiceException refused = assertThrows(ModelServiceException.class, () -> client.classify("refused"));
+        assertEquals("Model service circuit is open", refused.getMessage());
+        assertEquals(failedCalls, calls.get());
+
+        Thread.sleep(600);
+        behaviour = call -> 200;
+        assertEquals("joy", client.classify("recovered").get(0).getLabel());
+        assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitState());
+    }
+
+    @Test
+    void slowServiceFailsAtTheDeadline() {
+        behaviour = call -> {
+            Thread.sleep(2000);
+            return 200;
+        };
+
+        long started = System.currentTimeMillis();
+        ModelServiceException error = assertThrows(ModelServiceException.class, () -> client.classify("late", 300));
+        long elapsed = System.currentTimeMillis() - started;
+
+        assertTrue(error.getMessage().startsWith("Model service deadline exceeded"), error.getMessage());
+        assertTrue(elapsed < 1500, "call outlived its deadline: " + elapsed + " ms");
+    }
+
+    @Test
+    void rewriteReturnsTheText() {
+        assertEquals("hi there", client.rewrite("hey", "polite"));
+        assertEquals(1, calls.get());
+    }
+
+    private void answer(HttpExchange exchange, byte[] response) throws IOException {
+        try {
+            drain(exchange);
+            int status = behaviour.respond(calls.incrementAndGet());
+            if (status != 200) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        byte[] buffer = new byte[4096];
+        while (exchange.getRequestBody().read(buffer) > 0) {
+            // Read the whole request so the connection can be kept alive
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.emotion.detect.ingest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Batch appends over small segments, so that batches roll the active segment mid-way
+ * Each frame of a three-letter keyword takes 20 bytes, three of them fit in a segment.
+ */
+class EmotionJournalTest {
+
+    private static final int SEGMENT_SIZE_BYTES = 64;
+
+    private static final LocalDateTime RECORDED_AT = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @TempDir
+    Path directory;
+
+    private EmotionJournal emotionJournal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        emotionJournal = new EmotionJournal();
+        ReflectionTestUtils.setField(emotionJournal, "enabled", true);
+        ReflectionTestUtils.setField(emotionJournal, "dir", directory.toString());
+        ReflectionTestUtils.setField(emotionJournal, "segmentSizeBytes", SEGMENT_SIZE_BYTES);
+        ReflectionTestUtils.setField(emotionJournal, "forceOnAppend", true);
+        emotionJournal.open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        emotionJournal.close();
+    }
+
+    @Test
+    void batchSpanningSegmentsIsReadBackInOrder() throws IOException {
+        emotionJournal.append(entries("a01", "a02", "a03", "a04", "a05", "a06", "a07"));
+        emotionJournal.append(entries("b01", "b02"));
+
+        assertEquals(Arrays.asList("a01", "a02", "a03", "a04", "a05", "a06", "a07", "b01", "b02"), readAll());
+    }
+
+    @Test
+    void rejectedBatchWritesNothing() throws IOException {
+        emotionJournal.append(entries("a01", "a02"));
+        char[] tooLong = new char[SEGMENT_SIZE_BYTES];
+        Arrays.fill(tooLong, 'x');
+
+        assertThrows(IllegalArgumentException.class,
+                () -> emotionJournal.append(entries("c01", "c02", "c03", new String(tooLong))));
+        emotionJournal.append(entries("b01"));
+
+        assertEquals(Arrays.asList("a01", "a02", "b01"), readAll());
+    }
+
+    @Test
+    void failedRollKeepsSegmentAndOffsetConsistent() throws IOException {
+        emotionJournal.append(entries("a01", "a02"));
+        // A directory where the next segment file goes makes mapping it fail
+        Path nextSegment = directory.resolve(String.format("segment-%020d.log", 1));
+        Files.createDirectory(nextSegment);
+
+        assertThrows(IOException.class, () -> emotionJournal.append(entries("c01", "c02", "c03")));
+        assertEquals(Arrays.asList("a01", "a02", "c01"), readAll());
+
+        Files.delete(nextSegment);
+        emotionJournal.append(entries("b01", "b02", "b03"));
+
+        assertEquals(Arrays.asList("a01", "a02", "c01", "b01", "b02", "b03"), readAll());
+    }
+
+    private List<String> readAll() throws IOException {
+        List<String> keywords = new ArrayList<>();
+        for (EmotionJournal.Entry entry : emotionJournal.read(new EmotionJournal.Position(0, 0), 1000).getEntries()) {
+            assertEquals(RECORDED_AT, entry.getRecordedAt());
+            keywords.add(entry.getKeyword());
+        }
+        return keywords;
+    }
+
+    private static List<EmotionJournal.Entry> entries(String... keywords) {
+        List<EmotionJournal.Entry> entries = new ArrayList<>();
+        for (String keyword : keywords) {
+            entries.add(new EmotionJournal.Entry(keyword, RECORDED_AT, EmotionBatch.sentimentSlot("positive")));
+        }
+        return entries;
+    }
+}
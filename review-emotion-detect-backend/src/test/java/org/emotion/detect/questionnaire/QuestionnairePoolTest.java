@@ -0,0 +1,250 @@
+package org.emotion.detect.questionnaire;
+
+import org.emotion.detect.entity.LabeledComment;
+import org.emotion.detect.enums.QuestionnaireMode;
+import org.emotion.detect.repository.QuestionnaireRepository;
+import org.emotion.detect.taxonomy.EmotionLabel;
+import org.emotion.detect.taxonomy.EmotionTaxonomy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Draws from QuestionnairePool over a stubbed scenarios_comments table
+ */
+class QuestionnairePoolTest {
+
+    private static final String[] EKMAN = {"anger", "disgust", "fear", "joy", "sadness", "surprise", "neutral"};
+
+    private EmotionTaxonomy emotionTaxonomy;
+
+    private QuestionnaireRepository questionnaireRepository;
+
+    private QuestionnairePool questionnairePool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        emotionTaxonomy = new EmotionTaxonomy();
+        emotionTaxonomy.start();
+        questionnaireRepository = mock(QuestionnaireRepository.class);
+
+        questionnairePool = new QuestionnairePool();
+        ReflectionTestUtils.setField(questionnairePool, "questionnaireRepository", questionnaireRepository);
+        ReflectionTestUtils.setField(questionnairePool, "emotionTaxonomy", emotionTaxonomy);
+        ReflectionTestUtils.setField(questionnairePool, "enabled", true);
+    }
+
+    @Test
+    void drawsDistinctRows() {
+        load(evenPool(0, 20));
+
+        for (QuestionnaireMode mode : QuestionnaireMode.values()) {
+            for (int i = 0; i < 200; i++) {
+                List<LabeledComment> drawn = questionnairePool.draw(mode);
+                assertEquals(mode.getQuestionCount(), drawn.size(), mode.name());
+                assertEquals(drawn.size(), ids(drawn).size(), "duplicate rows in " + mode.name());
+            }
+        }
+    }
+
+    @Test
+    void smallPoolYieldsEveryRowOnce() {
+        List<LabeledComment> rows = new ArrayList<>();
+        rows.add(comment(1, "joy", "joy"));
+        rows.add(comment(2, "grief", "sadness"));
+        rows.add(comment(3, "anger", null));
+        rows.add(comment(4, null, null));
+        load(rows);
+
+        for (QuestionnaireMode mode : QuestionnaireMode.values()) {
+            Set<Integer> ids = ids(questionnairePool.draw(mode));
+            assertEquals(4, ids.size(), mode.name());
+            assertTrue(ids.containsAll(ids(rows)), mode.name());
+        }
+    }
+
+    @Test
+    void rowsAreDrawnNearUniformly() {
+        int perCategory = 10;
+        load(evenPool(0, perCategory));
+        int draws = 20_000;
+
+        int[] frequencies = new int[EKMAN.length * perCategory];
+        for (int i = 0; i < draws; i++) {
+            for (LabeledComment comment : questionnairePool.draw(QuestionnaireMode.EASY)) {
+                frequencies[comment.getId()]++;
+            }
+        }
+
+        // One item per category and draw, so every row is expected draws / perCategory times
+        int expected = draws / perCategory;
+        for (int id = 0; id < frequencies.length; id++) {
+            assertTrue(Math.abs(frequencies[id] - expected) < expected * 0.15,
+                    "row " + id + " drawn " + frequencies[id] + " times, expected about " + expected);
+        }
+    }
+
+    @Test
+    void reloadSwapsInTheNewRows() {
+        List<LabeledComment> before = evenPool(0, 5);
+        List<LabeledComment> after = evenPool(1000, 3);
+        when(questionnaireRepository.findAllLabeledComments()).thenReturn(before, after);
+
+        assertEquals(before.size(), questionnairePool.reload());
+        assertTrue(ids(before).containsAll(ids(questionnairePool.draw(QuestionnaireMode.STANDARD))));
+
+        assertEquals(after.size(), questionnairePool.reload());
+        assertEquals(after.size(), questionnairePool.size());
+        for (int i = 0; i < 50; i++) {
+            assertTrue(ids(after).containsAll(ids(questionnairePool.draw(QuestionnaireMode.STANDARD))));
+        }
+    }
+
+    @Test
+    void easyAndStandardCoverEveryEkmanCategoryOfASkewedPool() {
+        load(skewedPool());
+
+        for (QuestionnaireMode mode : new QuestionnaireMode[]{QuestionnaireMode.EASY, QuestionnaireMode.STANDARD}) {
+            for (int i = 0; i < 500; i++) {
+                Set<String> categories = new HashSet<>();
+                for (LabeledComment comment : questionnairePool.draw(mode)) {
+                    categories.add(emotionTaxonomy.lookup(comment.getFineLabels()).getEkman());
+                }
+                assertEquals(EKMAN.length, categories.size(), mode.name() + " covered " + categories);
+            }
+        }
+    }
+
+    @Test
+    void advancedCoversTwentyFiveFineLabelsOfASkewedPool() {
+        load(skewedPool());
+
+        for (int i = 0; i < 500; i++) {
+            Set<String> labels = new HashSet<>();
+            for (LabeledComment comment : questionnairePool.draw(QuestionnaireMode.ADVANCED)) {
+                labels.add(comment.getFineLabels());
+            }
+            assertEquals(QuestionnaireMode.ADVANCED.getQuestionCount(), labels.size());
+        }
+    }
+
+    @Test
+    void labelWhoseRowsAllShareAFullLabelIsStillCovered() {
+        // Every joy row is also sadness, so once sadness has its item the quota check skips them
+        List<LabeledComment> rows = evenPool(0, 20);
+        for (LabeledComment row : rows) {
+            if ("joy".equals(row.getEkmanLabels())) {
+                row.setFineLabels("joy, grief");
+                row.setEkmanLabels("joy, sadness");
+            }
+        }
+        load(rows);
+
+        for (int i = 0; i < 500; i++) {
+            List<LabeledComment> drawn = questionnairePool.draw(QuestionnaireMode.EASY);
+            Set<String> categories = new HashSet<>();
+            for (LabeledComment comment : drawn) {
+                categories.addAll(Arrays.asList(comment.getEkmanLabels().split(", ")));
+            }
+            assertEquals(QuestionnaireMode.EASY.getQuestionCount(), drawn.size());
+            assertEquals(EKMAN.length, categories.size(), "covered " + categories);
+        }
+    }
+
+    @Test
+    void labelsShortOfRowsAreMadeUpByOthersThenByUnlabeledRows() {
+        List<LabeledComment> rows = new ArrayList<>();
+        rows.add(comment(0, "disgust", "disgust"));
+        for (int i = 1; i <= 30; i++) {
+            rows.add(comment(i, i % 2 == 0 ? "joy" : "anger", null));
+        }
+        load(rows);
+
+        // STANDARD asks for 15 items over three categories; disgust only has its one row
+        for (int i = 0; i < 200; i++) {
+            List<LabeledComment> drawn = questionnairePool.draw(QuestionnaireMode.STANDARD);
+            assertEquals(QuestionnaireMode.STANDARD.getQuestionCount(), ids(drawn).size());
+            assertTrue(ids(drawn).contains(0));
+        }
+
+        List<LabeledComment> sparse = new ArrayList<>();
+        sparse.add(comment(0, "disgust", "disgust"));
+        sparse.add(comment(1, "joy", null));
+        sparse.add(comment(2, "fear", null));
+        for (int i = 3; i < 20; i++) {
+            sparse.add(comment(i, null, null));
+        }
+        load(sparse);
+
+        for (int i = 0; i < 200; i++) {
+            Set<Integer> ids = ids(questionnairePool.draw(QuestionnaireMode.EASY));
+            assertEquals(QuestionnaireMode.EASY.getQuestionCount(), ids.size());
+            assertTrue(ids.contains(0) && ids.contains(1) && ids.contains(2), "labeled rows missing from " + ids);
+        }
+    }
+
+    private void load(List<LabeledComment> rows) {
+        when(questionnaireRepository.findAllLabeledComments()).thenReturn(rows);
+        questionnairePool.reload();
+    }
+
+    /**
+     * The same number of rows for every Ekman category, ids counted up from firstId
+     */
+    private static List<LabeledComment> evenPool(int firstId, int perCategory) {
+        List<LabeledComment> rows = new ArrayList<>();
+        for (String category : EKMAN) {
+            for (int i = 0; i < perCategory; i++) {
+                rows.add(comment(firstId + rows.size(), category, category));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 70% neutral, the rest spread over the other fine labels; Ekman categories are left for
+     * the pool to derive
+     */
+    private List<LabeledComment> skewedPool() {
+        List<String> others = new ArrayList<>();
+        for (EmotionLabel label : emotionTaxonomy.getLabels()) {
+            if (!"neutral".equals(label.getLabel())) {
+                others.add(label.getLabel());
+            }
+        }
+        List<LabeledComment> rows = new ArrayList<>();
+        for (int id = 0; id < 1000; id++) {
+            rows.add(comment(id, id < 700 ? "neutral" : others.get(id % others.size()), null));
+        }
+        return rows;
+    }
+
+    private static LabeledComment comment(int id, String fineLabels, String ekmanLabels) {
+        LabeledComment comment = new LabeledComment();
+        comment.setId(id);
+        comment.setTextNatural("comment " + id);
+        comment.setFineLabels(fineLabels);
+        comment.setEkmanLabels(ekmanLabels);
+        return comment;
+    }
+
+    private static Set<Integer> ids(List<LabeledComment> comments) {
+        Set<Integer> ids = new HashSet<>();
+        for (LabeledComment comment : comments) {
+            ids.add(comment.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,125 @@
+package org.emotion.detect.repository;
+
+import org.emotion.detect.H2TestDatabase;
+import org.emotion.detect.dto.SentimentChartResponse;
+import org.emotion.detect.repository.impl.DashboardRepositoryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The all-time sentiment chart over ten years of daily rows in H2, mapped two ways
+ * queryForList is the mapping before the typed extractors: one map of boxed values per row,
+ * then boxed List&lt;Integer&gt; series. typedExtractor is DashboardRepository's current
+ * path, a ResultSetExtractor filling int[] columns that the response carries as they are.
+ * Run with the GC profiler and compare gc.alloc.rate.norm:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.emotion.detect.repository.SentimentChartMappingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SentimentChartMappingBenchmark {
+
+    private static final int YEARS = 10;
+
+    private static final String SQL = "SELECT day as date, positive, negative, neutral FROM sentiment_summary ORDER BY day ASC";
+
+    private JdbcTemplate jdbcTemplate;
+
+    private DashboardRepositoryImpl dashboardRepository;
+
+    @Setup
+    public void setUp() {
+        jdbcTemplate = new JdbcTemplate(H2TestDatabase.create());
+        dashboardRepository = new DashboardRepositoryImpl();
+        ReflectionTestUtils.setField(dashboardRepository, "jdbcTemplate", jdbcTemplate);
+
+        Random random = new Random(1);
+        List<Object[]> rows = new ArrayList<>();
+        LocalDate first = LocalDate.of(2015, 1, 1);
+        for (LocalDate day = first; day.isBefore(first.plusYears(YEARS)); day = day.plusDays(1)) {
+            rows.add(new Object[]{Date.valueOf(day), Timestamp.valueOf(day.atStartOfDay()),
+                    random.nextInt(5000), random.nextInt(5000), random.nextInt(5000)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO sentiment_summary (day, record_date, positive, negative, neutral) "
+                + "VALUES (?, ?, ?, ?, ?)", rows);
+
+        // The repository logs every query; the log lines would be measured along with the mapping
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+    }
+
+    @Benchmark
+    public Object[] queryForList() {
+        List<Map<String, Object>> sentimentData = jdbcTemplate.queryForList(SQL);
+        List<String> dates = new ArrayList<>();
+        List<Integer> positive = new ArrayList<>();
+        List<Integer> negative = new ArrayList<>();
+        List<Integer> neutral = new ArrayList<>();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy.M.d");
+        for (Map<String, Object> data : sentimentData) {
+            Date sqlDate = (Date) data.get("date");
+            LocalDateTime dateTime = sqlDate.toLocalDate().atStartOfDay();
+            dates.add(dateTime.format(formatter));
+            positive.add(((Number) data.get("positive")).intValue());
+            negative.add(((Number) data.get("negative")).intValue());
+            neutral.add(((Number) data.get("neutral")).intValue());
+        }
+        // The response used to carry these lists as they are
+        return new Object[]{dates, negative, positive, neutral};
+    }
+
+    @Benchmark
+    public SentimentChartResponse typedExtractor() {
+        SentimentSeries sentimentData = dashboardRepository.getAllSentimentChartData();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy.M.d");
+        String[] dates = new String[sentimentData.size()];
+        for (int i = 0; i < dates.length; i++) {
+            dates[i] = LocalDate.ofEpochDay(sentimentData.getKey(i)).format(formatter);
+        }
+        return new SentimentChartResponse(dates, sentimentData.getNegative(), sentimentData.getPositive(),
+                sentimentData.getNeutral());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SentimentChartMappingBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,96 @@
+package org.emotion.detect.search;
+
+import org.emotion.detect.entity.Post;
+import org.emotion.detect.repository.PostRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * PostSearchIndex over a repository whose first scans fail, as at startup against a database
+ * that is not reachable yet
+ */
+class PostSearchIndexTest {
+
+    private static final int FAILED_SCANS = 2;
+
+    private final AtomicInteger scans = new AtomicInteger();
+
+    private PostSearchIndex postSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        PostRepository postRepository = mock(PostRepository.class);
+        doAnswer(invocation -> {
+            if (scans.incrementAndGet() <= FAILED_SCANS) {
+                throw new DataAccessResourceFailureException("database not reachable");
+            }
+            Consumer<Post> consumer = invocation.getArgument(0);
+            consumer.accept(post(3, "Sunny day, happy me"));
+            consumer.accept(post(2, "Rainy day"));
+            consumer.accept(post(1, "happy birthday"));
+            return null;
+        }).when(postRepository).forEachPost(any());
+
+        postSearchIndex = new PostSearchIndex();
+        ReflectionTestUtils.setField(postSearchIndex, "postRepository", postRepository);
+        ReflectionTestUtils.setField(postSearchIndex, "enabled", true);
+        ReflectionTestUtils.setField(postSearchIndex, "retryInitialDelayMs", 10L);
+        ReflectionTestUtils.setField(postSearchIndex, "retryMaxDelayMs", 50L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        postSearchIndex.stop();
+    }
+
+    @Test
+    void failedBuildIsRetriedUntilTheIndexIsReady() throws InterruptedException {
+        postSearchIndex.start();
+        assertFalse(postSearchIndex.isReady());
+        assertThrows(IllegalStateException.class, () -> postSearchIndex.search("happy", false, null, 10));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!postSearchIndex.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertTrue(postSearchIndex.isReady());
+        assertEquals(FAILED_SCANS + 1, scans.get());
+        assertArrayEquals(new int[]{3, 1}, postSearchIndex.search("happy", false, null, 10));
+        assertArrayEquals(new int[]{3, 2}, postSearchIndex.search("day", true, null, 10));
+    }
+
+    @Test
+    void postsSavedAfterTheBuildAreSearchable() {
+        scans.set(FAILED_SCANS);
+        postSearchIndex.start();
+        assertTrue(postSearchIndex.isReady());
+
+        postSearchIndex.add(post(4, "happy again"));
+
+        assertArrayEquals(new int[]{4, 3, 1}, postSearchIndex.search("HAPPY", true, null, 10));
+        assertArrayEquals(new int[]{3}, postSearchIndex.search("happy", true, 4, 1));
+    }
+
+    private static Post post(int postId, String content) {
+        Post post = new Post();
+        post.setPostId(postId);
+        post.setContent(content);
+        return post;
+    }
+}
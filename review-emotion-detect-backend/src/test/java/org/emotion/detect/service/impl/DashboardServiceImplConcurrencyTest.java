@@ -0,0 +1,137 @@
+package org.emotion.detect.service.impl;
+
+import org.emotion.detect.H2TestDatabase;
+import org.emotion.detect.ingest.EmotionBatchWriter;
+import org.emotion.detect.ingest.EmotionJournal;
+import org.emotion.detect.ingest.EmotionWriteBehindBuffer;
+import org.emotion.detect.ingest.IngestBarrier;
+import org.emotion.detect.repository.impl.DashboardRepositoryImpl;
+import org.emotion.detect.stats.KeywordWindowCounter;
+import org.emotion.detect.taxonomy.EmotionTaxonomy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * processEmotion from many writers at once against H2
+ * Every call must land exactly once in daily_keywords and in the one sentiment_summary row of its day.
+ */
+class DashboardServiceImplConcurrencyTest {
+
+    private static final int WRITERS = 64;
+
+    private static final int EVENTS_PER_WRITER = 50;
+
+    private static final String[] EMOTIONS = {"joy", "love", "anger", "sadness", "neutral"};
+
+    private JdbcTemplate jdbcTemplate;
+
+    private EmotionTaxonomy emotionTaxonomy;
+
+    private DashboardServiceImpl dashboardService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource dataSource = H2TestDatabase.create();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        DashboardRepositoryImpl dashboardRepository = new DashboardRepositoryImpl();
+        ReflectionTestUtils.setField(dashboardRepository, "jdbcTemplate", jdbcTemplate);
+
+        IngestBarrier ingestBarrier = new IngestBarrier();
+
+        KeywordWindowCounter keywordWindowCounter = new KeywordWindowCounter();
+        ReflectionTestUtils.setField(keywordWindowCounter, "dashboardRepository", dashboardRepository);
+        ReflectionTestUtils.setField(keywordWindowCounter, "ingestBarrier", ingestBarrier);
+
+        EmotionBatchWriter emotionBatchWriter = new EmotionBatchWriter();
+        ReflectionTestUtils.setField(emotionBatchWriter, "dashboardRepository", dashboardRepository);
+        ReflectionTestUtils.setField(emotionBatchWriter, "transactionTemplate",
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        ReflectionTestUtils.setField(emotionBatchWriter, "ingestBarrier", ingestBarrier);
+        ReflectionTestUtils.setField(emotionBatchWriter, "keywordWindowCounter", keywordWindowCounter);
+        ReflectionTestUtils.setField(emotionBatchWriter, "eventPublisher", (ApplicationEventPublisher) event -> { });
+
+        emotionTaxonomy = new EmotionTaxonomy();
+        ReflectionTestUtils.setField(emotionTaxonomy, "jdbcTemplate", jdbcTemplate);
+        emotionTaxonomy.start();
+
+        dashboardService = new DashboardServiceImpl();
+        ReflectionTestUtils.setField(dashboardService, "dashboardRepository", dashboardRepository);
+        ReflectionTestUtils.setField(dashboardService, "writeBehindBuffer", new EmotionWriteBehindBuffer());
+        ReflectionTestUtils.setField(dashboardService, "emotionBatchWriter", emotionBatchWriter);
+        ReflectionTestUtils.setField(dashboardService, "emotionJournal", new EmotionJournal());
+        ReflectionTestUtils.setField(dashboardService, "emotionTaxonomy", emotionTaxonomy);
+    }
+
+    @Test
+    void parallelWritersLoseAndDuplicateNothing() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        List<Future<Integer>> failures = new ArrayList<>();
+        for (int writer = 0; writer < WRITERS; writer++) {
+            int offset = writer;
+            failures.add(executor.submit(() -> {
+                start.await();
+                int failed = 0;
+                for (int i = 0; i < EVENTS_PER_WRITER; i++) {
+                    if (!dashboardService.processEmotion(EMOTIONS[(offset + i) % EMOTIONS.length])) {
+                        failed++;
+                    }
+                }
+                return failed;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES), "writers did not finish");
+        for (Future<Integer> failure : failures) {
+            assertEquals(0, failure.get().intValue(), "processEmotion reported failures");
+        }
+
+        Map<String, Integer> expectedKeywords = new HashMap<>();
+        Map<String, Integer> expectedSentiments = new HashMap<>();
+        for (int writer = 0; writer < WRITERS; writer++) {
+            for (int i = 0; i < EVENTS_PER_WRITER; i++) {
+                String emotion = EMOTIONS[(writer + i) % EMOTIONS.length];
+                expectedKeywords.merge(emotion, 1, Integer::sum);
+                expectedSentiments.merge(emotionTaxonomy.getSentimentTypeString(emotion), 1, Integer::sum);
+            }
+        }
+
+        Map<String, Integer> keywords = new HashMap<>();
+        jdbcTemplate.query("SELECT keyword, COUNT(*) AS count FROM daily_keywords GROUP BY keyword",
+                rs -> { keywords.put(rs.getString("keyword"), rs.getInt("count")); });
+        assertEquals(expectedKeywords, keywords);
+
+        // A writer may cross midnight, but no day may have more than one row
+        Integer duplicateDays = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT CAST(record_date AS DATE) FROM sentiment_summary "
+                        + "GROUP BY CAST(record_date AS DATE) HAVING COUNT(*) > 1) d", Integer.class);
+        assertEquals(0, duplicateDays.intValue());
+
+        Map<String, Object> totals = jdbcTemplate.queryForMap(
+                "SELECT SUM(positive) AS positive, SUM(negative) AS negative, SUM(neutral) AS neutral FROM sentiment_summary");
+        assertEquals(expectedSentiments.getOrDefault("positive", 0).intValue(), ((Number) totals.get("positive")).intValue());
+        assertEquals(expectedSentiments.getOrDefault("negative", 0).intValue(), ((Number) totals.get("negative")).intValue());
+        assertEquals(expectedSentiments.getOrDefault("neutral", 0).intValue(), ((Number) totals.get("neutral")).intValue());
+    }
+}
@@ -0,0 +1,179 @@
+package org.emotion.detect.stats;
+
+import org.emotion.detect.H2TestDatabase;
+import org.emotion.detect.dto.KeywordRangeStatsResponse;
+import org.emotion.detect.ingest.IngestBarrier;
+import org.emotion.detect.ingest.KeywordRollupCompactor;
+import org.emotion.detect.repository.impl.DashboardRepositoryImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * KeywordRangeQuery against H2, compared with per-bucket counts computed from the raw rows
+ * Part of the rows is compacted into the rollups and part is left above the watermark, so
+ * every bucket query has to combine both.
+ */
+class KeywordRangeQueryTest {
+
+    private static final String[] KEYWORDS = {"joy", "anger", "fear", "love", "sadness", "pride", "grief", "relief"};
+
+    private static final LocalDateTime FIRST = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private static final int TOP_N = 3;
+
+    private final List<Object[]> rows = new ArrayList<>();
+
+    private KeywordRangeQuery keywordRangeQuery;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = H2TestDatabase.create();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        DashboardRepositoryImpl dashboardRepository = new DashboardRepositoryImpl();
+        ReflectionTestUtils.setField(dashboardRepository, "jdbcTemplate", jdbcTemplate);
+
+        KeywordRollupCompactor compactor = new KeywordRollupCompactor();
+        ReflectionTestUtils.setField(compactor, "dashboardRepository", dashboardRepository);
+        ReflectionTestUtils.setField(compactor, "transactionTemplate",
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        ReflectionTestUtils.setField(compactor, "ingestBarrier", new IngestBarrier());
+        ReflectionTestUtils.setField(compactor, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(compactor, "compactBatchSize", 1000);
+
+        // Skewed keywords over four months; the first part goes into the rollups
+        Random random = new Random(7);
+        for (int i = 0; i < 6000; i++) {
+            String keyword = KEYWORDS[Math.min(random.nextInt(KEYWORDS.length), random.nextInt(KEYWORDS.length))];
+            LocalDateTime recordedAt = FIRST.plusMinutes(random.nextInt(120 * 24 * 60));
+            rows.add(new Object[]{keyword, Timestamp.valueOf(recordedAt)});
+            if (i == 4000) {
+                insert(jdbcTemplate);
+                compactor.compact();
+            }
+        }
+        insert(jdbcTemplate);
+
+        keywordRangeQuery = new KeywordRangeQuery();
+        ReflectionTestUtils.setField(keywordRangeQuery, "dashboardRepository", dashboardRepository);
+        ReflectionTestUtils.setField(keywordRangeQuery, "queryParallelism", 4);
+        ReflectionTestUtils.setField(keywordRangeQuery, "maxBuckets", 200);
+        ReflectionTestUtils.setField(keywordRangeQuery, "minBucketsPerQuery", 24);
+        ReflectionTestUtils.setField(keywordRangeQuery, "maxTopN", 1000);
+        keywordRangeQuery.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        keywordRangeQuery.stop();
+    }
+
+    @Test
+    void hourBucketsMatchRawCounts() {
+        assertMatchesRaw("2025-02-03T05:30", "2025-02-09T10:00", "hour", ChronoUnit.HOURS);
+    }
+
+    @Test
+    void dayBucketsMatchRawCounts() {
+        assertMatchesRaw("2025-01-10", "2025-04-20", "day", ChronoUnit.DAYS);
+    }
+
+    @Test
+    void weekBucketsStartOnMondayAndMatchRawCounts() {
+        KeywordRangeStatsResponse response = assertMatchesRaw("2025-01-01", "2025-04-30", "week", ChronoUnit.WEEKS);
+        assertEquals("2024-12-30T00:00:00", response.getFrom());
+    }
+
+    @Test
+    void monthBucketsMatchRawCounts() {
+        KeywordRangeStatsResponse response = assertMatchesRaw("2025-01-15", "2025-04-15", "month", ChronoUnit.MONTHS);
+        assertEquals(4, response.getBuckets().size());
+    }
+
+    @Test
+    void tooManyBucketsAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> keywordRangeQuery.query("2025-01-01", "2025-03-01", "hour", TOP_N));
+    }
+
+    private KeywordRangeStatsResponse assertMatchesRaw(String from, String to, String granularity, ChronoUnit unit) {
+        KeywordRangeStatsResponse response = keywordRangeQuery.query(from, to, granularity, TOP_N);
+        LocalDateTime start = LocalDateTime.parse(response.getFrom());
+        LocalDateTime end = LocalDateTime.parse(response.getTo());
+
+        Map<LocalDateTime, Map<String, Integer>> expected = new TreeMap<>();
+        Map<String, Integer> expectedTotal = new HashMap<>();
+        for (LocalDateTime bucket = start; bucket.isBefore(end); bucket = bucket.plus(1, unit)) {
+            expected.put(bucket, new HashMap<>());
+        }
+        for (Object[] row : rows) {
+            LocalDateTime recordedAt = ((Timestamp) row[1]).toLocalDateTime();
+            if (!recordedAt.isBefore(start) && recordedAt.isBefore(end)) {
+                expected.get(floor(recordedAt, unit)).merge((String) row[0], 1, Integer::sum);
+                expectedTotal.merge((String) row[0], 1, Integer::sum);
+            }
+        }
+
+        assertEquals(expected.size(), response.getBuckets().size());
+        int i = 0;
+        for (Map.Entry<LocalDateTime, Map<String, Integer>> bucket : expected.entrySet()) {
+            KeywordRangeStatsResponse.Bucket actual = response.getBuckets().get(i++);
+            assertEquals(bucket.getKey().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME), actual.getStart());
+            assertEquals(top(bucket.getValue()), new ArrayList<>(actual.getKeywordStats().entrySet()),
+                    "bucket " + actual.getStart());
+        }
+        assertEquals(top(expectedTotal), new ArrayList<>(response.getKeywordStats().entrySet()));
+        return response;
+    }
+
+    /**
+     * The topN entries by count descending, then keyword, as the queries order them
+     */
+    private static List<Map.Entry<String, Integer>> top(Map<String, Integer> counts) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((a, b) -> a.getValue().equals(b.getValue())
+                ? a.getKey().compareTo(b.getKey())
+                : Integer.compare(b.getValue(), a.getValue()));
+        return entries.subList(0, Math.min(TOP_N, entries.size()));
+    }
+
+    private static LocalDateTime floor(LocalDateTime time, ChronoUnit unit) {
+        switch (unit) {
+            case HOURS:
+            case DAYS:
+                return time.truncatedTo(unit);
+            case WEEKS:
+                return time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+            default:
+                return time.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        }
+    }
+
+    private void insert(JdbcTemplate jdbcTemplate) {
+        Integer inserted = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM daily_keywords", Integer.class);
+        jdbcTemplate.batchUpdate("INSERT INTO daily_keywords (keyword, record_date) VALUES (?, ?)",
+                rows.subList(inserted, rows.size()));
+    }
+}
@@ -0,0 +1,87 @@
+package org.emotion.detect.taxonomy;
+
+import org.emotion.detect.enums.SentimentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Label classification: EmotionTaxonomy against the SentimentType enum
+ * enumLinearScan is the enum's lookup before EmotionTaxonomy (lowercase, then List.contains
+ * per constant), enumMap its current HashMap lookup. Labels are mixed case, as clients send
+ * them. Run with the GC profiler; gc.alloc.rate.norm is 0 B/op for taxonomy only:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/test-classpath.txt) org.emotion.detect.taxonomy.EmotionTaxonomyBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmotionTaxonomyBenchmark {
+
+    private static final String[] LABELS = {
+            "joy", "Anger", "SADNESS", "neutral", "Confusion", "desire", "gratitude", "disgust",
+            "Nervousness", "realization", "unknown", "Remorse", "pride", "Caring", "fear", "relief"
+    };
+
+    private EmotionTaxonomy emotionTaxonomy;
+
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        emotionTaxonomy = new EmotionTaxonomy();
+        emotionTaxonomy.start();
+    }
+
+    @Benchmark
+    public String taxonomy() {
+        return emotionTaxonomy.getSentimentTypeString(label());
+    }
+
+    @Benchmark
+    public String enumMap() {
+        return SentimentType.getSentimentTypeString(label());
+    }
+
+    @Benchmark
+    public String enumLinearScan() {
+        String lowerEmotion = label().toLowerCase();
+        for (SentimentType type : SentimentType.values()) {
+            if (type.getEmotions().contains(lowerEmotion)) {
+                return type.getValue();
+            }
+        }
+        return "neutral";
+    }
+
+    private String label() {
+        next = (next + 1) & (LABELS.length - 1);
+        return LABELS[next];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EmotionTaxonomyBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,84 @@
+package org.emotion.detect.taxonomy;
+
+import org.emotion.detect.enums.SentimentType;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lookups in the bundled taxonomy, including that classifying a label allocates nothing
+ */
+class EmotionTaxonomyTest {
+
+    private EmotionTaxonomy emotionTaxonomy;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        emotionTaxonomy = new EmotionTaxonomy();
+        emotionTaxonomy.start();
+    }
+
+    @Test
+    void allGoEmotionsLabelsAreRegistered() {
+        assertEquals(28, emotionTaxonomy.getLabels().size());
+        assertEquals(SentimentType.POSITIVE, emotionTaxonomy.sentimentOf("confusion"));
+        assertEquals(SentimentType.POSITIVE, emotionTaxonomy.sentimentOf("desire"));
+        assertEquals(SentimentType.NEGATIVE, emotionTaxonomy.sentimentOf("grief"));
+        assertEquals(SentimentType.NEUTRAL, emotionTaxonomy.sentimentOf("neutral"));
+    }
+
+    @Test
+    void lookupIgnoresCaseAndSurroundingWhitespace() {
+        assertEquals("anger", emotionTaxonomy.lookup("  ANGER\t").getLabel());
+        assertEquals("negative", emotionTaxonomy.getSentimentTypeString("Disappointment"));
+        assertNull(emotionTaxonomy.lookup("angers"));
+        assertEquals(SentimentType.NEUTRAL, emotionTaxonomy.sentimentOf("no such label"));
+        assertEquals(SentimentType.NEUTRAL, emotionTaxonomy.sentimentOf(null));
+    }
+
+    @Test
+    void classifyingALabelAllocatesNothing() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads instanceof com.sun.management.ThreadMXBean,
+                "allocation counters need a HotSpot JVM");
+        com.sun.management.ThreadMXBean hotSpot = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+        String[] labels = {"joy", "Anger", " SADNESS ", "neutral", "Confusion", "unknown"};
+
+        int positives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            positives += classifyAll(labels);
+        }
+        // The counter itself allocates a little, so a second, empty measurement is the baseline
+        long before = hotSpot.getThreadAllocatedBytes(thread);
+        long baseline = hotSpot.getThreadAllocatedBytes(thread) - before;
+        before = hotSpot.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 100_000; i++) {
+            positives += classifyAll(labels);
+        }
+        long allocated = hotSpot.getThreadAllocatedBytes(thread) - before;
+
+        assertEquals(110_000 * 2, positives);
+        // JIT and safepoint bookkeeping may allocate a few bytes on this thread; one object per
+        // classification would be at least 16 bytes each, over 9 MB in total
+        assertTrue(allocated - baseline < 4096,
+                "bytes allocated by 600000 classifications: " + (allocated - baseline));
+    }
+
+    private int classifyAll(String[] labels) {
+        int positives = 0;
+        for (String label : labels) {
+            if (emotionTaxonomy.sentimentOf(label) == SentimentType.POSITIVE) {
+                positives++;
+            }
+        }
+        return positives;
+    }
+}